@@ -125,16 +125,12 @@ var AmpacheResolver = Tomahawk.extend(Tomahawk.Resolver, {
                     Tomahawk.log("Collection needs to be updated");
 
                     var tracks = that._parseSongResponse(xmlDoc);
-                    ampacheCollection.wipe({
-                        id: ampacheCollection.settings.id
+                    ampacheCollection.mergeTracks({
+                        id: ampacheCollection.settings.id,
+                        tracks: tracks
                     }).then(function () {
-                        ampacheCollection.addTracks({
-                            id: ampacheCollection.settings.id,
-                            tracks: tracks
-                        }).then(function () {
-                            Tomahawk.log("Updated cache in " + (Date.now() - time) + "ms");
-                            window.localStorage["ampache_last_cache_update"] = Date.now();
-                        });
+                        Tomahawk.log("Updated cache in " + (Date.now() - time) + "ms");
+                        window.localStorage["ampache_last_cache_update"] = Date.now();
                     });
                 } else {
                     Tomahawk.log("Collection doesn't need to be updated");
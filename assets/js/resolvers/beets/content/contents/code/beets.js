@@ -124,14 +124,12 @@ var BeetsResolver = Tomahawk.extend(Tomahawk.Resolver, {
                             duration: Math.floor(item.length)
                         });
                     });
-                    beetsCollection.wipe({id: beetsCollection.settings.id}).then(function () {
-                        beetsCollection.addTracks({
-                            id: beetsCollection.settings.id,
-                            tracks: searchResults
-                        }).then(function () {
-                            window.localStorage["beets_trackCount"] = trackCount;
-                            window.localStorage["beets_albumCount"] = albumCount;
-                        });
+                    beetsCollection.mergeTracks({
+                        id: beetsCollection.settings.id,
+                        tracks: searchResults
+                    }).then(function () {
+                        window.localStorage["beets_trackCount"] = trackCount;
+                        window.localStorage["beets_albumCount"] = albumCount;
                     });
                 });
             } else {
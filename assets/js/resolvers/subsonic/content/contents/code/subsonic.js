@@ -177,17 +177,13 @@ var SubsonicResolver = Tomahawk.extend(Tomahawk.Resolver, {
                     Tomahawk.log("Collection needs to be updated");
 
                     var tracks = that._convertTracks(response["subsonic-response"].indexes.child);
-                    subsonicCollection.wipe({
-                        id: subsonicCollection.settings.id
+                    subsonicCollection.mergeTracks({
+                        id: subsonicCollection.settings.id,
+                        tracks: tracks
                     }).then(function () {
-                        subsonicCollection.addTracks({
-                            id: subsonicCollection.settings.id,
-                            tracks: tracks
-                        }).then(function () {
-                            Tomahawk.log("Updated cache in " + (Date.now() - time) + "ms");
-                            window.localStorage["subsonic_last_cache_update"]
-                                = response["subsonic-response"].indexes.lastModified;
-                        });
+                        Tomahawk.log("Updated cache in " + (Date.now() - time) + "ms");
+                        window.localStorage["subsonic_last_cache_update"]
+                            = response["subsonic-response"].indexes.lastModified;
                     });
                 } else {
                     Tomahawk.log("Collection doesn't need to be updated");
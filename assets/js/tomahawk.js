@@ -883,6 +883,14 @@ Tomahawk.NativeScriptJobManager = {
             Tomahawk.log("Deferred object with the given requestId is not present!");
         }
         deferred.resolve(result);
+    },
+    reportNativeScriptJobFailure: function (requestId, error) {
+        var deferred = this.deferreds[requestId];
+        if (!deferred) {
+            Tomahawk.log("Deferred object with the given requestId is not present!");
+            return;
+        }
+        deferred.reject(error);
     }
 };
 
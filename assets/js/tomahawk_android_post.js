@@ -35,6 +35,76 @@ Tomahawk.Collection.addTracks = function (params) {
     return Tomahawk.NativeScriptJobManager.invoke("collectionAddTracks", params);
 };
 
+/**
+ * Replaces the collection's content with the given tracks. Only the tracks that have actually been
+ * added, removed or changed are being written, which is a lot cheaper than wipe() + addTracks().
+ */
+Tomahawk.Collection.mergeTracks = function (params) {
+    return Tomahawk.NativeScriptJobManager.invoke("collectionMergeTracks", params);
+};
+
 Tomahawk.Collection.wipe = function (params) {
     return Tomahawk.NativeScriptJobManager.invoke("collectionWipe", params);
-};
\ No newline at end of file
+};
+/**
+ * Invokes several jobs on the given plugin object with a single call from the Java side. Every
+ * job's result is being reported back separately under the job's own requestId, as soon as it is
+ * available.
+ *
+ * If the object implements resolveBatch(paramsArray), all "resolve" jobs are being handed over to
+ * it at once. It should return an array containing one result or promise per given params object,
+ * in the same order, so that a slow query doesn't hold back the results of the others. A query
+ * whose promise is being rejected is tried again on its own. Otherwise every job is being invoked
+ * one after the other.
+ */
+Tomahawk.PluginManager.invokeBatch = function (objectId, jobs) {
+    var pluginManager = this;
+    var object = this.objects[objectId];
+    var invokeSingle = function (job) {
+        try {
+            pluginManager.invoke(job.requestId, objectId, job.methodName, job.params);
+        } catch (error) {
+            Tomahawk.reportScriptJobResults({
+                requestId: job.requestId,
+                error: error.message || error
+            });
+        }
+    };
+
+    var resolveJobs = [];
+    for (var i = 0; i < jobs.length; i++) {
+        if (jobs[i].methodName === 'resolve' && object
+            && typeof object.resolveBatch === 'function') {
+            resolveJobs.push(jobs[i]);
+        } else {
+            invokeSingle(jobs[i]);
+        }
+    }
+
+    if (resolveJobs.length > 0) {
+        var paramsArray = resolveJobs.map(function (job) {
+            return job.params;
+        });
+        var results;
+        try {
+            results = object.resolveBatch(paramsArray);
+        } catch (error) {
+            results = null;
+        }
+        if (!Array.isArray(results) || results.length !== resolveJobs.length) {
+            // The batch failed as a whole, so we try again with every single query on its own
+            resolveJobs.forEach(invokeSingle);
+            return;
+        }
+        resolveJobs.forEach(function (job, i) {
+            Promise.resolve(results[i]).then(function (result) {
+                Tomahawk.reportScriptJobResults({
+                    requestId: job.requestId,
+                    data: result
+                });
+            }, function (error) {
+                invokeSingle(job);
+            });
+        });
+    }
+};
@@ -63,7 +63,8 @@ Tomahawk.nativeAsyncRequest =
  */
 Tomahawk._nativeAsyncRequestDone = function (requestId, responseText, responseHeaders, status, statusText) {
     var fakeXhr = {
-        responseHeaders: JSON.parse(responseHeaders),
+        responseHeaders: typeof responseHeaders === 'string' ? JSON.parse(responseHeaders)
+            : responseHeaders,
         responseText: responseText,
         readyState: 4,
         status: status,
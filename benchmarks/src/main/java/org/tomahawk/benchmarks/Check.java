@@ -0,0 +1,44 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A check of a property of the app's code that a benchmark can't assert, like the query plans
+ * SQLite picks or the behaviour under concurrent access. See {@link Checks}.
+ */
+public abstract class Check {
+
+    private final List<String> mFailures = new ArrayList<>();
+
+    public abstract String getName();
+
+    public abstract void run() throws Exception;
+
+    public List<String> getFailures() {
+        return mFailures;
+    }
+
+    protected void check(boolean condition, String failure) {
+        if (!condition) {
+            mFailures.add(failure);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+/**
+ * Runs all {@link Check}s and exits with a non-zero status if any of them failed.
+ */
+public class Checks {
+
+    public static void main(String[] args) {
+        Check[] checks = new Check[]{
+                new QueryPlanCheck(),
+                new RankedResultsCheck()
+        };
+        int failures = 0;
+        for (Check check : checks) {
+            try {
+                check.run();
+            } catch (Exception e) {
+                check.getFailures().add("threw " + e.getClass() + ": " + e.getLocalizedMessage());
+            }
+            if (check.getFailures().isEmpty()) {
+                System.out.println("PASSED " + check.getName());
+            } else {
+                System.out.println("FAILED " + check.getName());
+                for (String failure : check.getFailures()) {
+                    System.out.println("    " + failure);
+                }
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " of " + checks.length + " checks failed");
+            System.exit(1);
+        }
+        System.out.println("All " + checks.length + " checks passed");
+    }
+}
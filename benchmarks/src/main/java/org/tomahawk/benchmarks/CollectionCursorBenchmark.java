@@ -0,0 +1,124 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tomahawk.libtomahawk.collection.Album;
+import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.Collection;
+import org.tomahawk.libtomahawk.collection.CollectionCursor;
+import org.tomahawk.libtomahawk.database.CollectionDb;
+import org.tomahawk.libtomahawk.resolver.Resolver;
+import org.tomahawk.libtomahawk.resolver.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a library out of a {@link CollectionDb} through {@link CollectionCursor}s. Every call
+ * scans or merges the whole library, so a single op is one pass over all of its rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CollectionCursorBenchmark {
+
+    private static final int MERGED_ALBUM_COUNT = 100;
+
+    @Param({"10000", "50000", "200000"})
+    public int mLibrarySize;
+
+    private CollectionDb mCollectionDb;
+
+    private Resolver mResolver;
+
+    private List<Album> mMergedAlbums;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mCollectionDb = SyntheticLibrary.collectionDb(mLibrarySize);
+        mResolver = new BenchmarkResolver(100);
+        // Albums of another collection, which have to be merged in between the stored ones
+        mMergedAlbums = new ArrayList<>();
+        for (int i = 0; i < MERGED_ALBUM_COUNT; i++) {
+            Artist artist = Artist.get("Merged Artist " + i);
+            mMergedAlbums.add(Album.get("Merged Album " + i, artist));
+        }
+        Collections.sort(mMergedAlbums, new Comparator<Album>() {
+            @Override
+            public int compare(Album lhs, Album rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mCollectionDb.close();
+    }
+
+    @Benchmark
+    public void scanTracks(Blackhole blackhole) {
+        CollectionCursor<Result> cursor = new CollectionCursor<>(
+                mCollectionDb.pagedTracks(CollectionDb.TRACKS_TRACK, false), Result.class,
+                mResolver, null);
+        for (int i = 0; i < cursor.size(); i++) {
+            blackhole.consume(cursor.get(i));
+        }
+        cursor.close();
+    }
+
+    @Benchmark
+    public void scanAlbums(Blackhole blackhole) {
+        CollectionCursor<Album> cursor = new CollectionCursor<>(
+                mCollectionDb.albums(CollectionDb.ALBUMS_ALBUM, false), Album.class, null, null);
+        for (int i = 0; i < cursor.size(); i++) {
+            blackhole.consume(cursor.get(i));
+        }
+        cursor.close();
+    }
+
+    @Benchmark
+    public int mergeAlbums() {
+        CollectionCursor<Album> cursor = new CollectionCursor<>(
+                mCollectionDb.albums(CollectionDb.ALBUMS_ALBUM, false), Album.class, null, null);
+        cursor.mergeItems(Collection.SORT_ALPHA, mMergedAlbums);
+        int size = cursor.size();
+        cursor.close();
+        return size;
+    }
+}
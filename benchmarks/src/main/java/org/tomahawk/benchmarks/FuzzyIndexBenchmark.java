@@ -0,0 +1,108 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.libtomahawk.resolver.FuzzyIndex;
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of searches in a {@link FuzzyIndex} of a large library. The queries
+ * contain typos and the fulltext ones end with a word that is still being typed, like the ones of
+ * search-as-you-type. There are more distinct queries than the index caches parsed queries, so
+ * most of them have to be parsed as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FuzzyIndexBenchmark {
+
+    private static final int QUERY_COUNT = 1000;
+
+    @Param({"100000"})
+    public int mLibrarySize;
+
+    private FuzzyIndex mFuzzyIndex;
+
+    private Query[] mFullTextQueries;
+
+    private Query[] mTrackQueries;
+
+    @State(Scope.Thread)
+    public static class Counter {
+
+        private long mCount;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Fills the database, which the FuzzyIndex then reads through the CollectionDbManager
+        SyntheticLibrary.collectionDb(mLibrarySize).close();
+        mFuzzyIndex = new FuzzyIndex("benchmark_" + mLibrarySize);
+
+        ScriptResolverTrack[] tracks = SyntheticLibrary.tracks(mLibrarySize);
+        Random random = new Random(mLibrarySize);
+        mFullTextQueries = new Query[QUERY_COUNT];
+        mTrackQueries = new Query[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            ScriptResolverTrack track = tracks[random.nextInt(tracks.length)];
+            String fullText = SyntheticLibrary.typo(random, track.artist) + " " + track.track;
+            // Cut off the last word, like while it is still being typed
+            fullText = fullText.substring(0,
+                    Math.max(fullText.lastIndexOf(' ') + 2, fullText.length() - 3));
+            mFullTextQueries[i] = Query.get(fullText, true);
+            mTrackQueries[i] = Query.get(SyntheticLibrary.typo(random, track.track), track.album,
+                    SyntheticLibrary.typo(random, track.artist), true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mFuzzyIndex.close();
+    }
+
+    @Benchmark
+    public List<FuzzyIndex.IndexResult> searchFullText(Counter counter) {
+        return mFuzzyIndex.searchIndex(mFullTextQueries[(int) (counter.mCount++ % QUERY_COUNT)]);
+    }
+
+    @Benchmark
+    public List<FuzzyIndex.IndexResult> searchTrack(Counter counter) {
+        return mFuzzyIndex.searchIndex(mTrackQueries[(int) (counter.mCount++ % QUERY_COUNT)]);
+    }
+}
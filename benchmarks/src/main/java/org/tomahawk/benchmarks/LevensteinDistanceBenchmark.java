@@ -0,0 +1,82 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+import org.tomahawk.libtomahawk.utils.LevensteinDistance;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the distance between the track names of a library and the same names with a typo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevensteinDistanceBenchmark {
+
+    @Param({"10000", "50000", "200000"})
+    public int mLibrarySize;
+
+    private String[] mNames;
+
+    private String[] mTypos;
+
+    private long mCounter;
+
+    @Setup
+    public void setUp() {
+        ScriptResolverTrack[] tracks = SyntheticLibrary.tracks(mLibrarySize);
+        Random random = new Random(mLibrarySize);
+        mNames = new String[tracks.length];
+        mTypos = new String[tracks.length];
+        for (int i = 0; i < tracks.length; i++) {
+            mNames[i] = tracks[i].track;
+            // Every other name is being compared with another track's name
+            String other = i % 2 == 0 ? tracks[i].track : tracks[(i * 31) % tracks.length].track;
+            mTypos[i] = SyntheticLibrary.typo(random, other);
+        }
+    }
+
+    @Benchmark
+    public int getDistance() {
+        int i = (int) (mCounter++ % mNames.length);
+        return LevensteinDistance.getDistance(mNames[i], mTypos[i]);
+    }
+
+    @Benchmark
+    public int getDistanceBounded() {
+        int i = (int) (mCounter++ % mNames.length);
+        return LevensteinDistance.getDistance(mNames[i], mTypos[i], 2);
+    }
+}
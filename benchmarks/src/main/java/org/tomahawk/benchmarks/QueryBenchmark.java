@@ -0,0 +1,105 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.libtomahawk.collection.Album;
+import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.Track;
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Resolver;
+import org.tomahawk.libtomahawk.resolver.Result;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores the {@link Result}s of a library against {@link Query}s with typos in them. Every call
+ * scores another pair, so that the similarity caches of the Queries only hit once the library
+ * has been cycled through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int QUERY_COUNT = 1000;
+
+    @Param({"10000", "50000", "200000"})
+    public int mLibrarySize;
+
+    private Query[] mQueries;
+
+    private Result[] mResults;
+
+    private long mCounter;
+
+    @Setup
+    public void setUp() {
+        Resolver resolver = new BenchmarkResolver(100);
+        ScriptResolverTrack[] tracks = SyntheticLibrary.tracks(mLibrarySize);
+        mResults = new Result[tracks.length];
+        for (int i = 0; i < tracks.length; i++) {
+            Artist artist = Artist.get(tracks[i].artist);
+            Album album = Album.get(tracks[i].album, artist);
+            Track track = Track.get(tracks[i].track, album, artist);
+            mResults[i] = Result.get(tracks[i].url, track, resolver);
+        }
+        Random random = new Random(mLibrarySize);
+        mQueries = new Query[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            ScriptResolverTrack track = tracks[random.nextInt(tracks.length)];
+            mQueries[i] = Query.get(SyntheticLibrary.typo(random, track.track), track.album,
+                    SyntheticLibrary.typo(random, track.artist), false);
+        }
+    }
+
+    @Benchmark
+    public float howSimilar() {
+        long counter = mCounter++;
+        return mQueries[(int) (counter % QUERY_COUNT)]
+                .howSimilar(mResults[(int) ((counter / QUERY_COUNT) % mResults.length)]);
+    }
+
+    @Benchmark
+    public float howSimilarPruned() {
+        long counter = mCounter++;
+        return mQueries[(int) (counter % QUERY_COUNT)]
+                .howSimilar(mResults[(int) ((counter / QUERY_COUNT) % mResults.length)], 0.8f);
+    }
+
+    @Benchmark
+    public float howSimilarCached() {
+        int i = (int) (mCounter++ % QUERY_COUNT);
+        return mQueries[i].howSimilar(mResults[i]);
+    }
+}
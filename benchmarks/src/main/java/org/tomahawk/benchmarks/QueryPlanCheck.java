@@ -0,0 +1,169 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.tomahawk.libtomahawk.database.CollectionDb;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Runs every kind of query that the collections run against a {@link CollectionDb} and asserts
+ * via EXPLAIN QUERY PLAN that SQLite answers all of them out of an index. None of them may scan a
+ * table row by row or sort its rows in a temporary B-tree, which is what happens as soon as an
+ * ordering or a lookup stops matching one of the indexes.
+ */
+public class QueryPlanCheck extends Check {
+
+    private static final int LIBRARY_SIZE = 10000;
+
+    /**
+     * Statements that may sort, because they only ever sort the few rows of a single artist or
+     * album
+     */
+    private static final String[] SMALL_SORTS = new String[]{
+            " FROM " + CollectionDb.TABLE_ARTISTALBUMS + " "
+    };
+
+    private final Set<String> mStatements = new LinkedHashSet<>();
+
+    @Override
+    public String getName() {
+        return "CollectionDb query plans";
+    }
+
+    @Override
+    public void run() {
+        // Fill the database with a separate instance, so that the recording below sees every
+        // statement being compiled, including the ones that CollectionDb caches
+        SyntheticLibrary.collectionDb(LIBRARY_SIZE).close();
+        CollectionDb collectionDb =
+                new CollectionDb(TomahawkApp.getContext(), "benchmark_" + LIBRARY_SIZE);
+        SQLiteDatabase db = collectionDb.getWritableDatabase();
+        db.setSqlListener(new SQLiteDatabase.SqlListener() {
+            @Override
+            public void onSql(String sql) {
+                synchronized (mStatements) {
+                    mStatements.add(sql);
+                }
+            }
+        });
+        try {
+            runQueries(collectionDb);
+        } finally {
+            db.setSqlListener(null);
+        }
+        for (String statement : mStatements) {
+            if (statement.startsWith("SELECT")) {
+                checkPlan(db, statement);
+            }
+        }
+        collectionDb.close();
+    }
+
+    private void runQueries(CollectionDb collectionDb) {
+        for (boolean descending : new boolean[]{false, true}) {
+            for (String sortColumn : new String[]{CollectionDb.TRACKS_TRACK,
+                    CollectionDb.ARTISTS_ARTIST, CollectionDb.TRACKS_LASTMODIFIED}) {
+                readPages(collectionDb.pagedTracks(sortColumn, descending));
+            }
+            for (String sortColumn : new String[]{CollectionDb.ALBUMS_ALBUM,
+                    CollectionDb.ARTISTS_ARTIST, CollectionDb.ALBUMS_LASTMODIFIED}) {
+                readPages(collectionDb.albums(sortColumn, descending));
+            }
+            for (String sortColumn : new String[]{CollectionDb.ARTISTS_ARTIST,
+                    CollectionDb.ARTISTS_LASTMODIFIED}) {
+                readPages(collectionDb.artists(sortColumn, descending));
+            }
+            for (String sortColumn : new String[]{CollectionDb.ALBUMARTISTS_ALBUMARTIST,
+                    CollectionDb.ALBUMARTISTS_LASTMODIFIED}) {
+                readPages(collectionDb.albumArtists(sortColumn, descending));
+            }
+        }
+
+        collectionDb.tracksCurrentRevision();
+        Cursor cursor = collectionDb.pagedTracks(CollectionDb.TRACKS_TRACK, false).getPage(0);
+        try {
+            cursor.moveToFirst();
+            String artist = cursor.getString(0);
+            String artistDisambiguation = cursor.getString(1);
+            String album = cursor.getString(2);
+            collectionDb.artistCurrentRevision(artist, artistDisambiguation);
+            collectionDb.albumCurrentRevision(album, artist, artistDisambiguation);
+            close(collectionDb.artistAlbums(artist, artistDisambiguation));
+            close(collectionDb.albumTracks(album, artist, artistDisambiguation));
+        } finally {
+            cursor.close();
+        }
+        // Like the lookup of the tracks that the FuzzyIndex has found
+        CollectionDb.WhereInfo whereInfo = new CollectionDb.WhereInfo();
+        whereInfo.connection = "OR";
+        whereInfo.where.put(CollectionDb.ID, new String[]{"1", "2", "3"});
+        close(collectionDb.tracks(whereInfo, null));
+    }
+
+    /**
+     * Reads the first page, jumps to the last one and then reads the second one, so that the
+     * query for the first page, the query for the missing page borders and the query for a page
+     * after a known border are all being run
+     */
+    private void readPages(CollectionDb.PagedQuery pagedQuery) {
+        int lastPage = (pagedQuery.getCount() - 1) / CollectionDb.PAGE_SIZE;
+        close(pagedQuery.getPage(0));
+        close(pagedQuery.getPage(lastPage));
+        close(pagedQuery.getPage(1));
+    }
+
+    private void checkPlan(SQLiteDatabase db, String statement) {
+        int argCount = statement.length() - statement.replace("?", "").length();
+        String[] args = new String[argCount];
+        for (int i = 0; i < argCount; i++) {
+            args[i] = "";
+        }
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + statement, args);
+        try {
+            while (cursor.moveToNext()) {
+                // The fourth column contains the detail, like "SCAN tracks USING INDEX ..."
+                String detail = cursor.getString(3);
+                check(!(detail.startsWith("SCAN ") && !detail.contains(" USING ")),
+                        "\"" + detail + "\" in " + statement);
+                check(!detail.contains("TEMP B-TREE") || isSmallSort(statement),
+                        "\"" + detail + "\" in " + statement);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static boolean isSmallSort(String statement) {
+        for (String smallSort : SMALL_SORTS) {
+            if (statement.contains(smallSort)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void close(Cursor cursor) {
+        cursor.close();
+    }
+}
@@ -0,0 +1,173 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.tomahawk.libtomahawk.collection.Album;
+import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.Track;
+import org.tomahawk.libtomahawk.resolver.RankedResults;
+import org.tomahawk.libtomahawk.resolver.Resolver;
+import org.tomahawk.libtomahawk.resolver.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets several reporters add {@link Result}s to one {@link RankedResults} concurrently, like the
+ * resolvers do, while the best ones are being removed, like blacklisting does, and readers take
+ * snapshots. Every snapshot has to be sorted and within the capacity, and in the end the visible
+ * {@link Result}s have to be exactly the best ones that haven't been removed.
+ */
+public class RankedResultsCheck extends Check {
+
+    private static final int REPORTER_COUNT = 8;
+
+    private static final int RESULTS_PER_REPORTER = 5000;
+
+    private static final int READER_COUNT = 2;
+
+    private final List<String> mFailures = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public String getName() {
+        return "RankedResults under concurrent reporters";
+    }
+
+    @Override
+    public void run() throws Exception {
+        int resultCount = REPORTER_COUNT * RESULTS_PER_REPORTER;
+        Resolver resolver = new BenchmarkResolver(100);
+        Artist artist = Artist.get("RankedResultsCheck Artist");
+        Album album = Album.get("RankedResultsCheck Album", artist);
+        final Result[] results = new Result[resultCount];
+        // Every Result gets a distinct score, so that the expected order is unambiguous
+        final float[] scores = new float[resultCount];
+        List<Integer> ranks = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            ranks.add(i);
+        }
+        Collections.shuffle(ranks, new Random(resultCount));
+        for (int i = 0; i < resultCount; i++) {
+            Track track = Track.get("RankedResultsCheck Track " + i, album, artist);
+            results[i] = Result.get("file:///RankedResultsCheck/" + i, track, resolver);
+            scores[i] = 1f - (float) ranks.get(i) / resultCount;
+        }
+        final RankedResults rankedResults =
+                new RankedResults(RankedResults.DEFAULT_CAPACITY, null);
+
+        // As many of the best Results are being removed as there is room in reserve
+        final List<Result> removed = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            if (ranks.get(i) < RankedResults.DEFAULT_CAPACITY) {
+                removed.add(results[i]);
+            }
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int r = 0; r < REPORTER_COUNT; r++) {
+            final int reporter = r;
+            writers.add(new Thread() {
+                @Override
+                public void run() {
+                    await(start);
+                    for (int i = reporter; i < results.length; i += REPORTER_COUNT) {
+                        rankedResults.add(results[i], scores[i]);
+                    }
+                }
+            });
+        }
+        writers.add(new Thread() {
+            @Override
+            public void run() {
+                await(start);
+                for (Result result : removed) {
+                    // Spins until the reporter has added the Result
+                    while (!rankedResults.remove(result)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READER_COUNT; r++) {
+            readers.add(new Thread() {
+                @Override
+                public void run() {
+                    await(start);
+                    while (!done.get() && mFailures.isEmpty()) {
+                        checkSnapshot(rankedResults.getAll());
+                    }
+                }
+            });
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        done.set(true);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        getFailures().addAll(mFailures);
+
+        List<RankedResults.RankedResult> all = rankedResults.getAll();
+        checkSnapshot(all);
+        check(all.size() == RankedResults.DEFAULT_CAPACITY,
+                "kept " + all.size() + " instead of " + RankedResults.DEFAULT_CAPACITY);
+        for (int i = 0; i < all.size(); i++) {
+            // The best ones have been removed, so the next best ones have to move up
+            float expected = 1f - (float) (RankedResults.DEFAULT_CAPACITY + i) / resultCount;
+            check(all.get(i).getScore() == expected, "rank " + i + " has score "
+                    + all.get(i).getScore() + " instead of " + expected);
+        }
+        check(all.isEmpty() || rankedResults.first() == all.get(0).getResult(),
+                "first() isn't the best Result");
+    }
+
+    private void checkSnapshot(List<RankedResults.RankedResult> snapshot) {
+        if (snapshot.size() > RankedResults.DEFAULT_CAPACITY) {
+            mFailures.add("snapshot of " + snapshot.size() + " exceeds the capacity");
+        }
+        for (int i = 1; i < snapshot.size(); i++) {
+            if (snapshot.get(i - 1).getScore() <= snapshot.get(i).getScore()) {
+                mFailures.add("snapshot isn't sorted at " + i);
+                return;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
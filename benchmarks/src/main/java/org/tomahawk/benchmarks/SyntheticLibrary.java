@@ -0,0 +1,110 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.tomahawk.libtomahawk.database.CollectionDb;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+
+import java.util.Random;
+
+/**
+ * Generates libraries of made up tracks. The same size always yields the same library, so that
+ * results of different runs can be compared.
+ */
+public class SyntheticLibrary {
+
+    private static final String[] WORDS = new String[]{"the", "love", "night", "black", "blue",
+            "fire", "heart", "moon", "rain", "river", "road", "song", "star", "summer", "sun",
+            "time", "world", "dream", "light", "city", "girl", "boy", "home", "gold", "dance",
+            "wild", "young", "ghost", "stone", "sea", "sky", "wind", "ocean", "paradise", "angel",
+            "electric", "silver", "broken", "forever", "midnight", "highway", "garden", "shadow",
+            "echo", "thunder", "velvet", "crystal", "morning", "winter", "orchestra", "hotel",
+            "mountain", "memory", "motion", "island", "mirror", "satellite", "revolution",
+            "symphony", "avenue", "machine", "horizon", "fever", "kingdom"};
+
+    private static final int TRACKS_PER_ALBUM = 12;
+
+    private static final int ALBUMS_PER_ARTIST = 5;
+
+    /**
+     * @return the given number of tracks. Every artist has {@link #ALBUMS_PER_ARTIST} albums
+     * with {@link #TRACKS_PER_ALBUM} tracks each.
+     */
+    public static ScriptResolverTrack[] tracks(int size) {
+        Random random = new Random(size);
+        ScriptResolverTrack[] tracks = new ScriptResolverTrack[size];
+        String artist = null;
+        String album = null;
+        for (int i = 0; i < size; i++) {
+            if (i % (TRACKS_PER_ALBUM * ALBUMS_PER_ARTIST) == 0) {
+                artist = words(random, 1 + random.nextInt(3));
+            }
+            if (i % TRACKS_PER_ALBUM == 0) {
+                album = words(random, 1 + random.nextInt(4));
+            }
+            ScriptResolverTrack track = new ScriptResolverTrack();
+            track.track = words(random, 1 + random.nextInt(5));
+            track.album = album;
+            track.artist = artist;
+            track.albumArtist = artist;
+            track.albumPos = i % TRACKS_PER_ALBUM + 1;
+            track.duration = 120 + random.nextInt(300);
+            track.url = "file:///sdcard/Music/" + i + ".mp3";
+            track.lastModified = 1400000000000L + random.nextInt(1000000000);
+            tracks[i] = track;
+        }
+        return tracks;
+    }
+
+    /**
+     * @return a {@link CollectionDb} that contains the tracks of the library of the given size.
+     * The database is being kept, so that it only has to be filled once.
+     */
+    public static CollectionDb collectionDb(int size) {
+        CollectionDb db = new CollectionDb(TomahawkApp.getContext(), "benchmark_" + size);
+        if (db.tracksCurrentRevision() < 0) {
+            db.mergeTracks(tracks(size));
+        }
+        return db;
+    }
+
+    /**
+     * @return the given String with one character replaced, like a typo would do
+     */
+    public static String typo(Random random, String string) {
+        if (string.isEmpty()) {
+            return string;
+        }
+        char[] chars = string.toCharArray();
+        chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.benchmarks.SyntheticLibrary;
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds cache keys and looks up cached objects of a library. Lives in the package of {@link
+ * Cacheable}, so that it can call {@link Cacheable#getCacheKey(Object, Object, Object)}.
+ *
+ * Looking up a cached object shouldn't allocate anything, see the gc.alloc.rate.norm of
+ * trackGetRecentHit. The other *GetHit benchmarks cycle through more objects than the LRU part of
+ * the cache holds, so every hit has to re-insert its object there.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheableBenchmark {
+
+    @Param({"10000", "50000", "200000"})
+    public int mLibrarySize;
+
+    private ScriptResolverTrack[] mTracks;
+
+    // Keeps every cached object alive, so that all lookups are hits
+    private Track[] mCachedTracks;
+
+    private Query[] mCachedQueries;
+
+    private long mCounter;
+
+    // Fewer than the LRU part of the Track cache holds
+    private static final int RECENT_TRACK_COUNT = 1000;
+
+    @Setup
+    public void setUp() {
+        mTracks = SyntheticLibrary.tracks(mLibrarySize);
+        mCachedTracks = new Track[mTracks.length];
+        mCachedQueries = new Query[mTracks.length];
+        for (int i = 0; i < mTracks.length; i++) {
+            Artist artist = Artist.get(mTracks[i].artist);
+            Album album = Album.get(mTracks[i].album, artist);
+            mCachedTracks[i] = Track.get(mTracks[i].track, album, artist);
+            mCachedQueries[i] = Query.get(mTracks[i].track, mTracks[i].album,
+                    mTracks[i].artist, false);
+        }
+    }
+
+    @Benchmark
+    public String getCacheKey() {
+        ScriptResolverTrack track = mTracks[(int) (mCounter++ % mTracks.length)];
+        return Cacheable.getCacheKey(track.track, track.album, track.artist);
+    }
+
+    @Benchmark
+    public CharSequence getLookupKey() {
+        ScriptResolverTrack track = mTracks[(int) (mCounter++ % mTracks.length)];
+        return Cacheable.getLookupKey(track.track, track.album, track.artist);
+    }
+
+    @Benchmark
+    public Track trackGetHit() {
+        Track track = mCachedTracks[(int) (mCounter++ % mCachedTracks.length)];
+        return Track.get(track.getName(), track.getAlbum(), track.getArtist());
+    }
+
+    @Benchmark
+    public Track trackGetRecentHit() {
+        Track track = mCachedTracks[(int) (mCounter++ % RECENT_TRACK_COUNT)];
+        return Track.get(track.getName(), track.getAlbum(), track.getArtist());
+    }
+
+    @Benchmark
+    public Query queryGetHit() {
+        ScriptResolverTrack track = mTracks[(int) (mCounter++ % mTracks.length)];
+        return Query.get(track.track, track.album, track.artist, false);
+    }
+}
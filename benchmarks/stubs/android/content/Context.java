@@ -0,0 +1,48 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.content;
+
+import android.content.res.Resources;
+
+import java.io.File;
+
+/**
+ * Stub of Android's Context. Databases and files are being created in the directory given by the
+ * system property "tomahawk.benchmarks.dir" or in the temp directory.
+ */
+public class Context {
+
+    private final Resources mResources = new Resources();
+
+    public Resources getResources() {
+        return mResources;
+    }
+
+    public File getDatabasePath(String name) {
+        return new File(getDir(), name);
+    }
+
+    public File getFilesDir() {
+        return getDir();
+    }
+
+    private static File getDir() {
+        return new File(System.getProperty("tomahawk.benchmarks.dir",
+                System.getProperty("java.io.tmpdir")));
+    }
+}
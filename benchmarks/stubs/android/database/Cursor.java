@@ -0,0 +1,74 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * Stub of Android's Cursor interface with the methods that are being used by the app
+ */
+public interface Cursor extends Closeable {
+
+    int getCount();
+
+    int getPosition();
+
+    boolean move(int offset);
+
+    boolean moveToPosition(int position);
+
+    boolean moveToFirst();
+
+    boolean moveToLast();
+
+    boolean moveToNext();
+
+    boolean moveToPrevious();
+
+    boolean isFirst();
+
+    boolean isLast();
+
+    boolean isBeforeFirst();
+
+    boolean isAfterLast();
+
+    int getColumnIndex(String columnName);
+
+    String getColumnName(int columnIndex);
+
+    String[] getColumnNames();
+
+    int getColumnCount();
+
+    String getString(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    float getFloat(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    boolean isNull(int columnIndex);
+
+    void close();
+
+    boolean isClosed();
+}
@@ -0,0 +1,225 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stub of Android's MatrixCursor. Values are being converted between types the way SQLite's
+ * CursorWindow does it.
+ */
+public class MatrixCursor implements Cursor {
+
+    private final String[] mColumnNames;
+
+    private final List<Object[]> mRows;
+
+    private int mPosition = -1;
+
+    private boolean mClosed;
+
+    public MatrixCursor(String[] columnNames, int initialCapacity) {
+        mColumnNames = columnNames;
+        mRows = new ArrayList<>(initialCapacity);
+    }
+
+    public MatrixCursor(String[] columnNames) {
+        this(columnNames, 16);
+    }
+
+    public void addRow(Object[] columnValues) {
+        if (columnValues.length != mColumnNames.length) {
+            throw new IllegalArgumentException("columnNames.length = " + mColumnNames.length
+                    + ", columnValues.length = " + columnValues.length);
+        }
+        mRows.add(Arrays.copyOf(columnValues, columnValues.length));
+    }
+
+    @Override
+    public int getCount() {
+        return mRows.size();
+    }
+
+    @Override
+    public int getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(mPosition + offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        int count = getCount();
+        if (position >= count) {
+            mPosition = count;
+            return false;
+        }
+        if (position < 0) {
+            mPosition = -1;
+            return false;
+        }
+        mPosition = position;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(getCount() - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(mPosition + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(mPosition - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return mPosition == 0 && getCount() != 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        int count = getCount();
+        return mPosition == count - 1 && count != 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return getCount() == 0 || mPosition == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return getCount() == 0 || mPosition == getCount();
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        int periodIndex = columnName.lastIndexOf('.');
+        if (periodIndex != -1) {
+            columnName = columnName.substring(periodIndex + 1);
+        }
+        for (int i = 0; i < mColumnNames.length; i++) {
+            if (mColumnNames[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return mColumnNames[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return mColumnNames.length;
+    }
+
+    private Object get(int columnIndex) {
+        if (mClosed) {
+            throw new IllegalStateException("Cursor has been closed");
+        }
+        if (mPosition < 0 || mPosition >= getCount()) {
+            throw new IndexOutOfBoundsException("Position " + mPosition + " is out of bounds");
+        }
+        return mRows.get(mPosition)[columnIndex];
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = get(columnIndex);
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return get(columnIndex) == null;
+    }
+
+    @Override
+    public void close() {
+        mClosed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mClosed;
+    }
+}
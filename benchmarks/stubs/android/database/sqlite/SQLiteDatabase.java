@@ -0,0 +1,318 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Stub of Android's SQLiteDatabase, backed by a sqlite-jdbc connection. Every Cursor is being
+ * filled completely right away, like a CursorWindow that is big enough for all rows.
+ */
+public class SQLiteDatabase {
+
+    public interface CursorFactory {
+
+    }
+
+    /**
+     * Not part of the Android API. Is being notified about every statement before it is being
+     * compiled, so that checks can inspect the SQL the app actually runs.
+     */
+    public interface SqlListener {
+
+        void onSql(String sql);
+    }
+
+    private final Connection mConnection;
+
+    private int mTransactionDepth;
+
+    private boolean mTransactionSuccessful = true;
+
+    private boolean mCurrentTransactionSuccessful;
+
+    private SqlListener mSqlListener;
+
+    SQLiteDatabase(String path) {
+        try {
+            mConnection = DriverManager.getConnection(
+                    "jdbc:sqlite:" + (path != null ? path : ":memory:"));
+        } catch (SQLException e) {
+            throw new SQLiteException("Couldn't open database " + path, e);
+        }
+    }
+
+    /**
+     * Not part of the Android API. See {@link SqlListener}.
+     */
+    public synchronized void setSqlListener(SqlListener sqlListener) {
+        mSqlListener = sqlListener;
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        if (mSqlListener != null) {
+            mSqlListener.onSql(sql);
+        }
+        return mConnection.prepareStatement(sql);
+    }
+
+    synchronized long lastInsertRowId() throws SQLException {
+        Statement statement = mConnection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery("SELECT last_insert_rowid()");
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        } finally {
+            statement.close();
+        }
+    }
+
+    public synchronized void execSQL(String sql) {
+        execSQL(sql, new Object[0]);
+    }
+
+    public synchronized void execSQL(String sql, Object[] bindArgs) {
+        try {
+            PreparedStatement statement = prepare(sql);
+            try {
+                for (int i = 0; i < bindArgs.length; i++) {
+                    statement.setObject(i + 1, bindArgs[i]);
+                }
+                statement.execute();
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public synchronized Cursor rawQuery(String sql, String[] selectionArgs) {
+        try {
+            PreparedStatement statement = prepare(sql);
+            try {
+                if (selectionArgs != null) {
+                    for (int i = 0; i < selectionArgs.length; i++) {
+                        statement.setString(i + 1, selectionArgs[i]);
+                    }
+                }
+                ResultSet resultSet = statement.executeQuery();
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                String[] columnNames = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columnNames.length; i++) {
+                    columnNames[i] = metaData.getColumnLabel(i + 1);
+                }
+                MatrixCursor cursor = new MatrixCursor(columnNames);
+                while (resultSet.next()) {
+                    Object[] row = new Object[columnNames.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    cursor.addRow(row);
+                }
+                return cursor;
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+            String groupBy, String having, String orderBy) {
+        return query(table, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+            String groupBy, String having, String orderBy, String limit) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (columns != null) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(columns[i]);
+            }
+        } else {
+            sql.append("*");
+        }
+        sql.append(" FROM ").append(table);
+        if (selection != null) {
+            sql.append(" WHERE ").append(selection);
+        }
+        if (groupBy != null) {
+            sql.append(" GROUP BY ").append(groupBy);
+        }
+        if (having != null) {
+            sql.append(" HAVING ").append(having);
+        }
+        if (orderBy != null) {
+            sql.append(" ORDER BY ").append(orderBy);
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        return rawQuery(sql.toString(), selectionArgs);
+    }
+
+    /**
+     * @return the row id of the inserted row or -1, if no row has been inserted
+     */
+    public synchronized long insert(String table, String nullColumnHack, ContentValues values) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        StringBuilder placeholders = new StringBuilder();
+        Object[] bindArgs = new Object[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            if (i > 0) {
+                sql.append(", ");
+                placeholders.append(", ");
+            }
+            sql.append(entry.getKey());
+            placeholders.append("?");
+            bindArgs[i++] = entry.getValue();
+        }
+        sql.append(") VALUES (").append(placeholders).append(")");
+        try {
+            PreparedStatement statement = prepare(sql.toString());
+            try {
+                for (i = 0; i < bindArgs.length; i++) {
+                    statement.setObject(i + 1, bindArgs[i]);
+                }
+                return statement.executeUpdate() > 0 ? lastInsertRowId() : -1;
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    public synchronized int delete(String table, String whereClause, String[] whereArgs) {
+        String sql = "DELETE FROM " + table + (whereClause != null ? " WHERE " + whereClause : "");
+        try {
+            PreparedStatement statement = prepare(sql);
+            try {
+                if (whereArgs != null) {
+                    for (int i = 0; i < whereArgs.length; i++) {
+                        statement.setString(i + 1, whereArgs[i]);
+                    }
+                }
+                return statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public synchronized SQLiteStatement compileStatement(String sql) {
+        try {
+            return new SQLiteStatement(this, prepare(sql));
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public synchronized void beginTransaction() {
+        try {
+            if (mTransactionDepth == 0) {
+                mConnection.setAutoCommit(false);
+                mTransactionSuccessful = true;
+            }
+            mTransactionDepth++;
+            mCurrentTransactionSuccessful = false;
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public synchronized void setTransactionSuccessful() {
+        mCurrentTransactionSuccessful = true;
+    }
+
+    public synchronized void endTransaction() {
+        try {
+            mTransactionSuccessful &= mCurrentTransactionSuccessful;
+            mCurrentTransactionSuccessful = true;
+            if (--mTransactionDepth == 0) {
+                if (mTransactionSuccessful) {
+                    mConnection.commit();
+                } else {
+                    mConnection.rollback();
+                }
+                mConnection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public synchronized boolean inTransaction() {
+        return mTransactionDepth > 0;
+    }
+
+    public synchronized boolean enableWriteAheadLogging() {
+        execSQL("PRAGMA journal_mode=WAL");
+        return true;
+    }
+
+    public void setMaxSqlCacheSize(int cacheSize) {
+    }
+
+    public synchronized int getVersion() {
+        Cursor cursor = rawQuery("PRAGMA user_version", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public synchronized void setVersion(int version) {
+        execSQL("PRAGMA user_version = " + version);
+    }
+
+    public synchronized boolean isOpen() {
+        try {
+            return !mConnection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            mConnection.close();
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+}
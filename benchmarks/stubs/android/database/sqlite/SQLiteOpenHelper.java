@@ -0,0 +1,90 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.database.sqlite;
+
+import android.content.Context;
+
+/**
+ * Stub of Android's SQLiteOpenHelper. The database file is being created via {@link
+ * Context#getDatabasePath(String)}. A null name creates an in-memory database.
+ */
+public abstract class SQLiteOpenHelper {
+
+    private final Context mContext;
+
+    private final String mName;
+
+    private final int mNewVersion;
+
+    private SQLiteDatabase mDatabase;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory,
+            int version) {
+        mContext = context;
+        mName = name;
+        mNewVersion = version;
+    }
+
+    public String getDatabaseName() {
+        return mName;
+    }
+
+    public SQLiteDatabase getReadableDatabase() {
+        return getWritableDatabase();
+    }
+
+    public synchronized SQLiteDatabase getWritableDatabase() {
+        if (mDatabase != null && mDatabase.isOpen()) {
+            return mDatabase;
+        }
+        SQLiteDatabase db = new SQLiteDatabase(mName != null
+                ? mContext.getDatabasePath(mName).getPath() : null);
+        int version = db.getVersion();
+        if (version != mNewVersion) {
+            db.beginTransaction();
+            try {
+                if (version == 0) {
+                    onCreate(db);
+                } else {
+                    onUpgrade(db, version, mNewVersion);
+                }
+                db.setVersion(mNewVersion);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        onOpen(db);
+        mDatabase = db;
+        return db;
+    }
+
+    public synchronized void close() {
+        if (mDatabase != null && mDatabase.isOpen()) {
+            mDatabase.close();
+            mDatabase = null;
+        }
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public void onOpen(SQLiteDatabase db) {
+    }
+}
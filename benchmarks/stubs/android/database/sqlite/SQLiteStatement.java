@@ -0,0 +1,165 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Stub of Android's SQLiteStatement, backed by a JDBC PreparedStatement
+ */
+public final class SQLiteStatement {
+
+    private final SQLiteDatabase mDatabase;
+
+    private final PreparedStatement mStatement;
+
+    SQLiteStatement(SQLiteDatabase database, PreparedStatement statement) {
+        mDatabase = database;
+        mStatement = statement;
+    }
+
+    public void bindNull(int index) {
+        try {
+            mStatement.setObject(index, null);
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public void bindLong(int index, long value) {
+        try {
+            mStatement.setLong(index, value);
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public void bindDouble(int index, double value) {
+        try {
+            mStatement.setDouble(index, value);
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public void bindString(int index, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        try {
+            mStatement.setString(index, value);
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public void bindAllArgsAsStrings(String[] bindArgs) {
+        if (bindArgs != null) {
+            for (int i = bindArgs.length; i != 0; i--) {
+                bindString(i, bindArgs[i - 1]);
+            }
+        }
+    }
+
+    public void clearBindings() {
+        try {
+            mStatement.clearParameters();
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+
+    public void execute() {
+        synchronized (mDatabase) {
+            try {
+                mStatement.execute();
+            } catch (SQLException e) {
+                throw new SQLiteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    public int executeUpdateDelete() {
+        synchronized (mDatabase) {
+            try {
+                return mStatement.executeUpdate();
+            } catch (SQLException e) {
+                throw new SQLiteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the row id of the inserted row or -1, if no row has been inserted
+     */
+    public long executeInsert() {
+        synchronized (mDatabase) {
+            try {
+                return mStatement.executeUpdate() > 0 ? mDatabase.lastInsertRowId() : -1;
+            } catch (SQLException e) {
+                throw new SQLiteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    public long simpleQueryForLong() {
+        synchronized (mDatabase) {
+            try {
+                ResultSet resultSet = mStatement.executeQuery();
+                try {
+                    if (!resultSet.next()) {
+                        throw new SQLiteDoneException();
+                    }
+                    return resultSet.getLong(1);
+                } finally {
+                    resultSet.close();
+                }
+            } catch (SQLException e) {
+                throw new SQLiteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    public String simpleQueryForString() {
+        synchronized (mDatabase) {
+            try {
+                ResultSet resultSet = mStatement.executeQuery();
+                try {
+                    if (!resultSet.next()) {
+                        throw new SQLiteDoneException();
+                    }
+                    return resultSet.getString(1);
+                } finally {
+                    resultSet.close();
+                }
+            } catch (SQLException e) {
+                throw new SQLiteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            mStatement.close();
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.os;
+
+/**
+ * Stub of Android's Handler. Messages are being handled right away on the sending thread.
+ */
+public class Handler {
+
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public void handleMessage(Message msg) {
+    }
+
+    public final Message obtainMessage() {
+        return new Message();
+    }
+
+    public final boolean sendMessage(Message msg) {
+        handleMessage(msg);
+        return true;
+    }
+
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stub of Android's PreferenceManager. The default SharedPreferences are only being kept in
+ * memory.
+ */
+public class PreferenceManager {
+
+    private static final SharedPreferences sDefaultSharedPreferences = new MemoryPreferences();
+
+    public static SharedPreferences getDefaultSharedPreferences(Context context) {
+        return sDefaultSharedPreferences;
+    }
+
+    private static class MemoryPreferences implements SharedPreferences {
+
+        private final Map<String, Object> mValues = new ConcurrentHashMap<>();
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object value = mValues.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            Object value = mValues.get(key);
+            return value != null ? (Integer) value : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            Object value = mValues.get(key);
+            return value != null ? (Long) value : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            Object value = mValues.get(key);
+            return value != null ? (Float) value : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            Object value = mValues.get(key);
+            return value != null ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return mValues.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public Editor putInt(String key, int value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public Editor putLong(String key, long value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public Editor putFloat(String key, float value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    mValues.remove(key);
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    return true;
+                }
+
+                @Override
+                public void apply() {
+                }
+
+                private Editor put(String key, Object value) {
+                    if (value != null) {
+                        mValues.put(key, value);
+                    } else {
+                        mValues.remove(key);
+                    }
+                    return this;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.tomahawk_android.activities;
+
+/**
+ * Stub of the app's main Activity. Only provides the unique ids.
+ */
+public class TomahawkMainActivity {
+
+    private static long mSessionIdCounter = 0;
+
+    public static long getSessionUniqueId() {
+        return mSessionIdCounter++;
+    }
+
+    public static String getSessionUniqueStringId() {
+        return String.valueOf(getSessionUniqueId());
+    }
+
+    public static String getLifetimeUniqueStringId() {
+        return String.valueOf(System.currentTimeMillis()) + getSessionUniqueStringId();
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
+import org.tomahawk.libtomahawk.utils.VariousUtils;
+
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -32,6 +34,8 @@ public class Album extends Cacheable implements AlphaComparable, ArtistAlphaComp
 
     private final String mName;
 
+    private String mNormalizedName;
+
     private final Artist mArtist;
 
     private Image mImage;
@@ -53,7 +57,7 @@ public class Album extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * If none exists in our static {@link ConcurrentHashMap} yet, construct and add it.
      */
     public static Album get(String albumName, Artist artist) {
-        Cacheable cacheable = get(Album.class, getCacheKey(albumName, artist.getName()));
+        Cacheable cacheable = get(Album.class, getLookupKey(albumName, artist.getName()));
         return cacheable != null ? (Album) cacheable : new Album(albumName, artist);
     }
 
@@ -68,6 +72,16 @@ public class Album extends Cacheable implements AlphaComparable, ArtistAlphaComp
         return mName;
     }
 
+    /**
+     * @return this object's name, cleaned up so that it can be compared with other names
+     */
+    public String getNormalizedName() {
+        if (mNormalizedName == null) {
+            mNormalizedName = VariousUtils.cleanUpString(mName, false);
+        }
+        return mNormalizedName;
+    }
+
     /**
      * @return the name that should be displayed
      */
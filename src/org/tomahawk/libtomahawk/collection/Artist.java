@@ -17,6 +17,8 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
+import org.tomahawk.libtomahawk.utils.VariousUtils;
+
 /**
  * This class represents an {@link Artist}.
  */
@@ -26,6 +28,8 @@ public class Artist extends Cacheable implements AlphaComparable {
 
     private final String mName;
 
+    private String mNormalizedName;
+
     private ListItemString mBio;
 
     private Image mImage;
@@ -44,7 +48,7 @@ public class Artist extends Cacheable implements AlphaComparable {
      * construct and add it.
      */
     public static Artist get(String artistName) {
-        Cacheable cacheable = get(Artist.class, getCacheKey(artistName));
+        Cacheable cacheable = get(Artist.class, getLookupKey(artistName));
         return cacheable != null ? (Artist) cacheable : new Artist(artistName);
     }
 
@@ -59,6 +63,16 @@ public class Artist extends Cacheable implements AlphaComparable {
         return mName;
     }
 
+    /**
+     * @return this object's name, cleaned up so that it can be compared with other names
+     */
+    public String getNormalizedName() {
+        if (mNormalizedName == null) {
+            mNormalizedName = VariousUtils.cleanUpString(mName, false);
+        }
+        return mNormalizedName;
+    }
+
     /**
      * @return the name that should be displayed
      */
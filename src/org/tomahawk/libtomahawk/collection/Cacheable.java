@@ -17,10 +17,19 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Result;
+
 import android.util.Log;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This interface represents an item that can provide a corresponding cache key.
@@ -29,54 +38,480 @@ public abstract class Cacheable {
 
     private static final String TAG = Cacheable.class.getSimpleName();
 
-    private static final Map<Class, Map<String, Cacheable>> sCaches = new ConcurrentHashMap<>();
+    /**
+     * Every cached object is being referenced strongly. Nothing is ever being evicted.
+     */
+    public static final int POLICY_STRONG = 0;
+
+    /**
+     * Cached objects are only referenced weakly. So they are being evicted as soon as they aren't
+     * referenced anywhere else anymore.
+     */
+    public static final int POLICY_WEAK = 1;
+
+    /**
+     * The most recently used objects are being referenced strongly, all others only weakly. This
+     * way an object is never being evicted as long as it is still referenced somewhere else, so that
+     * we can never end up with two different objects for the same cache key.
+     */
+    public static final int POLICY_LRU = 2;
+
+    private static final String KEY_SEPARATOR = "\t\t";
+
+    private static final ThreadLocal<LookupKey> sLookupKey =
+            new ThreadLocal<LookupKey>() {
+                @Override
+                protected LookupKey initialValue() {
+                    return new LookupKey();
+                }
+            };
+
+    private static final Map<Class, Cache> sCaches = new ConcurrentHashMap<>();
+
+    private static final Map<Cacheable, Integer> sPinned = new IdentityHashMap<>();
+
+    static {
+        setCachePolicy(Query.class, POLICY_LRU, 2000);
+        setCachePolicy(Result.class, POLICY_LRU, 2000);
+        setCachePolicy(Track.class, POLICY_LRU, 2000);
+        setCachePolicy(Album.class, POLICY_LRU, 1000);
+        setCachePolicy(Artist.class, POLICY_LRU, 1000);
+        setCachePolicy(Image.class, POLICY_LRU, 500);
+        setCachePolicy(PlaylistEntry.class, POLICY_WEAK, 0);
+    }
+
+    /**
+     * The hit, miss and size counters of the cache of one class
+     */
+    public static class Stats {
+
+        public Class mClass;
+
+        public int mPolicy;
+
+        public long mHits;
+
+        public long mMisses;
+
+        public int mSize;
+
+        @Override
+        public String toString() {
+            return mClass.getSimpleName() + " - policy: " + mPolicy + ", hits: " + mHits
+                    + ", misses: " + mMisses + ", size: " + mSize;
+        }
+    }
+
+    /**
+     * The key of a cache entry. Its hash code and equality only depend on its characters, so that
+     * the {@link LookupKey} that a lookup is being done with matches the stored key.
+     */
+    private static class Key {
+
+        CharSequence mChars;
+
+        int mHash;
+
+        private Key() {
+        }
+
+        public Key(String chars) {
+            mChars = chars;
+            mHash = chars.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (mHash != other.mHash) {
+                return false;
+            }
+            CharSequence chars = mChars;
+            CharSequence otherChars = other.mChars;
+            int length = chars.length();
+            if (length != otherChars.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars.charAt(i) != otherChars.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return mChars.toString();
+        }
+    }
+
+    /**
+     * A {@link Key} that every thread reuses for its lookups, together with the StringBuilder
+     * that the looked up keys are being built in. Must never be stored in a map.
+     */
+    private static class LookupKey extends Key {
+
+        private final StringBuilder mBuilder = new StringBuilder(128);
+
+        private LookupKey set(CharSequence chars) {
+            mChars = chars;
+            if (chars instanceof String) {
+                mHash = chars.hashCode();
+            } else {
+                // Same as String.hashCode(), so that it matches the hash of the stored Key
+                int hash = 0;
+                for (int i = 0; i < chars.length(); i++) {
+                    hash = 31 * hash + chars.charAt(i);
+                }
+                mHash = hash;
+            }
+            return this;
+        }
+    }
+
+    private static class KeyedReference extends WeakReference<Cacheable> {
+
+        private final Key mKey;
+
+        public KeyedReference(Key key, Cacheable cacheable, ReferenceQueue<Cacheable> queue) {
+            super(cacheable, queue);
+            mKey = key;
+        }
+    }
+
+    private static class Cache {
+
+        private final int mPolicy;
+
+        private final ConcurrentHashMap<Key, Cacheable> mStrongEntries
+                = new ConcurrentHashMap<>();
+
+        private final ConcurrentHashMap<Key, KeyedReference> mWeakEntries
+                = new ConcurrentHashMap<>();
+
+        private final ReferenceQueue<Cacheable> mReferenceQueue = new ReferenceQueue<>();
+
+        private final LinkedHashMap<Key, Cacheable> mRecentEntries;
+
+        private final AtomicLong mHits = new AtomicLong();
+
+        private final AtomicLong mMisses = new AtomicLong();
+
+        public Cache(int policy, final int maxSize) {
+            mPolicy = policy;
+            if (policy == POLICY_LRU) {
+                mRecentEntries = new LinkedHashMap<Key, Cacheable>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, Cacheable> eldest) {
+                        return size() > maxSize;
+                    }
+                };
+            } else {
+                mRecentEntries = null;
+            }
+        }
+
+        public void put(Key key, Cacheable cacheable) {
+            if (mPolicy == POLICY_STRONG) {
+                mStrongEntries.put(key, cacheable);
+            } else {
+                removeClearedEntries();
+                mWeakEntries.put(key, new KeyedReference(key, cacheable, mReferenceQueue));
+                touch(key, cacheable);
+            }
+        }
+
+        /**
+         * @param key the key to look up. Can be a {@link LookupKey}, because it is never being
+         *            stored.
+         */
+        public Cacheable get(Key key) {
+            Cacheable cacheable;
+            if (mPolicy == POLICY_STRONG) {
+                cacheable = mStrongEntries.get(key);
+            } else {
+                removeClearedEntries();
+                KeyedReference reference = mWeakEntries.get(key);
+                cacheable = reference != null ? reference.get() : null;
+                if (cacheable != null) {
+                    // The stored key has to be used here, the given one might be a LookupKey
+                    touch(reference.mKey, cacheable);
+                }
+            }
+            if (cacheable != null) {
+                mHits.incrementAndGet();
+            } else {
+                mMisses.incrementAndGet();
+            }
+            return cacheable;
+        }
+
+        public int size() {
+            if (mPolicy == POLICY_STRONG) {
+                return mStrongEntries.size();
+            }
+            removeClearedEntries();
+            return mWeakEntries.size();
+        }
+
+        public void copyTo(Cache cache) {
+            for (Map.Entry<Key, Cacheable> entry : mStrongEntries.entrySet()) {
+                cache.put(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Key, KeyedReference> entry : mWeakEntries.entrySet()) {
+                Cacheable cacheable = entry.getValue().get();
+                if (cacheable != null) {
+                    cache.put(entry.getKey(), cacheable);
+                }
+            }
+        }
+
+        private void touch(Key key, Cacheable cacheable) {
+            if (mRecentEntries != null) {
+                synchronized (mRecentEntries) {
+                    mRecentEntries.put(key, cacheable);
+                }
+            }
+        }
+
+        private void removeClearedEntries() {
+            Reference<? extends Cacheable> reference;
+            while ((reference = mReferenceQueue.poll()) != null) {
+                KeyedReference keyedReference = (KeyedReference) reference;
+                // Only remove the entry if it hasn't been replaced in the meantime
+                mWeakEntries.remove(keyedReference.mKey, keyedReference);
+            }
+        }
+    }
 
     private String mCacheKey;
 
     protected Cacheable(Class clss, String cacheKey) {
         mCacheKey = cacheKey;
 
-        getCache(clss).put(cacheKey, this);
+        getCache(clss).put(new Key(cacheKey), this);
     }
 
     protected static void put(Class clss, String cacheKey, Cacheable cacheable) {
-        getCache(clss).put(cacheKey, cacheable);
+        getCache(clss).put(new Key(cacheKey), cacheable);
     }
 
     public String getCacheKey() {
         return mCacheKey;
     }
 
-    private static Map<String, Cacheable> getCache(Class clss) {
-        Map<String, Cacheable> cache = sCaches.get(clss);
+    private static Cache getCache(Class clss) {
+        Cache cache = sCaches.get(clss);
         if (cache == null) {
-            cache = new ConcurrentHashMap<>();
-            sCaches.put(clss, cache);
+            synchronized (sCaches) {
+                cache = sCaches.get(clss);
+                if (cache == null) {
+                    cache = new Cache(POLICY_STRONG, 0);
+                    sCaches.put(clss, cache);
+                }
+            }
         }
         return cache;
     }
 
-    protected static Cacheable get(Class clss, String cacheKey) {
-        return getCache(clss).get(cacheKey);
+    /**
+     * @param cacheKey the cache key, either a String or the result of one of the getLookupKey
+     *                 methods. Doesn't allocate anything.
+     */
+    protected static Cacheable get(Class clss, CharSequence cacheKey) {
+        return getCache(clss).get(sLookupKey.get().set(cacheKey));
+    }
+
+    /**
+     * Set the policy by which the cached objects of the given class are being kept. Objects that
+     * have already been cached are being moved over to the new cache.
+     *
+     * @param policy  one of {@link #POLICY_STRONG}, {@link #POLICY_WEAK} or {@link #POLICY_LRU}
+     * @param maxSize the number of recently used objects that should be referenced strongly. Only
+     *                used with {@link #POLICY_LRU}
+     */
+    public static void setCachePolicy(Class clss, int policy, int maxSize) {
+        synchronized (sCaches) {
+            Cache cache = new Cache(policy, maxSize);
+            Cache oldCache = sCaches.get(clss);
+            if (oldCache != null) {
+                oldCache.copyTo(cache);
+            }
+            sCaches.put(clss, cache);
+        }
+    }
+
+    /**
+     * Pin the given {@link Cacheable}, so that it won't be evicted from its cache until {@link
+     * #unpin(Cacheable)} has been called as often as this method.
+     */
+    public static void pin(Cacheable cacheable) {
+        if (cacheable != null) {
+            synchronized (sPinned) {
+                Integer count = sPinned.get(cacheable);
+                sPinned.put(cacheable, count != null ? count + 1 : 1);
+            }
+        }
+    }
+
+    /**
+     * Release a pin previously set by {@link #pin(Cacheable)}
+     */
+    public static void unpin(Cacheable cacheable) {
+        if (cacheable != null) {
+            synchronized (sPinned) {
+                Integer count = sPinned.get(cacheable);
+                if (count != null) {
+                    if (count > 1) {
+                        sPinned.put(cacheable, count - 1);
+                    } else {
+                        sPinned.remove(cacheable);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the hit, miss and size counters of the cache of the given class
+     */
+    public static Stats getStats(Class clss) {
+        Cache cache = getCache(clss);
+        Stats stats = new Stats();
+        stats.mClass = clss;
+        stats.mPolicy = cache.mPolicy;
+        stats.mHits = cache.mHits.get();
+        stats.mMisses = cache.mMisses.get();
+        stats.mSize = cache.size();
+        return stats;
+    }
+
+    /**
+     * Log the {@link Stats} of every cache
+     */
+    public static void logStats() {
+        for (Class clss : sCaches.keySet()) {
+            Log.d(TAG, "logStats - " + getStats(clss));
+        }
+    }
+
+    /**
+     * @return the cache key for the given object. Doesn't allocate anything if the object is a
+     * String.
+     */
+    protected static String getCacheKey(Object o) {
+        if (o instanceof String) {
+            return (String) o;
+        }
+        return getLookupKey(o).toString();
+    }
+
+    protected static String getCacheKey(Object o1, Object o2) {
+        return getLookupKey(o1, o2).toString();
+    }
+
+    protected static String getCacheKey(Object o1, Object o2, Object o3) {
+        return getLookupKey(o1, o2, o3).toString();
+    }
+
+    protected static String getCacheKey(Object o1, Object o2, Object o3, Object o4) {
+        return getLookupKey(o1, o2, o3, o4).toString();
+    }
+
+    protected static String getCacheKey(Object o1, Object o2, Object o3, Object o4, Object o5) {
+        return getLookupKey(o1, o2, o3, o4, o5).toString();
     }
 
     protected static String getCacheKey(Object... objects) {
-        String result = "";
+        StringBuilder sb = obtainKeyBuilder();
         for (int i = 0; i < objects.length; i++) {
-            Object o = objects[i];
-            if (o != null) {
-                if (i > 0) {
-                    result += "\t\t";
-                }
-                if (o instanceof String) {
-                    result += ((String) o);
-                } else if (o instanceof Boolean) {
-                    result += ((Boolean) o) ? "1" : "0";
-                } else {
-                    Log.e(TAG, "getCacheKey - given Object type is not supported!");
-                }
+            appendKeyPart(sb, i, objects[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the cache key for the given object to look it up with {@link #get(Class,
+     * CharSequence)}. It is being built in this thread's StringBuilder without allocating anything
+     * and is only valid until the next key is being built on this thread.
+     */
+    protected static CharSequence getLookupKey(Object o) {
+        if (o instanceof String) {
+            return (String) o;
+        }
+        return appendKeyPart(obtainKeyBuilder(), 0, o);
+    }
+
+    protected static CharSequence getLookupKey(Object o1, Object o2) {
+        StringBuilder sb = obtainKeyBuilder();
+        appendKeyPart(sb, 0, o1);
+        appendKeyPart(sb, 1, o2);
+        return sb;
+    }
+
+    protected static CharSequence getLookupKey(Object o1, Object o2, Object o3) {
+        StringBuilder sb = obtainKeyBuilder();
+        appendKeyPart(sb, 0, o1);
+        appendKeyPart(sb, 1, o2);
+        appendKeyPart(sb, 2, o3);
+        return sb;
+    }
+
+    protected static CharSequence getLookupKey(Object o1, Object o2, Object o3, Object o4) {
+        StringBuilder sb = obtainKeyBuilder();
+        appendKeyPart(sb, 0, o1);
+        appendKeyPart(sb, 1, o2);
+        appendKeyPart(sb, 2, o3);
+        appendKeyPart(sb, 3, o4);
+        return sb;
+    }
+
+    protected static CharSequence getLookupKey(Object o1, Object o2, Object o3, Object o4,
+            Object o5) {
+        StringBuilder sb = obtainKeyBuilder();
+        appendKeyPart(sb, 0, o1);
+        appendKeyPart(sb, 1, o2);
+        appendKeyPart(sb, 2, o3);
+        appendKeyPart(sb, 3, o4);
+        appendKeyPart(sb, 4, o5);
+        return sb;
+    }
+
+    /**
+     * @return this thread's StringBuilder to build cache keys with, so that we don't have to
+     * allocate a new one every time
+     */
+    private static StringBuilder obtainKeyBuilder() {
+        StringBuilder sb = sLookupKey.get().mBuilder;
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static StringBuilder appendKeyPart(StringBuilder sb, int index, Object o) {
+        if (o != null) {
+            if (index > 0) {
+                sb.append(KEY_SEPARATOR);
+            }
+            if (o instanceof String) {
+                sb.append((String) o);
+            } else if (o instanceof Boolean) {
+                sb.append(((Boolean) o) ? "1" : "0");
+            } else {
+                Log.e(TAG, "getCacheKey - given Object type is not supported!");
             }
         }
-        return result;
+        return sb;
     }
-}
\ No newline at end of file
+}
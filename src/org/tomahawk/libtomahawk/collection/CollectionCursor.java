@@ -17,6 +17,8 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
+import org.tomahawk.libtomahawk.database.CollectionDb;
+import org.tomahawk.libtomahawk.database.DatabaseHelper;
 import org.tomahawk.libtomahawk.resolver.Query;
 import org.tomahawk.libtomahawk.resolver.Resolver;
 import org.tomahawk.libtomahawk.resolver.Result;
@@ -25,31 +27,53 @@ import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
 import android.database.Cursor;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.SparseArray;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 public class CollectionCursor<T> {
 
     private final static String TAG = CollectionCursor.class.getSimpleName();
 
+    /**
+     * Only the items within a window of this size are being kept after they have been
+     * materialized. Items that are close to each other never evict one another.
+     */
+    private static final int CACHE_WINDOW_SIZE = 256;
+
     private int mSortMode;
 
     private List<T> mMergedItems;
 
-    private SparseArray<Index> mIndex;
+    // The position of every item of the merged index, either in the cursor or in mMergedItems
+    private int[] mIndexPositions;
 
-    private static class Index {
+    // Contains every position of the merged index whose item is one of the mMergedItems
+    private BitSet mIndexFromMergedItems;
 
-        int index;
+    private int mIndexSize;
 
-        boolean fromMergedItems;
-    }
+    private final Object[] mCursorCache = new Object[CACHE_WINDOW_SIZE];
 
-    private SparseArray<T> mCursorCache = new SparseArray<>();
+    private final int[] mCursorCacheLocations = new int[CACHE_WINDOW_SIZE];
 
     private Cursor mCursor;
 
+    private CollectionDb.PagedQuery mPagedQuery;
+
+    // The page of mPagedQuery that has been read last and the one that has been read before it,
+    // so that scrolling back and forth across a page border doesn't read the same pages again
+    private Cursor mPage;
+
+    private int mPageNumber = -1;
+
+    private Cursor mPreviousPage;
+
+    private int mPreviousPageNumber = -1;
+
+    private boolean mClosed;
+
     private int mCursorCount;
 
     private List<T> mItems;
@@ -60,10 +84,33 @@ public class CollectionCursor<T> {
 
     private Playlist mPlaylist;
 
+    private boolean mIsStoredPlaylist;
+
+    // Used to derive the ids of PlaylistEntries, so that materializing the same row again yields
+    // the same PlaylistEntry
+    private final String mEntryIdPrefix = TomahawkMainActivity.getLifetimeUniqueStringId();
+
     public CollectionCursor(Cursor cursor, Class<T> clss, Resolver resolver, Playlist playlist) {
+        this(clss, resolver, playlist);
         mCursor = cursor;
         mCursorCount = cursor.getCount();
+    }
+
+    /**
+     * Construct a {@link CollectionCursor} that reads the rows of the given {@link
+     * CollectionDb.PagedQuery} page by page. Only the two pages that have been read last are being
+     * kept.
+     */
+    public CollectionCursor(CollectionDb.PagedQuery pagedQuery, Class<T> clss, Resolver resolver,
+            Playlist playlist) {
+        this(clss, resolver, playlist);
+        mPagedQuery = pagedQuery;
+        mCursorCount = pagedQuery.getCount();
+    }
+
+    private CollectionCursor(Class<T> clss, Resolver resolver, Playlist playlist) {
         mClass = clss;
+        Arrays.fill(mCursorCacheLocations, -1);
         if (clss == PlaylistEntry.class || clss == Result.class) {
             if (resolver != null) {
                 mResolver = resolver;
@@ -82,73 +129,149 @@ public class CollectionCursor<T> {
         }
     }
 
+    /**
+     * Construct a {@link CollectionCursor} over the rows of a {@link Playlist} that has been stored
+     * in the database. The given {@link Cursor} has to contain the columns artistname, albumname,
+     * trackname, resulthint, isfetchedviahatchet, playlistentryid and id of the tracks table in
+     * this order.
+     */
+    public CollectionCursor(Cursor cursor, Class<T> clss, Playlist playlist) {
+        if (clss != PlaylistEntry.class) {
+            throw new RuntimeException("Only CollectionCursor<PlaylistEntry> can be constructed "
+                    + "from a stored Playlist!");
+        }
+        mCursor = cursor;
+        mCursorCount = cursor.getCount();
+        mClass = clss;
+        mPlaylist = playlist;
+        mIsStoredPlaylist = true;
+        Arrays.fill(mCursorCacheLocations, -1);
+    }
+
     public CollectionCursor(List<T> items, Class<T> clss) {
         mItems = items;
         mClass = clss;
     }
 
     public void close() {
+        mClosed = true;
         if (mCursor != null) {
             mCursor.close();
         }
+        if (mPage != null) {
+            mPage.close();
+        }
+        if (mPreviousPage != null) {
+            mPreviousPage.close();
+        }
     }
 
-    public T get(int location) {
-        boolean fromMergedItems = false;
-        if (mIndex != null) {
-            Index index = mIndex.get(location);
-            location = index.index;
-            fromMergedItems = index.fromMergedItems;
+    private boolean isCursorBacked() {
+        return mCursor != null || mPagedQuery != null;
+    }
+
+    private boolean isClosed() {
+        return mClosed || mCursor != null && mCursor.isClosed();
+    }
+
+    /**
+     * @return the {@link Cursor} that has been moved to the row at the given location or null, if
+     * there is no such row
+     */
+    private Cursor moveToPosition(int location) {
+        if (isClosed()) {
+            return null;
+        } else if (mPagedQuery == null) {
+            return mCursor.moveToPosition(location) ? mCursor : null;
         }
-        if (fromMergedItems) {
-            return mMergedItems.get(location);
-        } else {
-            return rawGet(location);
+        int pageNumber = location / CollectionDb.PAGE_SIZE;
+        if (pageNumber != mPageNumber) {
+            Cursor page = mPreviousPage;
+            if (pageNumber != mPreviousPageNumber) {
+                if (page != null) {
+                    page.close();
+                }
+                page = mPagedQuery.getPage(pageNumber);
+            }
+            mPreviousPage = mPage;
+            mPreviousPageNumber = mPageNumber;
+            mPage = page;
+            mPageNumber = pageNumber;
+        }
+        return mPage.moveToPosition(location % CollectionDb.PAGE_SIZE) ? mPage : null;
+    }
+
+    public T get(int location) {
+        if (mIndexPositions != null) {
+            if (mIndexFromMergedItems.get(location)) {
+                return mMergedItems.get(mIndexPositions[location]);
+            }
+            location = mIndexPositions[location];
         }
+        return rawGet(location);
     }
 
     private T rawGet(int location) {
-        if (mCursor != null) {
-            if (mCursor.isClosed()) {
+        if (isCursorBacked()) {
+            if (isClosed()) {
                 Log.d(TAG, "rawGet - Cursor has been closed.");
                 return null;
             }
-            T cachedItem = mCursorCache.get(location);
+            int cacheSlot = location % CACHE_WINDOW_SIZE;
+            T cachedItem = null;
+            if (mCursorCacheLocations[cacheSlot] == location) {
+                cachedItem = (T) mCursorCache[cacheSlot];
+            }
             if (cachedItem == null) {
-                mCursor.moveToPosition(location);
-                if (mClass == PlaylistEntry.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
-                    Album album = Album.get(mCursor.getString(2), artist);
-                    Track track = Track.get(mCursor.getString(3), album, artist);
-                    track.setDuration(mCursor.getInt(4) * 1000);
-                    track.setAlbumPos(mCursor.getInt(7));
-                    Result result = Result.get(mCursor.getString(5), track, mResolver);
+                Cursor cursor = moveToPosition(location);
+                if (cursor == null) {
+                    Log.e(TAG, "rawGet - Couldn't move to location " + location);
+                    return null;
+                }
+                if (mIsStoredPlaylist) {
+                    Query query = Query.get(cursor.getString(2), cursor.getString(1),
+                            cursor.getString(0), cursor.getString(3), false,
+                            cursor.getInt(4) == DatabaseHelper.TRUE);
+                    String entryId = cursor.getString(5);
+                    if (entryId == null) {
+                        entryId = mPlaylist.getId() + "_" + cursor.getLong(6);
+                    }
+                    PlaylistEntry entry = PlaylistEntry.get(mPlaylist.getId(), query, entryId);
+                    cachedItem = (T) entry;
+                } else if (mClass == PlaylistEntry.class) {
+                    Artist artist = Artist.get(cursor.getString(0));
+                    Album album = Album.get(cursor.getString(2), artist);
+                    Track track = Track.get(cursor.getString(3), album, artist);
+                    track.setDuration(cursor.getInt(4) * 1000);
+                    track.setAlbumPos(cursor.getInt(7));
+                    Result result = Result.get(cursor.getString(5), track, mResolver);
                     Query query = Query.get(result, false);
                     query.addTrackResult(result, 1.0f);
                     PlaylistEntry entry = PlaylistEntry.get(mPlaylist.getId(), query,
-                            TomahawkMainActivity.getLifetimeUniqueStringId());
+                            mEntryIdPrefix + "_" + location);
                     cachedItem = (T) entry;
                 } else if (mClass == Result.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
-                    Album album = Album.get(mCursor.getString(2), artist);
-                    Track track = Track.get(mCursor.getString(3), album, artist);
-                    track.setDuration(mCursor.getInt(4) * 1000);
-                    track.setAlbumPos(mCursor.getInt(7));
-                    Result result = Result.get(mCursor.getString(5), track, mResolver);
+                    Artist artist = Artist.get(cursor.getString(0));
+                    Album album = Album.get(cursor.getString(2), artist);
+                    Track track = Track.get(cursor.getString(3), album, artist);
+                    track.setDuration(cursor.getInt(4) * 1000);
+                    track.setAlbumPos(cursor.getInt(7));
+                    Result result = Result.get(cursor.getString(5), track, mResolver);
                     cachedItem = (T) result;
                 } else if (mClass == Album.class) {
-                    Artist artist = Artist.get(mCursor.getString(1));
-                    Album album = Album.get(mCursor.getString(0), artist);
-                    String imagePath = mCursor.getString(3);
+                    Artist artist = Artist.get(cursor.getString(1));
+                    Album album = Album.get(cursor.getString(0), artist);
+                    String imagePath = cursor.getString(3);
                     if (!TextUtils.isEmpty(imagePath)) {
                         album.setImage(Image.get(imagePath, false));
                     }
                     cachedItem = (T) album;
                 } else if (mClass == Artist.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
+                    Artist artist = Artist.get(cursor.getString(0));
                     cachedItem = (T) artist;
                 }
-                mCursorCache.put(location, cachedItem);
+                mCursorCache[cacheSlot] = cachedItem;
+                mCursorCacheLocations[cacheSlot] = location;
             }
             return cachedItem;
         } else {
@@ -157,9 +280,9 @@ public class CollectionCursor<T> {
     }
 
     public int size() {
-        if (mIndex != null) {
-            return mIndex.size();
-        } else if (mCursor != null) {
+        if (mIndexPositions != null) {
+            return mIndexSize;
+        } else if (isCursorBacked()) {
             return mCursorCount;
         } else {
             return mItems.size();
@@ -174,14 +297,15 @@ public class CollectionCursor<T> {
     }
 
     private void updateIndex() {
-        mIndex = new SparseArray<>();
-        int size1 = mCursor != null ? mCursorCount : mItems.size();
+        int size1 = isCursorBacked() ? mCursorCount : mItems.size();
         int size2 = mMergedItems.size();
+        int[] indexPositions = new int[size1 + size2];
+        BitSet indexFromMergedItems = new BitSet(size1 + size2);
         int counter1 = 0;
         int counter2 = 0;
         int i = 0;
         while (counter1 < size1 || counter2 < size2) {
-            if (mCursor != null && mCursor.isClosed()) {
+            if (isCursorBacked() && isClosed()) {
                 Log.e(TAG, "updateIndex - Aborting. Cursor has been closed.");
                 return;
             }
@@ -195,39 +319,63 @@ public class CollectionCursor<T> {
                 compareResult = 1;
             }
             if (compareResult > 0) {
-                Index index = new Index();
-                index.fromMergedItems = false;
-                index.index = counter1++;
-                mIndex.put(i++, index);
+                indexPositions[i++] = counter1++;
             } else if (compareResult < 0) {
-                Index index = new Index();
-                index.fromMergedItems = true;
-                index.index = counter2++;
-                mIndex.put(i++, index);
+                indexFromMergedItems.set(i);
+                indexPositions[i++] = counter2++;
             } else {
-                if (rawGet(counter1) != mMergedItems.get(counter2)) {
-                    Index index = new Index();
-                    index.fromMergedItems = true;
-                    index.index = counter2++;
-                    mIndex.put(i++, index);
+                if (!isSameItem(counter1, mMergedItems.get(counter2))) {
+                    indexFromMergedItems.set(i);
+                    indexPositions[i++] = counter2++;
                 } else {
                     counter2++;
                 }
-                Index index = new Index();
-                index.fromMergedItems = false;
-                index.index = counter1++;
-                mIndex.put(i++, index);
+                indexPositions[i++] = counter1++;
             }
         }
+        mIndexFromMergedItems = indexFromMergedItems;
+        mIndexSize = i;
+        mIndexPositions = indexPositions;
+    }
+
+    /**
+     * @return whether or not the item at the given location is the given item. Artists and Albums
+     * are being compared by the names they are cached by, so that they don't have to be
+     * materialized.
+     */
+    private boolean isSameItem(int location, T item) {
+        if (isCursorBacked() && (mClass == Artist.class || mClass == Album.class)) {
+            Cursor cursor = moveToPosition(location);
+            if (cursor == null) {
+                return false;
+            }
+            if (mClass == Artist.class) {
+                return TextUtils.equals(nonNull(cursor.getString(0)), ((Artist) item).getName());
+            } else {
+                Album album = (Album) item;
+                return TextUtils.equals(nonNull(cursor.getString(0)), album.getName())
+                        && TextUtils.equals(nonNull(cursor.getString(1)),
+                        album.getArtist().getName());
+            }
+        }
+        return rawGet(location) == item;
+    }
+
+    private static String nonNull(String string) {
+        return string != null ? string : "";
     }
 
     public String getArtistName(int location) {
-        if (mCursor != null) {
-            mCursor.moveToPosition(location);
+        if (isCursorBacked()) {
+            Cursor cursor = moveToPosition(location);
+            if (cursor == null) {
+                Log.e(TAG, "getArtistName(int location) - Couldn't move to location " + location);
+                return null;
+            }
             if (mClass == PlaylistEntry.class || mClass == Result.class || mClass == Artist.class) {
-                return mCursor.getString(0);
+                return cursor.getString(0);
             } else if (mClass == Album.class) {
-                return mCursor.getString(1);
+                return cursor.getString(1);
             }
         } else {
             Object o = mItems.get(location);
@@ -247,29 +395,33 @@ public class CollectionCursor<T> {
     }
 
     private String getSortString(int location) {
-        if (mCursor != null) {
-            mCursor.moveToPosition(location);
+        if (isCursorBacked()) {
+            Cursor cursor = moveToPosition(location);
+            if (cursor == null) {
+                Log.e(TAG, "getSortString(int location) - Couldn't move to location " + location);
+                return null;
+            }
             if (mClass == PlaylistEntry.class || mClass == Result.class) {
                 if (mSortMode == Collection.SORT_ALPHA) {
-                    return mCursor.getString(3);
+                    return cursor.getString(3);
                 } else if (mSortMode == Collection.SORT_ARTIST_ALPHA) {
-                    return mCursor.getString(0);
+                    return cursor.getString(0);
                 } else if (mSortMode == Collection.SORT_LAST_MODIFIED) {
-                    return mCursor.getString(8);
+                    return cursor.getString(8);
                 }
             } else if (mClass == Album.class) {
                 if (mSortMode == Collection.SORT_ALPHA) {
-                    return mCursor.getString(0);
+                    return cursor.getString(0);
                 } else if (mSortMode == Collection.SORT_ARTIST_ALPHA) {
-                    return mCursor.getString(1);
+                    return cursor.getString(1);
                 } else if (mSortMode == Collection.SORT_LAST_MODIFIED) {
-                    return mCursor.getString(4);
+                    return cursor.getString(4);
                 }
             } else if (mClass == Artist.class) {
                 if (mSortMode == Collection.SORT_ALPHA) {
-                    return mCursor.getString(0);
+                    return cursor.getString(0);
                 } else if (mSortMode == Collection.SORT_LAST_MODIFIED) {
-                    return mCursor.getString(2);
+                    return cursor.getString(2);
                 }
             }
         } else {
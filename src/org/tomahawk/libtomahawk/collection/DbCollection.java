@@ -42,6 +42,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import de.greenrobot.event.EventBus;
+
 /**
  * This class represents a Collection which contains tracks/albums/artists which are being stored in
  * a local sqlite db.
@@ -61,6 +63,27 @@ public abstract class DbCollection extends Collection {
         super(resolver.getId(), resolver.getPrettyName());
 
         mResolver = resolver;
+
+        EventBus.getDefault().register(this);
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventAsync(final CollectionDb.TracksChangedEvent event) {
+        getCollectionId().done(new DoneCallback<String>() {
+            @Override
+            public void onDone(String collectionId) {
+                if (collectionId.equals(event.mCollectionId)) {
+                    if (mFuzzyIndex != null) {
+                        mFuzzyIndex.update();
+                    }
+                    // Our PagedQueries are outdated now, so everybody has to fetch them again
+                    CollectionManager.UpdatedEvent updatedEvent =
+                            new CollectionManager.UpdatedEvent();
+                    updatedEvent.mCollection = DbCollection.this;
+                    EventBus.getDefault().post(updatedEvent);
+                }
+            }
+        });
     }
 
     protected void initFuzzyIndex() {
@@ -72,6 +95,8 @@ public abstract class DbCollection extends Collection {
                     @Override
                     public void run() {
                         mFuzzyIndex = new FuzzyIndex(collectionId);
+                        // Apply all changes that have been made while we were initializing
+                        mFuzzyIndex.update();
                         for (Query query : mWaitingQueries) {
                             mWaitingQueries.remove(query);
                             resolve(query);
@@ -85,6 +110,10 @@ public abstract class DbCollection extends Collection {
         });
     }
 
+    public Resolver getResolver() {
+        return mResolver;
+    }
+
     public String getIconBackgroundPath() {
         if (mResolver instanceof ScriptResolver) {
             ScriptAccount account = ((ScriptResolver) mResolver).getScriptAccount();
@@ -125,6 +154,7 @@ public abstract class DbCollection extends Collection {
                             TomahawkRunnable.PRIORITY_IS_RESOLVING) {
                         @Override
                         public void run() {
+                            PipeLine.get().onResolvingStarted(query, mResolver.getId());
                             List<FuzzyIndex.IndexResult> indexResults =
                                     mFuzzyIndex.searchIndex(query);
                             if (indexResults.size() > 0) {
@@ -149,7 +179,7 @@ public abstract class DbCollection extends Collection {
                             }
                         }
                     };
-                    ThreadManager.get().execute(r, query);
+                    ThreadManager.get().execute(r, query, collectionId);
                 }
             }
         });
@@ -165,16 +195,18 @@ public abstract class DbCollection extends Collection {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
-                        String[] orderBy;
+                        String sortColumn;
+                        boolean descending = false;
                         switch (sortMode) {
                             case SORT_ALPHA:
-                                orderBy = new String[]{CollectionDb.TRACKS_TRACK};
+                                sortColumn = CollectionDb.TRACKS_TRACK;
                                 break;
                             case SORT_ARTIST_ALPHA:
-                                orderBy = new String[]{CollectionDb.ARTISTS_ARTIST};
+                                sortColumn = CollectionDb.ARTISTS_ARTIST;
                                 break;
                             case SORT_LAST_MODIFIED:
-                                orderBy = new String[]{CollectionDb.TRACKS_LASTMODIFIED + " DESC"};
+                                sortColumn = CollectionDb.TRACKS_LASTMODIFIED;
+                                descending = true;
                                 break;
                             default:
                                 Log.e(TAG,
@@ -187,14 +219,11 @@ public abstract class DbCollection extends Collection {
                                 collectionId + "_tracks_" + currentRevision + "_" + sortMode,
                                 false);
                         if (playlist.getCurrentRevision().isEmpty()) {
-                            Cursor cursor = db.tracks(null, orderBy);
-                            if (cursor == null) {
-                                deferred.resolve(null);
-                                return;
-                            }
+                            CollectionDb.PagedQuery pagedQuery =
+                                    db.pagedTracks(sortColumn, descending);
                             CollectionCursor<PlaylistEntry> collectionCursor
                                     = new CollectionCursor<>(
-                                    cursor, PlaylistEntry.class, mResolver, playlist);
+                                    pagedQuery, PlaylistEntry.class, mResolver, playlist);
                             playlist.setCursor(collectionCursor);
                             playlist.setFilled(true);
                             playlist.setCurrentRevision(currentRevision);
@@ -217,23 +246,25 @@ public abstract class DbCollection extends Collection {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
-                        String[] orderBy;
+                        String sortColumn;
+                        boolean descending = false;
                         switch (sortMode) {
                             case SORT_ALPHA:
-                                orderBy = new String[]{CollectionDb.ARTISTS_ARTIST};
+                                sortColumn = CollectionDb.ARTISTS_ARTIST;
                                 break;
                             case SORT_LAST_MODIFIED:
-                                orderBy = new String[]{CollectionDb.ARTISTS_LASTMODIFIED + " DESC"};
+                                sortColumn = CollectionDb.ARTISTS_LASTMODIFIED;
+                                descending = true;
                                 break;
                             default:
                                 Log.e(TAG,
                                         collectionId + " - getArtists - sortMode not supported!");
                                 return;
                         }
-                        Cursor cursor = CollectionDbManager.get().getCollectionDb(collectionId)
-                                .artists(orderBy);
+                        CollectionDb.PagedQuery pagedQuery = CollectionDbManager.get()
+                                .getCollectionDb(collectionId).artists(sortColumn, descending);
                         CollectionCursor<Artist> collectionCursor =
-                                new CollectionCursor<>(cursor, Artist.class, null, null);
+                                new CollectionCursor<>(pagedQuery, Artist.class, null, null);
                         deferred.resolve(collectionCursor);
                     }
                 }).start();
@@ -252,23 +283,25 @@ public abstract class DbCollection extends Collection {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
-                        String[] orderBy;
+                        String sortColumn;
+                        boolean descending = false;
                         switch (sortMode) {
                             case SORT_ALPHA:
-                                orderBy = new String[]{CollectionDb.ARTISTS_ARTIST};
+                                sortColumn = CollectionDb.ALBUMARTISTS_ALBUMARTIST;
                                 break;
                             case SORT_LAST_MODIFIED:
-                                orderBy = new String[]{CollectionDb.ARTISTS_LASTMODIFIED + " DESC"};
+                                sortColumn = CollectionDb.ALBUMARTISTS_LASTMODIFIED;
+                                descending = true;
                                 break;
                             default:
                                 Log.e(TAG, collectionId
                                         + " - getAlbumArtists - sortMode not supported!");
                                 return;
                         }
-                        Cursor cursor = CollectionDbManager.get().getCollectionDb(collectionId)
-                                .albumArtists(orderBy);
+                        CollectionDb.PagedQuery pagedQuery = CollectionDbManager.get()
+                                .getCollectionDb(collectionId).albumArtists(sortColumn, descending);
                         CollectionCursor<Artist> collectionCursor =
-                                new CollectionCursor<>(cursor, Artist.class, null, null);
+                                new CollectionCursor<>(pagedQuery, Artist.class, null, null);
                         deferred.resolve(collectionCursor);
                     }
                 }).start();
@@ -286,25 +319,27 @@ public abstract class DbCollection extends Collection {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
-                        String[] orderBy;
+                        String sortColumn;
+                        boolean descending = false;
                         switch (sortMode) {
                             case SORT_ALPHA:
-                                orderBy = new String[]{CollectionDb.ALBUMS_ALBUM};
+                                sortColumn = CollectionDb.ALBUMS_ALBUM;
                                 break;
                             case SORT_ARTIST_ALPHA:
-                                orderBy = new String[]{CollectionDb.ARTISTS_ARTIST};
+                                sortColumn = CollectionDb.ARTISTS_ARTIST;
                                 break;
                             case SORT_LAST_MODIFIED:
-                                orderBy = new String[]{CollectionDb.ALBUMS_LASTMODIFIED + " DESC"};
+                                sortColumn = CollectionDb.ALBUMS_LASTMODIFIED;
+                                descending = true;
                                 break;
                             default:
                                 Log.e(TAG, collectionId + " - getAlbums - sortMode not supported!");
                                 return;
                         }
-                        Cursor cursor = CollectionDbManager.get().getCollectionDb(collectionId)
-                                .albums(orderBy);
+                        CollectionDb.PagedQuery pagedQuery = CollectionDbManager.get()
+                                .getCollectionDb(collectionId).albums(sortColumn, descending);
                         CollectionCursor<Album> collectionCursor =
-                                new CollectionCursor<>(cursor, Album.class, null, null);
+                                new CollectionCursor<>(pagedQuery, Album.class, null, null);
                         deferred.resolve(collectionCursor);
                     }
                 }).start();
@@ -0,0 +1,354 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A sequence of {@link Node}s, which is stored as a treap ordered by position. Every {@link Node}
+ * knows its parent and the size of its subtree, so that getting the {@link Node} at a position,
+ * getting the position of a {@link Node}, inserting and removing all take O(log n).
+ *
+ * A {@link Node} can only be contained in one {@link IndexedSequence} at a time. This class is not
+ * thread-safe.
+ *
+ * @param <N> the type of {@link Node}s that are stored
+ */
+public class IndexedSequence<N extends IndexedSequence.Node> implements Iterable<N> {
+
+    private static final Random sRandom = new Random();
+
+    private Node mRoot;
+
+    public static class Node {
+
+        private Node mLeft;
+
+        private Node mRight;
+
+        private Node mParent;
+
+        private int mSize = 1;
+
+        private int mPriority;
+    }
+
+    public int size() {
+        return size(mRoot);
+    }
+
+    public void clear() {
+        mRoot = null;
+    }
+
+    /**
+     * @return the {@link Node} at the given position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public N get(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size());
+        }
+        Node node = mRoot;
+        while (true) {
+            int leftSize = size(node.mLeft);
+            if (position < leftSize) {
+                node = node.mLeft;
+            } else if (position == leftSize) {
+                return (N) node;
+            } else {
+                position -= leftSize + 1;
+                node = node.mRight;
+            }
+        }
+    }
+
+    /**
+     * @return the position of the given {@link Node} or -1, if it isn't contained
+     */
+    public int indexOf(N node) {
+        if (!contains(node)) {
+            return -1;
+        }
+        Node n = node;
+        int position = size(n.mLeft);
+        for (; n.mParent != null; n = n.mParent) {
+            if (n.mParent.mRight == n) {
+                position += size(n.mParent.mLeft) + 1;
+            }
+        }
+        return position;
+    }
+
+    public boolean contains(N node) {
+        if (node == null || mRoot == null) {
+            return false;
+        }
+        Node n = node;
+        while (n.mParent != null) {
+            n = n.mParent;
+        }
+        return n == mRoot;
+    }
+
+    /**
+     * Append the given {@link Node}
+     */
+    public void add(N node) {
+        add(size(), node);
+    }
+
+    /**
+     * Insert the given {@link Node} at the given position
+     *
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public void add(int position, N node) {
+        if (position < 0 || position > size()) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size());
+        }
+        Node n = node;
+        reset(n);
+        n.mPriority = sRandom.nextInt();
+        Node[] split = new Node[2];
+        split(mRoot, position, split);
+        setRoot(merge(merge(split[0], n), split[1]));
+    }
+
+    /**
+     * Append all of the given {@link Node}s. Builds a balanced tree in O(n), which is a lot faster
+     * than adding them one by one.
+     */
+    public void addAll(List<N> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        Node tree = build(nodes, 0, nodes.size() - 1);
+        heapify(tree);
+        tree.mParent = null;
+        setRoot(merge(mRoot, tree));
+    }
+
+    /**
+     * Remove the given {@link Node}
+     *
+     * @return whether or not the {@link Node} has been contained
+     */
+    public boolean remove(N node) {
+        if (!contains(node)) {
+            return false;
+        }
+        Node n = node;
+        Node parent = n.mParent;
+        Node replacement = merge(n.mLeft, n.mRight);
+        if (replacement != null) {
+            replacement.mParent = parent;
+        }
+        if (parent == null) {
+            mRoot = replacement;
+        } else if (parent.mLeft == n) {
+            parent.mLeft = replacement;
+        } else {
+            parent.mRight = replacement;
+        }
+        for (Node p = parent; p != null; p = p.mParent) {
+            update(p);
+        }
+        reset(n);
+        return true;
+    }
+
+    /**
+     * @return an {@link Iterator} over all {@link Node}s in order. Each step takes amortized O(1).
+     */
+    @Override
+    public Iterator<N> iterator() {
+        return new Iterator<N>() {
+
+            private Node mNext = leftmost(mRoot);
+
+            @Override
+            public boolean hasNext() {
+                return mNext != null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public N next() {
+                if (mNext == null) {
+                    throw new NoSuchElementException();
+                }
+                Node node = mNext;
+                if (node.mRight != null) {
+                    mNext = leftmost(node.mRight);
+                } else {
+                    Node n = node;
+                    while (n.mParent != null && n.mParent.mRight == n) {
+                        n = n.mParent;
+                    }
+                    mNext = n.mParent;
+                }
+                return (N) node;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static Node leftmost(Node node) {
+        if (node != null) {
+            while (node.mLeft != null) {
+                node = node.mLeft;
+            }
+        }
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.mSize : 0;
+    }
+
+    private static void update(Node node) {
+        node.mSize = size(node.mLeft) + size(node.mRight) + 1;
+    }
+
+    private static void reset(Node node) {
+        node.mLeft = null;
+        node.mRight = null;
+        node.mParent = null;
+        node.mSize = 1;
+    }
+
+    private static void setLeft(Node node, Node left) {
+        node.mLeft = left;
+        if (left != null) {
+            left.mParent = node;
+        }
+    }
+
+    private static void setRight(Node node, Node right) {
+        node.mRight = right;
+        if (right != null) {
+            right.mParent = node;
+        }
+    }
+
+    private void setRoot(Node root) {
+        if (root != null) {
+            root.mParent = null;
+        }
+        mRoot = root;
+    }
+
+    /**
+     * Split the given tree into the first count {@link Node}s and the rest
+     *
+     * @param result will contain the roots of both resulting trees
+     */
+    private static void split(Node node, int count, Node[] result) {
+        if (node == null) {
+            result[0] = null;
+            result[1] = null;
+            return;
+        }
+        int leftSize = size(node.mLeft);
+        if (count <= leftSize) {
+            split(node.mLeft, count, result);
+            setLeft(node, result[1]);
+            result[1] = node;
+        } else {
+            split(node.mRight, count - leftSize - 1, result);
+            setRight(node, result[0]);
+            result[0] = node;
+        }
+        update(node);
+    }
+
+    /**
+     * Merge the given trees, so that all {@link Node}s of the first tree come before the ones of
+     * the second tree
+     *
+     * @return the root of the merged tree. Its parent has to be set by the caller.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        }
+        if (first.mPriority > second.mPriority) {
+            setRight(first, merge(first.mRight, second));
+            update(first);
+            return first;
+        } else {
+            setLeft(second, merge(first, second.mLeft));
+            update(second);
+            return second;
+        }
+    }
+
+    private Node build(List<N> nodes, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node node = nodes.get(mid);
+        reset(node);
+        node.mPriority = sRandom.nextInt();
+        setLeft(node, build(nodes, from, mid - 1));
+        setRight(node, build(nodes, mid + 1, to));
+        update(node);
+        return node;
+    }
+
+    /**
+     * Move the priorities of the given balanced tree around, so that every {@link Node} has a
+     * higher priority than its children. The shape of the tree stays the same.
+     */
+    private static void heapify(Node node) {
+        if (node == null) {
+            return;
+        }
+        heapify(node.mLeft);
+        heapify(node.mRight);
+        Node n = node;
+        while (true) {
+            Node largest = n;
+            if (n.mLeft != null && n.mLeft.mPriority > largest.mPriority) {
+                largest = n.mLeft;
+            }
+            if (n.mRight != null && n.mRight.mPriority > largest.mPriority) {
+                largest = n.mRight;
+            }
+            if (largest == n) {
+                break;
+            }
+            int priority = n.mPriority;
+            n.mPriority = largest.mPriority;
+            largest.mPriority = priority;
+            n = largest;
+        }
+    }
+}
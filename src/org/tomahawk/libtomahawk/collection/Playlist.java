@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -40,15 +41,19 @@ public class Playlist extends Cacheable implements AlphaComparable {
 
     private String mName = "";
 
+    // mCursor, mAddedEntries, mCachedEntries and mIndex are only accessed while holding this
+    // Playlist's lock, since playlists are being loaded off the main thread
     private CollectionCursor<PlaylistEntry> mCursor = null;
 
     private List<PlaylistEntry> mAddedEntries = new ArrayList<>();
 
-    private Map<PlaylistEntry, Index> mCachedEntries = new HashMap<>();
+    // Only weakly references the PlaylistEntries, so that entries which have been materialized from
+    // the cursor and aren't being used anymore can be garbage collected
+    private Map<PlaylistEntry, Index> mCachedEntries = new WeakHashMap<>();
 
-    private List<Index> mIndex = new ArrayList<>();
+    private IndexedSequence<Index> mIndex = new IndexedSequence<>();
 
-    private static class Index {
+    private static class Index extends IndexedSequence.Node {
 
         protected Index(int index, boolean fromMergedItems) {
             mIndex = index;
@@ -93,7 +98,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
      * @return {@link Playlist} with the given parameters
      */
     public static Playlist get(String id, boolean isLocal) {
-        Cacheable cacheable = get(Playlist.class, getCacheKey(isLocal, id));
+        Cacheable cacheable = get(Playlist.class, getLookupKey(isLocal, id));
         return cacheable != null ? (Playlist) cacheable : new Playlist(id, isLocal);
     }
 
@@ -151,14 +156,20 @@ public class Playlist extends Cacheable implements AlphaComparable {
         return pl;
     }
 
-    public void clear() {
+    public synchronized void clear() {
         mAddedEntries.clear();
         mCachedEntries.clear();
         mIndex.clear();
         mCursor = null;
     }
 
-    public void setCursor(CollectionCursor<PlaylistEntry> cursor) {
+    public synchronized void setCursor(CollectionCursor<PlaylistEntry> cursor) {
+        if (mCursor != null && mCursor != cursor) {
+            // The cursor is only ever being read while holding this Playlist's lock, so no reader
+            // can still be using the old cursor. Entries that have already been materialized stay
+            // valid.
+            mCursor.close();
+        }
         mCursor = cursor;
         initIndex();
     }
@@ -167,9 +178,11 @@ public class Playlist extends Cacheable implements AlphaComparable {
         mAddedEntries.clear();
         mCachedEntries.clear();
         mIndex.clear();
+        List<Index> indexes = new ArrayList<>(mCursor.size());
         for (int i = 0; i < mCursor.size(); i++) {
-            mIndex.add(new Index(i, false));
+            indexes.add(new Index(i, false));
         }
+        mIndex.addAll(indexes);
     }
 
     /**
@@ -208,7 +221,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
         mTopArtistNames = topArtistNames;
     }
 
-    public void updateTopArtistNames() {
+    public synchronized void updateTopArtistNames() {
         final HashMap<String, Integer> countMap = new HashMap<>();
         for (int i = 0; i < size(); i++) {
             String artistName = getArtistName(i);
@@ -253,11 +266,11 @@ public class Playlist extends Cacheable implements AlphaComparable {
     /**
      * Set this {@link Playlist}'s {@link Query}s
      */
-    public void setEntries(List<PlaylistEntry> entries) {
+    public synchronized void setEntries(List<PlaylistEntry> entries) {
         mCursor = new CollectionCursor<>(entries, PlaylistEntry.class);
     }
 
-    public PlaylistEntry getEntry(Index index) {
+    public synchronized PlaylistEntry getEntry(Index index) {
         PlaylistEntry entry;
         if (index.mFromMergedItems) {
             entry = mAddedEntries.get(index.mIndex);
@@ -279,7 +292,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
     /**
      * Return the current count of entries in the {@link Playlist}
      */
-    public int size() {
+    public synchronized int size() {
         return mIndex.size();
     }
 
@@ -287,7 +300,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
      * Return all PlaylistEntries in the {@link Playlist}. This is a very costly operation and
      * should only be done if absolutely necessary. Consider using {@link #getEntryAtPos(int)}.
      */
-    public List<PlaylistEntry> getEntries() {
+    public synchronized List<PlaylistEntry> getEntries() {
         List<PlaylistEntry> entries = new ArrayList<>();
         for (Index index : mIndex) {
             PlaylistEntry entry = getEntry(index);
@@ -304,7 +317,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
      * @param query    the {@link Query} to add
      * @return the {@link PlaylistEntry} that got created and added to this {@link Playlist}
      */
-    public PlaylistEntry addQuery(int position, Query query) {
+    public synchronized PlaylistEntry addQuery(int position, Query query) {
         PlaylistEntry entry = PlaylistEntry.get(mId, query,
                 TomahawkMainActivity.getLifetimeUniqueStringId());
         mAddedEntries.add(entry);
@@ -317,10 +330,11 @@ public class Playlist extends Cacheable implements AlphaComparable {
     /**
      * Remove the given {@link Query} from this playlist
      */
-    public boolean deleteEntry(PlaylistEntry entry) {
+    public synchronized boolean deleteEntry(PlaylistEntry entry) {
         Index index = mCachedEntries.get(entry);
         if (index == null) {
             Log.d(TAG, "deleteEntry - couldn't find cached PlaylistEntry.");
+            return false;
         }
         return mIndex.remove(index);
     }
@@ -341,7 +355,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
         mIsFilled = isFilled;
     }
 
-    public PlaylistEntry getEntryAtPos(int position) {
+    public synchronized PlaylistEntry getEntryAtPos(int position) {
         if (position < 0 || position >= mIndex.size()) {
             return null;
         }
@@ -349,7 +363,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
         return getEntry(index);
     }
 
-    public int getIndexOfEntry(PlaylistEntry entry) {
+    public synchronized int getIndexOfEntry(PlaylistEntry entry) {
         Index index = mCachedEntries.get(entry);
         return mIndex.indexOf(index);
     }
@@ -362,7 +376,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
         mUserId = userId;
     }
 
-    public boolean allFromOneArtist() {
+    public synchronized boolean allFromOneArtist() {
         if (size() < 2) {
             return true;
         }
@@ -377,7 +391,7 @@ public class Playlist extends Cacheable implements AlphaComparable {
         return true;
     }
 
-    public String getArtistName(int position) {
+    public synchronized String getArtistName(int position) {
         Index index = mIndex.get(position);
         if (index.mFromMergedItems) {
             return mAddedEntries.get(index.mIndex).getArtist().getName();
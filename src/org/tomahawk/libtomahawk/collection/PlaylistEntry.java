@@ -51,7 +51,7 @@ public class PlaylistEntry extends Cacheable {
      * @return {@link PlaylistEntry} with the given parameters
      */
     public static PlaylistEntry get(String playlistId, Query query, String entryId) {
-        Cacheable cacheable = get(PlaylistEntry.class, getCacheKey(playlistId, entryId));
+        Cacheable cacheable = get(PlaylistEntry.class, getLookupKey(playlistId, entryId));
         return cacheable != null ? (PlaylistEntry) cacheable
                 : new PlaylistEntry(playlistId, query, entryId);
     }
@@ -17,6 +17,8 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
+import org.tomahawk.libtomahawk.utils.VariousUtils;
+
 import android.text.TextUtils;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +30,8 @@ public class Track extends Cacheable {
 
     private final String mName;
 
+    private String mNormalizedName;
+
     private final Album mAlbum;
 
     private final Artist mArtist;
@@ -59,7 +63,7 @@ public class Track extends Cacheable {
      */
     public static Track get(String trackName, Album album, Artist artist) {
         Cacheable cacheable = get(Track.class,
-                getCacheKey(trackName, album.getName(), artist.getName()));
+                getLookupKey(trackName, album.getName(), artist.getName()));
         return cacheable != null ? (Track) cacheable : new Track(trackName, album, artist);
     }
 
@@ -74,6 +78,16 @@ public class Track extends Cacheable {
         return mName;
     }
 
+    /**
+     * @return this object's name, cleaned up so that it can be compared with other names
+     */
+    public String getNormalizedName() {
+        if (mNormalizedName == null) {
+            mNormalizedName = VariousUtils.cleanUpString(mName, false);
+        }
+        return mNormalizedName;
+    }
+
     /**
      * @return the {@link Track}'s {@link Artist}
      */
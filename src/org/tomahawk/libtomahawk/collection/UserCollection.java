@@ -20,7 +20,6 @@ package org.tomahawk.libtomahawk.collection;
 
 import org.jdeferred.Deferred;
 import org.jdeferred.Promise;
-import org.tomahawk.libtomahawk.database.CollectionDb;
 import org.tomahawk.libtomahawk.database.CollectionDbManager;
 import org.tomahawk.libtomahawk.database.DatabaseHelper;
 import org.tomahawk.libtomahawk.resolver.Query;
@@ -51,6 +50,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -59,7 +59,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import de.greenrobot.event.EventBus;
 
@@ -73,6 +79,14 @@ public class UserCollection extends DbCollection {
     private static final String HAS_SET_DEFAULTDIRS
             = "org.tomahawk.tomahawk_android.has_set_defaultdirs";
 
+    private static final int PARSER_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final int PARSER_QUEUE_SIZE = 64;
+
+    private static final int MEDIA_BATCH_SIZE = 100;
+
+    private static final long WRITER_POLL_TIMEOUT = 500;
+
     private static final List<String> TYPE_WHITELIST = Arrays.asList("vfat", "exfat", "sdcardfs",
             "fuse", "ntfs", "fat32", "ext3", "ext4", "esdfs");
 
@@ -162,6 +176,10 @@ public class UserCollection extends DbCollection {
 
     private class GetMediaItemsRunnable implements Runnable {
 
+        private final BlockingQueue<MediaWrapper> mParsedMedias = new LinkedBlockingQueue<>();
+
+        private volatile boolean mParsingFinished = false;
+
         @Override
         public void run() {
             SharedPreferences preferences =
@@ -188,10 +206,19 @@ public class UserCollection extends DbCollection {
             // list of all added files
             HashSet<String> addedLocations = new HashSet<>();
 
-            ArrayList<File> mediaToScan = new ArrayList<>();
+            // list of all media items that are part of the collection after this scan
+            List<MediaWrapper> mediaWrappers =
+                    Collections.synchronizedList(new ArrayList<MediaWrapper>());
+
+            // If all parsers are busy and the queue is full, the walking thread parses itself
+            ThreadPoolExecutor parserPool = new ThreadPoolExecutor(PARSER_THREAD_COUNT,
+                    PARSER_THREAD_COUNT, 1, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(PARSER_QUEUE_SIZE),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            Thread writerThread = new Thread(new MediaWriterRunnable(mediaWrappers));
+            writerThread.start();
             try {
                 final HashSet<String> directoriesScanned = new HashSet<>();
-                // Count total files, and stack them
                 while (!directories.isEmpty()) {
                     File dir = directories.pop();
                     String dirPath = dir.getAbsolutePath();
@@ -221,66 +248,61 @@ public class UserCollection extends DbCollection {
                     }
 
                     // Filter the extensions and the folders
+                    File[] f;
                     try {
-                        File[] f = dir.listFiles(new MediaItemFilter());
-                        if (f != null) {
-                            for (File file : f) {
-                                if (file.isFile()) {
-                                    mediaToScan.add(file);
-                                } else if (file.isDirectory()) {
-                                    directories.push(file);
-                                }
-                            }
-                        }
+                        f = dir.listFiles(new MediaItemFilter());
                     } catch (Exception e) {
                         // listFiles can fail in OutOfMemoryError, go to the next folder
                         Log.e(TAG, "GetMediaItemsRunnable#run() - " + e.getClass() + ": "
                                 + e.getLocalizedMessage());
                         continue;
                     }
-
-                    if (mIsStopping) {
-                        Log.d(TAG, "Stopping scan");
-                        return;
-                    }
-                }
-                ArrayList<MediaWrapper> mediaWrappers = new ArrayList<>();
-                // Process the stacked items
-                for (File file : mediaToScan) {
-                    String fileURI = LibVLC.PathToURI(file.getPath());
-                    if (existingMedias.containsKey(fileURI)) {
-                        // only add file if it is not already in the list. eg. if a user selects a
-                        // subfolder as well
-                        if (!addedLocations.contains(fileURI)) {
-                            // get existing media item from database
-                            mediaWrappers.add(existingMedias.get(fileURI));
-                            addedLocations.add(fileURI);
-                        }
-                    } else {
-                        // create new media item
-                        final Media media = new Media(
-                                VLCMediaPlayer.get().getLibVlcInstance(), fileURI);
-                        media.parse();
-                        media.release();
-                        // skip files with .mod extension and no duration
-                        if ((media.getDuration() == 0 || (media.getTrackCount() != 0
-                                && TextUtils.isEmpty(media.getTrack(0).codec)))
-                                && fileURI.endsWith(".mod")) {
-                            continue;
+                    if (f != null) {
+                        for (File file : f) {
+                            if (file.isFile()) {
+                                String fileURI = LibVLC.PathToURI(file.getPath());
+                                // only add file if it is not already in the list. eg. if a user
+                                // selects a subfolder as well
+                                if (addedLocations.add(fileURI)) {
+                                    MediaWrapper existingMedia = existingMedias.get(fileURI);
+                                    long lastModified = file.lastModified();
+                                    if (existingMedia != null
+                                            && existingMedia.getLastModified() == lastModified) {
+                                        // file hasn't changed, no need to parse it again
+                                        mediaWrappers.add(existingMedia);
+                                    } else {
+                                        parserPool.execute(
+                                                new ParseMediaRunnable(fileURI, lastModified));
+                                    }
+                                }
+                            } else if (file.isDirectory()) {
+                                directories.push(file);
+                            }
                         }
-                        MediaWrapper mw = new MediaWrapper(media);
-                        mw.setLastModified(file.lastModified());
-                        mediaWrappers.add(mw);
-                        // Add this item to database
-                        DatabaseHelper.get().addMedia(mw);
                     }
+
                     if (mIsStopping) {
                         Log.d(TAG, "Stopping scan");
                         return;
                     }
                 }
+                parserPool.shutdown();
+                parserPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                mParsingFinished = true;
+                writerThread.join();
+                if (mIsStopping) {
+                    Log.d(TAG, "Stopping scan");
+                    return;
+                }
                 processMediaWrappers(mediaWrappers);
+            } catch (InterruptedException e) {
+                Log.e(TAG, "GetMediaItemsRunnable#run() - " + e.getClass() + ": "
+                        + e.getLocalizedMessage());
+                Thread.currentThread().interrupt();
             } finally {
+                parserPool.shutdownNow();
+                mParsingFinished = true;
+
                 // remove old files & folders from database if storage is mounted
                 if (!mIsStopping && Environment.getExternalStorageState()
                         .equals(Environment.MEDIA_MOUNTED)) {
@@ -299,7 +321,7 @@ public class UserCollection extends DbCollection {
             }
         }
 
-        private void processMediaWrappers(List<MediaWrapper> mws) {
+        private void processMediaWrappers(List<MediaWrapper> mws) throws InterruptedException {
             Map<String, Set<String>> albumArtistsMap = new HashMap<>();
             Map<String, Album> albumMap = new HashMap<>();
             for (MediaWrapper mw : mws) {
@@ -318,26 +340,127 @@ public class UserCollection extends DbCollection {
                     }
                 }
             }
-            List<ScriptResolverTrack> tracks = new ArrayList<>();
-            for (MediaWrapper mw : mws) {
-                if (mw.getType() == MediaWrapper.TYPE_AUDIO) {
-                    ScriptResolverTrack track = new ScriptResolverTrack();
-                    track.album = mw.getAlbum();
-                    track.albumArtist = mw.getAlbumArtist();
-                    track.track = mw.getTitle();
-                    track.artist = mw.getArtist();
-                    track.duration = mw.getLength() / 1000;
-                    track.albumPos = mw.getTrackNumber();
-                    track.url = mw.getLocation();
-                    track.imagePath = mw.getArtworkURL();
-                    track.lastModified = mw.getLastModified();
-                    tracks.add(track);
+            // Wait for the writer thread, so that the UpdatedEvent is only posted once the
+            // CollectionDb is up to date
+            final CountDownLatch latch = new CountDownLatch(1);
+            CollectionDbManager.get().mergeTracks(getId(), toScriptResolverTracks(mws),
+                    new CollectionDbManager.WriteCallback() {
+                        @Override
+                        public void onWritten(boolean success) {
+                            if (!success) {
+                                Log.e(TAG, "processMediaWrappers - couldn't merge "
+                                        + "tracks into the CollectionDb");
+                            }
+                            latch.countDown();
+                        }
+                    });
+            latch.await();
+        }
+
+        /**
+         * Parses the metadata of a single file and hands the resulting {@link MediaWrapper} over
+         * to the {@link MediaWriterRunnable}.
+         */
+        private class ParseMediaRunnable implements Runnable {
+
+            private final String mFileURI;
+
+            private final long mLastModified;
+
+            public ParseMediaRunnable(String fileURI, long lastModified) {
+                mFileURI = fileURI;
+                mLastModified = lastModified;
+            }
+
+            @Override
+            public void run() {
+                if (mIsStopping) {
+                    return;
+                }
+                // create new media item
+                final Media media = new Media(
+                        VLCMediaPlayer.get().getLibVlcInstance(), mFileURI);
+                media.parse();
+                media.release();
+                // skip files with .mod extension and no duration
+                if ((media.getDuration() == 0 || (media.getTrackCount() != 0
+                        && TextUtils.isEmpty(media.getTrack(0).codec)))
+                        && mFileURI.endsWith(".mod")) {
+                    return;
                 }
+                MediaWrapper mw = new MediaWrapper(media);
+                mw.setLastModified(mLastModified);
+                mParsedMedias.add(mw);
+            }
+        }
+
+        /**
+         * Collects the parsed {@link MediaWrapper}s and writes them to the database in batches.
+         * The {@link org.tomahawk.libtomahawk.database.CollectionDb} is only written once all
+         * medias have been collected.
+         */
+        private class MediaWriterRunnable implements Runnable {
+
+            private final List<MediaWrapper> mMediaWrappers;
+
+            public MediaWriterRunnable(List<MediaWrapper> mediaWrappers) {
+                mMediaWrappers = mediaWrappers;
+            }
+
+            @Override
+            public void run() {
+                List<MediaWrapper> batch = new ArrayList<>();
+                while (true) {
+                    // Has to be read before polling, so that we don't miss the last medias
+                    boolean parsingFinished = mParsingFinished;
+                    MediaWrapper mw;
+                    try {
+                        mw = mParsedMedias.poll(WRITER_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Log.e(TAG, "MediaWriterRunnable#run() - " + e.getClass() + ": "
+                                + e.getLocalizedMessage());
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (mw != null) {
+                        batch.add(mw);
+                        mParsedMedias.drainTo(batch, MEDIA_BATCH_SIZE - batch.size());
+                    }
+                    if (batch.size() >= MEDIA_BATCH_SIZE || (mw == null && !batch.isEmpty())) {
+                        writeMedias(batch);
+                        batch = new ArrayList<>();
+                    }
+                    if (mw == null && parsingFinished) {
+                        break;
+                    }
+                }
+            }
+
+            private void writeMedias(List<MediaWrapper> mws) {
+                DatabaseHelper.get().addMedias(mws);
+                mMediaWrappers.addAll(mws);
+            }
+        }
+    }
+
+    private static ScriptResolverTrack[] toScriptResolverTracks(List<MediaWrapper> mws) {
+        List<ScriptResolverTrack> tracks = new ArrayList<>();
+        for (MediaWrapper mw : mws) {
+            if (mw.getType() == MediaWrapper.TYPE_AUDIO) {
+                ScriptResolverTrack track = new ScriptResolverTrack();
+                track.album = mw.getAlbum();
+                track.albumArtist = mw.getAlbumArtist();
+                track.track = mw.getTitle();
+                track.artist = mw.getArtist();
+                track.duration = mw.getLength() / 1000;
+                track.albumPos = mw.getTrackNumber();
+                track.url = mw.getLocation();
+                track.imagePath = mw.getArtworkURL();
+                track.lastModified = mw.getLastModified();
+                tracks.add(track);
             }
-            CollectionDb db = CollectionDbManager.get().getCollectionDb(getId());
-            db.wipe();
-            db.addTracks(tracks.toArray(new ScriptResolverTrack[tracks.size()]));
         }
+        return tracks.toArray(new ScriptResolverTrack[tracks.size()]);
     }
 
     public ConcurrentHashMap<Query, Long> getQueryTimeStamps() {
@@ -26,8 +26,11 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.preference.PreferenceManager;
+import android.text.TextUtils;
 import android.util.Log;
 
 import java.util.ArrayList;
@@ -37,12 +40,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import de.greenrobot.event.EventBus;
+
 public class CollectionDb extends SQLiteOpenHelper {
 
     public static final String TAG = CollectionDb.class.getSimpleName();
 
     public static final String ID = "_id";
 
+    /**
+     * The number of rows that make up a single page of a {@link PagedQuery}
+     */
+    public static final int PAGE_SIZE = 500;
+
     public static final String TABLE_ARTISTS = "artists";
 
     public static final String ARTISTS_ARTIST = "artist";
@@ -152,7 +162,80 @@ public class CollectionDb extends SQLiteOpenHelper {
             + "FOREIGN KEY(" + TRACKS_ALBUMID + ") REFERENCES "
             + TABLE_ALBUMS + "(" + ID + "));";
 
-    private static final int DB_VERSION = 3;
+    /**
+     * Indexes for every access path that isn't already covered by one of the UNIQUE constraints.
+     * Those already cover the lookups by name and the ordering by name.
+     */
+    private static final String[] CREATE_INDEXES = new String[]{
+            "CREATE INDEX IF NOT EXISTS tracks_albumId_albumPos ON " + TABLE_TRACKS + " ("
+                    + TRACKS_ALBUMID + ", " + TRACKS_ALBUMPOS + ");",
+            "CREATE INDEX IF NOT EXISTS tracks_artistId_albumId ON " + TABLE_TRACKS + " ("
+                    + TRACKS_ARTISTID + ", " + TRACKS_ALBUMID + ");",
+            "CREATE INDEX IF NOT EXISTS tracks_lastModified ON " + TABLE_TRACKS + " ("
+                    + TRACKS_LASTMODIFIED + ");",
+            "CREATE INDEX IF NOT EXISTS artists_lastModified ON " + TABLE_ARTISTS + " ("
+                    + ARTISTS_LASTMODIFIED + ");",
+            "CREATE INDEX IF NOT EXISTS albumArtists_lastModified ON " + TABLE_ALBUMARTISTS + " ("
+                    + ALBUMARTISTS_LASTMODIFIED + ");",
+            "CREATE INDEX IF NOT EXISTS albums_albumArtistId ON " + TABLE_ALBUMS + " ("
+                    + ALBUMS_ALBUMARTISTID + ");",
+            "CREATE INDEX IF NOT EXISTS albums_lastModified ON " + TABLE_ALBUMS + " ("
+                    + ALBUMS_LASTMODIFIED + ");",
+            "CREATE INDEX IF NOT EXISTS artistAlbums_artistId_albumId ON " + TABLE_ARTISTALBUMS
+                    + " (" + ARTISTALBUMS_ARTISTID + ", " + ARTISTALBUMS_ALBUMID + ");"
+    };
+
+    private static final String[] TRACK_FIELD_ARRAY = new String[]{ARTISTS_ARTIST,
+            ARTISTS_ARTISTDISAMBIGUATION, ALBUMS_ALBUM, TRACKS_TRACK, TRACKS_DURATION, TRACKS_URL,
+            TRACKS_LINKURL, TRACKS_ALBUMPOS, TRACKS_LASTMODIFIED};
+
+    private static final String TRACK_FIELDS = TextUtils.join(", ", TRACK_FIELD_ARRAY);
+
+    private static final String ALBUM_FIELDS = ALBUMS_ALBUM + ", " + ARTISTS_ARTIST + ", "
+            + ARTISTS_ARTISTDISAMBIGUATION + ", " + ALBUMS_IMAGEPATH + ", " + ALBUMS_LASTMODIFIED;
+
+    private static final String SELECT_ARTIST_ID = "SELECT " + ID + " FROM " + TABLE_ARTISTS
+            + " WHERE " + ARTISTS_ARTIST + " = ? AND " + ARTISTS_ARTISTDISAMBIGUATION + " = ?";
+
+    private static final String SELECT_ALBUM_ID = "SELECT " + TABLE_ALBUMS + "." + ID + " FROM "
+            + TABLE_ALBUMS + " INNER JOIN " + TABLE_ARTISTS + " ON " + TABLE_ALBUMS + "."
+            + ALBUMS_ALBUMARTISTID + " = " + TABLE_ARTISTS + "." + ID + " WHERE " + ALBUMS_ALBUM
+            + " = ? AND " + ARTISTS_ARTIST + " = ? AND " + ARTISTS_ARTISTDISAMBIGUATION + " = ?";
+
+    private static final String SQL_TRACKS_CURRENT_REVISION = "SELECT " + TRACKS_LASTMODIFIED
+            + " FROM " + TABLE_TRACKS + " ORDER BY " + TRACKS_LASTMODIFIED + " DESC LIMIT 1";
+
+    private static final String SQL_ARTIST_CURRENT_REVISION = "SELECT " + ARTISTS_LASTMODIFIED
+            + " FROM " + TABLE_ARTISTS + " WHERE " + ARTISTS_ARTIST + " = ? AND "
+            + ARTISTS_ARTISTDISAMBIGUATION + " = ?";
+
+    private static final String SQL_ALBUM_CURRENT_REVISION = "SELECT " + ALBUMS_LASTMODIFIED
+            + " FROM " + TABLE_ALBUMS + " INNER JOIN " + TABLE_ARTISTS + " ON " + TABLE_ALBUMS
+            + "." + ALBUMS_ALBUMARTISTID + " = " + TABLE_ARTISTS + "." + ID + " WHERE "
+            + ALBUMS_ALBUM + " = ? AND " + ARTISTS_ARTIST + " = ? AND "
+            + ARTISTS_ARTISTDISAMBIGUATION + " = ?";
+
+    private static final String SQL_ARTIST_ALBUMS = "SELECT " + ALBUM_FIELDS + " FROM "
+            + TABLE_ARTISTALBUMS + " INNER JOIN " + TABLE_ALBUMS + " ON " + TABLE_ARTISTALBUMS
+            + "." + ARTISTALBUMS_ALBUMID + " = " + TABLE_ALBUMS + "." + ID + " INNER JOIN "
+            + TABLE_ARTISTS + " ON " + TABLE_ALBUMS + "." + ALBUMS_ALBUMARTISTID + " = "
+            + TABLE_ARTISTS + "." + ID + " WHERE " + TABLE_ARTISTALBUMS + "."
+            + ARTISTALBUMS_ARTISTID + " = (" + SELECT_ARTIST_ID + ") ORDER BY " + ALBUMS_ALBUM;
+
+    private static final String SQL_ALBUM_TRACKS = "SELECT " + TRACK_FIELDS + " FROM "
+            + TABLE_TRACKS + " INNER JOIN " + TABLE_ARTISTS + " ON " + TABLE_TRACKS + "."
+            + TRACKS_ARTISTID + " = " + TABLE_ARTISTS + "." + ID + " INNER JOIN " + TABLE_ALBUMS
+            + " ON " + TABLE_TRACKS + "." + TRACKS_ALBUMID + " = " + TABLE_ALBUMS + "." + ID
+            + " WHERE " + TABLE_TRACKS + "." + TRACKS_ALBUMID + " = (" + SELECT_ALBUM_ID
+            + ") ORDER BY " + TRACKS_ALBUMPOS;
+
+    /**
+     * The number of prepared statements that SQLite keeps per connection. Every distinct query
+     * String we use should fit in here, so that none of them has to be compiled twice.
+     */
+    private static final int SQL_CACHE_SIZE = 50;
+
+    private static final int DB_VERSION = 4;
 
     private static final String DB_FILE_SUFFIX = "_collection.db";
 
@@ -162,7 +245,70 @@ public class CollectionDb extends SQLiteOpenHelper {
 
     private final String mLastUpdateStorageKey;
 
-    private boolean mInitialized = false;
+    private volatile boolean mInitialized = false;
+
+    private final String mCollectionId;
+
+    private TrackChanges mTrackChanges = new TrackChanges();
+
+    // Is being increased right before a write that adds, removes or changes tracks is committed,
+    // so that a PagedQuery can tell whether a page belongs to the snapshot it has been counted in
+    private volatile int mWriteCount;
+
+    // Compiled statements for the lookups that return a single value, mapped to their SQL
+    private final Map<String, SQLiteStatement> mCompiledStatements = new HashMap<>();
+
+    /**
+     * Is being posted whenever tracks have been added to, removed from or changed in this
+     * CollectionDb. The actual ids can be retrieved via {@link #pollTrackChanges()}.
+     */
+    public static class TracksChangedEvent {
+
+        public String mCollectionId;
+
+    }
+
+    /**
+     * Holds the ids of all tracks that have been added, removed or changed since the last call to
+     * {@link #pollTrackChanges()}.
+     */
+    public static class TrackChanges {
+
+        public final Set<Integer> mAddedIds = new HashSet<>();
+
+        public final Set<Integer> mRemovedIds = new HashSet<>();
+
+        public final Set<Integer> mChangedIds = new HashSet<>();
+
+        public boolean isEmpty() {
+            return mAddedIds.isEmpty() && mRemovedIds.isEmpty() && mChangedIds.isEmpty();
+        }
+
+        public int size() {
+            return mAddedIds.size() + mRemovedIds.size() + mChangedIds.size();
+        }
+
+        private void added(int id) {
+            if (mRemovedIds.remove(id)) {
+                // The id has been reused, so anybody who knew the old track has to update it
+                mChangedIds.add(id);
+            } else {
+                mAddedIds.add(id);
+            }
+        }
+
+        private void removed(int id) {
+            mAddedIds.remove(id);
+            mChangedIds.remove(id);
+            mRemovedIds.add(id);
+        }
+
+        private void changed(int id) {
+            if (!mAddedIds.contains(id)) {
+                mChangedIds.add(id);
+            }
+        }
+    }
 
     public static class WhereInfo {
 
@@ -178,15 +324,190 @@ public class CollectionDb extends SQLiteOpenHelper {
 
         Map<String, String> conditions = new HashMap<>();
 
+        // SQLite never reorders the tables around a CROSS JOIN, so the tables before it stay the
+        // outer loop
+        boolean crossJoin;
+
+    }
+
+    /**
+     * A query that is being read page by page with keyset pagination. Every page starts right
+     * after the order key of the last row of the page before it, so that SQLite can seek to it via
+     * an index, instead of stepping over every preceding row like it does with OFFSET.
+     *
+     * The order columns have to make up a unique key and have to match an index (or a chain of
+     * indexes along the joins), so that SQLite can return the rows in order without sorting them.
+     * None of them may contain NULL.
+     *
+     * The order keys of the page borders are being remembered. If a page is requested whose
+     * preceding page border isn't known yet, the missing borders are being read in a single pass
+     * over the order columns, starting at the last known border.
+     *
+     * Every page is being read in its own statement. Once a write has changed the CollectionDb
+     * after the rows have been counted, the query is outdated and only returns empty pages, so
+     * that it never mixes rows of different snapshots. It has to be built again then, which
+     * happens anyway, since such a write is always followed by a {@link TracksChangedEvent}.
+     */
+    public class PagedQuery {
+
+        private final String mFields;
+
+        private final String mFrom;
+
+        private final String[] mOrderColumns;
+
+        private final boolean mDescending;
+
+        private final String mOrderBy;
+
+        private final int mCount;
+
+        // The mWriteCount of the CollectionDb at the time the rows have been counted
+        private final int mWriteCount;
+
+        // The order key of the last row of every page, as far as they are known yet
+        private final List<String[]> mPageEnds = new ArrayList<>();
+
+        private PagedQuery(String table, String[] fields, List<JoinInfo> joinInfos,
+                String[] orderColumns, boolean descending) {
+            mFields = TextUtils.join(", ", fields) + ", " + TextUtils.join(", ", orderColumns);
+            mFrom = sqlFrom(table, joinInfos);
+            mOrderColumns = orderColumns;
+            mDescending = descending;
+            String direction = descending ? " DESC" : " ASC";
+            StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+            for (int i = 0; i < orderColumns.length; i++) {
+                if (i > 0) {
+                    orderBy.append(", ");
+                }
+                orderBy.append(orderColumns[i]).append(direction);
+            }
+            mOrderBy = orderBy.toString();
+            mWriteCount = CollectionDb.this.mWriteCount;
+            mCount = (int) simpleQueryForLong("SELECT COUNT(*)" + mFrom);
+        }
+
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return whether or not the CollectionDb has been changed since the rows of this query
+         * have been counted
+         */
+        public boolean isOutdated() {
+            return mWriteCount != CollectionDb.this.mWriteCount;
+        }
+
+        /**
+         * @return a {@link Cursor} containing the rows of the page with the given number, followed
+         * by their order columns. Has to be closed by the caller.
+         */
+        public synchronized Cursor getPage(int pageNumber) {
+            if (isOutdated()) {
+                return query(0, mFields, " LIMIT 0");
+            }
+            if (mPageEnds.size() < pageNumber) {
+                readPageEnds(pageNumber);
+                if (mPageEnds.size() < pageNumber) {
+                    // There are less rows than expected or the query has become outdated while
+                    // reading, so the requested page is empty
+                    return query(0, mFields, " LIMIT 0");
+                }
+            }
+            Cursor cursor = query(pageNumber, mFields, " LIMIT " + PAGE_SIZE);
+            // The rows are being read by getCount(), so only after it we know whether they still
+            // belong to the counted snapshot. Writes increase mWriteCount before they commit.
+            int count = cursor.getCount();
+            if (isOutdated()) {
+                cursor.close();
+                return query(0, mFields, " LIMIT 0");
+            }
+            if (pageNumber == mPageEnds.size() && count == PAGE_SIZE && cursor.moveToLast()) {
+                mPageEnds.add(readOrderKey(cursor,
+                        cursor.getColumnCount() - mOrderColumns.length));
+            }
+            return cursor;
+        }
+
+        /**
+         * Reads the borders of all pages before the given one that aren't known yet. Only the
+         * order columns of the rows in between are being read.
+         */
+        private void readPageEnds(int pageNumber) {
+            int knownPages = mPageEnds.size();
+            Cursor cursor = query(knownPages, TextUtils.join(", ", mOrderColumns),
+                    " LIMIT " + (pageNumber - knownPages) * PAGE_SIZE);
+            try {
+                List<String[]> pageEnds = new ArrayList<>();
+                for (int i = PAGE_SIZE - 1; cursor.moveToPosition(i); i += PAGE_SIZE) {
+                    pageEnds.add(readOrderKey(cursor, 0));
+                }
+                if (!isOutdated()) {
+                    mPageEnds.addAll(pageEnds);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        private String[] readOrderKey(Cursor cursor, int firstColumn) {
+            String[] orderKey = new String[mOrderColumns.length];
+            for (int i = 0; i < orderKey.length; i++) {
+                orderKey[i] = cursor.getString(firstColumn + i);
+            }
+            return orderKey;
+        }
+
+        /**
+         * Select the given fields of the rows that come after the end of the page before the
+         * given one
+         */
+        private Cursor query(int pageNumber, String fields, String limit) {
+            StringBuilder statement = new StringBuilder("SELECT ").append(fields).append(mFrom);
+            List<String> args = new ArrayList<>();
+            if (pageNumber > 0) {
+                String[] orderKey = mPageEnds.get(pageNumber - 1);
+                // The range on the first order column lets SQLite seek to the page border
+                statement.append(" WHERE ").append(mOrderColumns[0])
+                        .append(mDescending ? " <= ?" : " >= ?").append(" AND (");
+                args.add(orderKey[0]);
+                appendAfterCondition(statement, args, orderKey, 0);
+                statement.append(")");
+            }
+            statement.append(mOrderBy).append(limit);
+            return mDb.rawQuery(statement.toString(), args.toArray(new String[args.size()]));
+        }
+
+        /**
+         * Appends the condition that the order columns, starting at the given one, come after
+         * the given order key
+         */
+        private void appendAfterCondition(StringBuilder statement, List<String> args,
+                String[] orderKey, int column) {
+            statement.append(mOrderColumns[column]).append(mDescending ? " < ?" : " > ?");
+            args.add(orderKey[column]);
+            if (column < mOrderColumns.length - 1) {
+                statement.append(" OR (").append(mOrderColumns[column]).append(" = ? AND (");
+                args.add(orderKey[column]);
+                appendAfterCondition(statement, args, orderKey, column + 1);
+                statement.append("))");
+            }
+        }
     }
 
     public CollectionDb(Context context, String collectionId) {
         super(context, collectionId + DB_FILE_SUFFIX, null, DB_VERSION);
 
+        mCollectionId = collectionId;
         mLastUpdateStorageKey = collectionId + LAST_COLLECTION_DB_UPDATE_SUFFIX;
 
         close();
         mDb = getWritableDatabase();
+        // With write-ahead logging, reads don't have to wait for a running write transaction.
+        // They are being done on their own connections and see the last committed state.
+        mDb.enableWriteAheadLogging();
+        mDb.setMaxSqlCacheSize(SQL_CACHE_SIZE);
     }
 
     public String getLastUpdateStorageKey() {
@@ -200,6 +521,13 @@ public class CollectionDb extends SQLiteOpenHelper {
         db.execSQL(CREATE_TABLE_ALBUMS);
         db.execSQL(CREATE_TABLE_ARTISTALBUMS);
         db.execSQL(CREATE_TABLE_TRACKS);
+        createIndexes(db);
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        for (String createIndex : CREATE_INDEXES) {
+            db.execSQL(createIndex);
+        }
     }
 
     @Override
@@ -222,46 +550,83 @@ public class CollectionDb extends SQLiteOpenHelper {
             db.execSQL("DROP TABLE IF EXISTS `" + TABLE_TRACKS + "`;");
             db.execSQL(CREATE_TABLE_TRACKS);
         }
+        if (oldVersion < 4) {
+            createIndexes(db);
+        }
     }
 
     public boolean isInitialized() {
         return mInitialized;
     }
 
+    /**
+     * @return all track changes that have been made since the last call to this method. The
+     * returned {@link TrackChanges} are no longer tracked by this CollectionDb afterwards.
+     */
+    public synchronized TrackChanges pollTrackChanges() {
+        TrackChanges trackChanges = mTrackChanges;
+        mTrackChanges = new TrackChanges();
+        return trackChanges;
+    }
+
+    /**
+     * Put the given {@link TrackChanges}, which have been polled via {@link #pollTrackChanges()}
+     * but couldn't be processed, back in front of all changes that have been made since then.
+     */
+    public synchronized void requeueTrackChanges(TrackChanges trackChanges) {
+        TrackChanges newerChanges = mTrackChanges;
+        mTrackChanges = trackChanges;
+        for (Integer id : newerChanges.mRemovedIds) {
+            mTrackChanges.removed(id);
+        }
+        for (Integer id : newerChanges.mAddedIds) {
+            mTrackChanges.added(id);
+        }
+        for (Integer id : newerChanges.mChangedIds) {
+            mTrackChanges.changed(id);
+        }
+    }
+
+    private void postTracksChanged() {
+        if (!mTrackChanges.isEmpty()) {
+            TracksChangedEvent event = new TracksChangedEvent();
+            event.mCollectionId = mCollectionId;
+            EventBus.getDefault().post(event);
+        }
+    }
+
     public synchronized void addTracks(ScriptResolverTrack[] tracks) {
         long time = System.currentTimeMillis();
+        List<Integer> addedTrackIds;
         mDb.beginTransaction();
-
-        // Check if we want to store the album as a compilation album (with artist "Various Artists")
-        Map<String, Set<String>> albumArtists = new HashMap<>();
-        for (ScriptResolverTrack track : tracks) {
-            if (track.artist == null) {
-                track.artist = "";
-            }
-            if (track.artistDisambiguation == null) {
-                track.artistDisambiguation = "";
-            }
-            if (track.album == null) {
-                track.album = "";
-            }
-            if (track.albumArtist == null) {
-                track.albumArtist = "";
-            }
-            if (track.albumArtistDisambiguation == null) {
-                track.albumArtistDisambiguation = "";
-            }
-            if (track.track == null) {
-                track.track = "";
-            }
-            Set<String> artists = albumArtists.get(track.album);
-            if (artists == null) {
-                artists = new HashSet<>();
-                albumArtists.put(track.album, artists);
-            }
-            if (artists.size() < 2) {
-                artists.add(track.artist);
+        try {
+            addedTrackIds = insertTracks(tracks);
+            if (!addedTrackIds.isEmpty()) {
+                mWriteCount++;
             }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        for (Integer trackId : addedTrackIds) {
+            mTrackChanges.added(trackId);
         }
+        mInitialized = true;
+        Log.d(TAG, "Added " + tracks.length + " tracks in " + (System.currentTimeMillis() - time)
+                + "ms");
+        SharedPreferences preferences =
+                PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
+        preferences.edit().putLong(mLastUpdateStorageKey, System.currentTimeMillis()).commit();
+        postTracksChanged();
+    }
+
+    /**
+     * Inserts the given tracks. Has to be called inside a transaction.
+     *
+     * @return the ids of all tracks that have been inserted
+     */
+    private List<Integer> insertTracks(ScriptResolverTrack[] tracks) {
+        Map<String, Set<String>> albumArtists = prepareTracks(tracks);
 
         Map<String, Long> mArtistLastModifiedMap = new HashMap<>();
         // First we insert all artists and albumArtists
@@ -361,6 +726,7 @@ public class CollectionDb extends SQLiteOpenHelper {
             }
         }
 
+        List<Integer> addedTrackIds = new ArrayList<>();
         for (ScriptResolverTrack track : tracks) {
             ContentValues values = new ContentValues();
             int albumArtistId;
@@ -385,20 +751,439 @@ public class CollectionDb extends SQLiteOpenHelper {
             values.put(TRACKS_LINKURL, track.linkUrl);
             values.put(TRACKS_ALBUMPOS, track.albumPos);
             values.put(TRACKS_LASTMODIFIED, track.lastModified);
-            mDb.insert(TABLE_TRACKS, null, values);
+            long trackId = mDb.insert(TABLE_TRACKS, null, values);
+            if (trackId >= 0) {
+                addedTrackIds.add((int) trackId);
+            }
+        }
+
+        return addedTrackIds;
+    }
+
+    /**
+     * Merges the given tracks into this CollectionDb. In contrast to wiping the db and adding all
+     * tracks again, only the tracks that have actually been added, removed or changed (determined
+     * by comparing track name, artist, album and lastModified) are being written. Existing albums
+     * are only being updated if their lastModified or imagePath has changed. Every track that is
+     * currently stored but not contained in the given tracks is being removed. Everything is done
+     * inside a single transaction.
+     *
+     * @param tracks the complete set of tracks that this CollectionDb should contain afterwards
+     * @return the {@link TrackChanges} containing the ids of the added, removed and changed tracks
+     */
+    public synchronized TrackChanges mergeTracks(ScriptResolverTrack[] tracks) {
+        long time = System.currentTimeMillis();
+        TrackChanges trackChanges = new TrackChanges();
+        Map<String, Set<String>> albumArtists = prepareTracks(tracks);
+
+        SQLiteStatement insertArtist = mDb.compileStatement("INSERT INTO " + TABLE_ARTISTS
+                + " (" + ARTISTS_ARTIST + ", " + ARTISTS_ARTISTDISAMBIGUATION + ", "
+                + ARTISTS_LASTMODIFIED + ") VALUES (?, ?, ?)");
+        SQLiteStatement updateArtist = mDb.compileStatement("UPDATE " + TABLE_ARTISTS
+                + " SET " + ARTISTS_LASTMODIFIED + " = ? WHERE " + ARTISTS_ARTIST + " = ? AND "
+                + ARTISTS_ARTISTDISAMBIGUATION + " = ? AND " + ARTISTS_LASTMODIFIED + " < ?");
+        SQLiteStatement insertAlbumArtist = mDb.compileStatement("INSERT INTO "
+                + TABLE_ALBUMARTISTS + " (" + ALBUMARTISTS_ALBUMARTIST + ", "
+                + ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION + ", " + ALBUMARTISTS_LASTMODIFIED
+                + ") VALUES (?, ?, ?)");
+        SQLiteStatement insertAlbum = mDb.compileStatement("INSERT INTO " + TABLE_ALBUMS
+                + " (" + ALBUMS_ALBUM + ", " + ALBUMS_ALBUMARTISTID + ", " + ALBUMS_IMAGEPATH
+                + ", " + ALBUMS_LASTMODIFIED + ") VALUES (?, ?, ?, ?)");
+        SQLiteStatement updateAlbum = mDb.compileStatement("UPDATE " + TABLE_ALBUMS
+                + " SET " + ALBUMS_IMAGEPATH + " = ?, " + ALBUMS_LASTMODIFIED + " = MAX("
+                + ALBUMS_LASTMODIFIED + ", ?) WHERE " + ALBUMS_ALBUM + " = ? AND "
+                + ALBUMS_ALBUMARTISTID + " = ? AND (" + ALBUMS_LASTMODIFIED + " < ? OR "
+                + ALBUMS_IMAGEPATH + " IS NOT ?)");
+        SQLiteStatement insertArtistAlbum = mDb.compileStatement("INSERT INTO "
+                + TABLE_ARTISTALBUMS + " (" + ARTISTALBUMS_ARTISTID + ", "
+                + ARTISTALBUMS_ALBUMID + ") VALUES (?, ?)");
+        SQLiteStatement insertTrack = mDb.compileStatement("INSERT INTO " + TABLE_TRACKS
+                + " (" + TRACKS_TRACK + ", " + TRACKS_ARTISTID + ", " + TRACKS_ALBUMID + ", "
+                + TRACKS_URL + ", " + TRACKS_DURATION + ", " + TRACKS_LINKURL + ", "
+                + TRACKS_ALBUMPOS + ", " + TRACKS_LASTMODIFIED
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement updateTrack = mDb.compileStatement("UPDATE " + TABLE_TRACKS + " SET "
+                + TRACKS_URL + " = ?, " + TRACKS_DURATION + " = ?, " + TRACKS_LINKURL + " = ?, "
+                + TRACKS_ALBUMPOS + " = ?, " + TRACKS_LASTMODIFIED + " = ? WHERE " + ID + " = ?");
+        SQLiteStatement deleteTrack = mDb.compileStatement("DELETE FROM " + TABLE_TRACKS
+                + " WHERE " + ID + " = ?");
+        mDb.beginTransaction();
+        try {
+            // First we find out which tracks are already stored and unchanged, so that we don't
+            // have to write anything for them
+            Map<String, Integer> cachedArtists = getArtistIds();
+            Map<String, String> storedImagePaths = new HashMap<>();
+            Map<String, Integer> cachedAlbums = getAlbumIds(storedImagePaths);
+            Map<String, long[]> existingTracks = new HashMap<>();
+            Cursor cursor = mDb.query(TABLE_TRACKS, new String[]{ID, TRACKS_TRACK,
+                    TRACKS_ARTISTID, TRACKS_ALBUMID, TRACKS_LASTMODIFIED},
+                    null, null, null, null, null);
+            try {
+                cursor.moveToFirst();
+                if (!cursor.isAfterLast()) {
+                    do {
+                        existingTracks.put(concatKeys(cursor.getString(1), cursor.getInt(2),
+                                cursor.getInt(3)), new long[]{cursor.getInt(0), cursor.getLong(4)});
+                    } while (cursor.moveToNext());
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            boolean[] unchanged = new boolean[tracks.length];
+            boolean hasChangedTracks = false;
+            for (int i = 0; i < tracks.length; i++) {
+                ScriptResolverTrack track = tracks[i];
+                Integer artistId = cachedArtists.get(
+                        concatKeys(track.artist, track.artistDisambiguation));
+                Integer albumArtistId = albumArtists.get(track.album).size() == 1 ? artistId
+                        : cachedArtists.get(concatKeys(Artist.COMPILATION_ARTIST.getName(), ""));
+                Integer albumId = albumArtistId != null
+                        ? cachedAlbums.get(concatKeys(track.album, albumArtistId)) : null;
+                if (artistId != null && albumId != null) {
+                    long[] existingTrack =
+                            existingTracks.get(concatKeys(track.track, artistId, albumId));
+                    unchanged[i] = existingTrack != null
+                            && existingTrack[1] == track.lastModified;
+                }
+                hasChangedTracks |= !unchanged[i];
+            }
+
+            // Now we make sure that the artists and albumArtists of all other tracks exist and are
+            // up to date
+            for (int i = 0; i < tracks.length; i++) {
+                if (unchanged[i]) {
+                    continue;
+                }
+                ScriptResolverTrack track = tracks[i];
+                if (albumArtists.get(track.album).size() > 1) {
+                    upsertArtist(insertArtist, updateArtist, Artist.COMPILATION_ARTIST.getName(),
+                            "", track.lastModified);
+                }
+                upsertArtist(insertArtist, updateArtist, track.artist,
+                        track.artistDisambiguation, track.lastModified);
+                insertAlbumArtist.bindString(1, track.albumArtist);
+                insertAlbumArtist.bindString(2, track.albumArtistDisambiguation);
+                insertAlbumArtist.bindLong(3, track.lastModified);
+                insertAlbumArtist.executeInsert();
+            }
+            if (hasChangedTracks) {
+                cachedArtists = getArtistIds();
+            }
+
+            // Now we do the same for all albums. Every album gets the first imagePath that any of
+            // its tracks provides, so that the tracks of one album don't overwrite each other's.
+            // Albums of unchanged tracks are only being written if their imagePath has changed.
+            int[] albumArtistIds = new int[tracks.length];
+            Map<String, String> albumImagePaths = new HashMap<>();
+            for (int i = 0; i < tracks.length; i++) {
+                ScriptResolverTrack track = tracks[i];
+                if (albumArtists.get(track.album).size() == 1) {
+                    albumArtistIds[i] = cachedArtists.get(
+                            concatKeys(track.artist, track.artistDisambiguation));
+                } else {
+                    albumArtistIds[i] = cachedArtists.get(
+                            concatKeys(Artist.COMPILATION_ARTIST.getName(), ""));
+                }
+                String albumKey = concatKeys(track.album, albumArtistIds[i]);
+                if (track.imagePath != null && !albumImagePaths.containsKey(albumKey)) {
+                    albumImagePaths.put(albumKey, track.imagePath);
+                }
+            }
+            for (int i = 0; i < tracks.length; i++) {
+                ScriptResolverTrack track = tracks[i];
+                String albumKey = concatKeys(track.album, albumArtistIds[i]);
+                String imagePath = albumImagePaths.get(albumKey);
+                if (unchanged[i] && TextUtils.equals(imagePath, storedImagePaths.get(albumKey))) {
+                    continue;
+                }
+                storedImagePaths.put(albumKey, imagePath);
+                insertAlbum.bindString(1, track.album);
+                insertAlbum.bindLong(2, albumArtistIds[i]);
+                bindStringOrNull(insertAlbum, 3, imagePath);
+                insertAlbum.bindLong(4, track.lastModified);
+                if (insertAlbum.executeInsert() < 0) {
+                    // The album exists already, so update it if it is older or has another image
+                    bindStringOrNull(updateAlbum, 1, imagePath);
+                    updateAlbum.bindLong(2, track.lastModified);
+                    updateAlbum.bindString(3, track.album);
+                    updateAlbum.bindLong(4, albumArtistIds[i]);
+                    updateAlbum.bindLong(5, track.lastModified);
+                    bindStringOrNull(updateAlbum, 6, imagePath);
+                    updateAlbum.executeUpdateDelete();
+                }
+            }
+            if (hasChangedTracks) {
+                cachedAlbums = getAlbumIds(null);
+            }
+
+            Set<String> mergedTrackKeys = new HashSet<>();
+            for (int i = 0; i < tracks.length; i++) {
+                ScriptResolverTrack track = tracks[i];
+                int artistId = cachedArtists.get(
+                        concatKeys(track.artist, track.artistDisambiguation));
+                int albumId = cachedAlbums.get(concatKeys(track.album, albumArtistIds[i]));
+                String trackKey = concatKeys(track.track, artistId, albumId);
+                if (!mergedTrackKeys.add(trackKey)) {
+                    // We've already merged a track with the same key
+                    continue;
+                }
+                long[] existingTrack = existingTracks.remove(trackKey);
+                if (unchanged[i]) {
+                    continue;
+                }
+                insertArtistAlbum.bindLong(1, artistId);
+                insertArtistAlbum.bindLong(2, albumId);
+                insertArtistAlbum.executeInsert();
+                if (existingTrack == null) {
+                    insertTrack.bindString(1, track.track);
+                    insertTrack.bindLong(2, artistId);
+                    insertTrack.bindLong(3, albumId);
+                    bindStringOrNull(insertTrack, 4, track.url);
+                    insertTrack.bindLong(5, (int) track.duration);
+                    bindStringOrNull(insertTrack, 6, track.linkUrl);
+                    insertTrack.bindLong(7, track.albumPos);
+                    insertTrack.bindLong(8, track.lastModified);
+                    long trackId = insertTrack.executeInsert();
+                    if (trackId >= 0) {
+                        trackChanges.added((int) trackId);
+                    }
+                } else if (existingTrack[1] != track.lastModified) {
+                    bindStringOrNull(updateTrack, 1, track.url);
+                    updateTrack.bindLong(2, (int) track.duration);
+                    bindStringOrNull(updateTrack, 3, track.linkUrl);
+                    updateTrack.bindLong(4, track.albumPos);
+                    updateTrack.bindLong(5, track.lastModified);
+                    updateTrack.bindLong(6, existingTrack[0]);
+                    updateTrack.executeUpdateDelete();
+                    trackChanges.changed((int) existingTrack[0]);
+                }
+            }
+
+            // Everything that is left has disappeared
+            for (long[] existingTrack : existingTracks.values()) {
+                deleteTrack.bindLong(1, existingTrack[0]);
+                deleteTrack.executeUpdateDelete();
+                trackChanges.removed((int) existingTrack[0]);
+            }
+            if (trackChanges.mRemovedIds.size() > 0) {
+                removeOrphans(tracks);
+            }
+            if (!trackChanges.isEmpty()) {
+                mWriteCount++;
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+            insertArtist.close();
+            updateArtist.close();
+            insertAlbumArtist.close();
+            insertAlbum.close();
+            updateAlbum.close();
+            insertArtistAlbum.close();
+            insertTrack.close();
+            updateTrack.close();
+            deleteTrack.close();
         }
 
-        mDb.setTransactionSuccessful();
-        mDb.endTransaction();
+        for (Integer trackId : trackChanges.mRemovedIds) {
+            mTrackChanges.removed(trackId);
+        }
+        for (Integer trackId : trackChanges.mAddedIds) {
+            mTrackChanges.added(trackId);
+        }
+        for (Integer trackId : trackChanges.mChangedIds) {
+            mTrackChanges.changed(trackId);
+        }
         mInitialized = true;
-        Log.d(TAG, "Added " + tracks.length + " tracks in " + (System.currentTimeMillis() - time)
-                + "ms");
-        SharedPreferences preferences =
-                PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
-        preferences.edit().putLong(mLastUpdateStorageKey, System.currentTimeMillis()).commit();
+        Log.d(TAG, "Merged " + tracks.length + " tracks in " + (System.currentTimeMillis() - time)
+                + "ms - added: " + trackChanges.mAddedIds.size() + ", removed: "
+                + trackChanges.mRemovedIds.size() + ", changed: "
+                + trackChanges.mChangedIds.size());
+        if (!trackChanges.isEmpty()) {
+            SharedPreferences preferences =
+                    PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
+            preferences.edit().putLong(mLastUpdateStorageKey, System.currentTimeMillis())
+                    .commit();
+            postTracksChanged();
+        }
+        return trackChanges;
+    }
+
+    /**
+     * @return the ids of all stored artists, mapped by their name and disambiguation
+     */
+    private Map<String, Integer> getArtistIds() {
+        Map<String, Integer> artistIds = new HashMap<>();
+        Cursor cursor = mDb.query(TABLE_ARTISTS,
+                new String[]{ID, ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION},
+                null, null, null, null, null);
+        try {
+            cursor.moveToFirst();
+            if (!cursor.isAfterLast()) {
+                do {
+                    artistIds.put(concatKeys(cursor.getString(1), cursor.getString(2)),
+                            cursor.getInt(0));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return artistIds;
+    }
+
+    /**
+     * @param imagePaths if not null, the imagePath of every stored album is being put into this
+     *                   map, with the same keys as the returned map
+     * @return the ids of all stored albums, mapped by their name and albumArtist id
+     */
+    private Map<String, Integer> getAlbumIds(Map<String, String> imagePaths) {
+        Map<String, Integer> albumIds = new HashMap<>();
+        Cursor cursor = mDb.query(TABLE_ALBUMS,
+                new String[]{ID, ALBUMS_ALBUM, ALBUMS_ALBUMARTISTID, ALBUMS_IMAGEPATH},
+                null, null, null, null, null);
+        try {
+            cursor.moveToFirst();
+            if (!cursor.isAfterLast()) {
+                do {
+                    String key = concatKeys(cursor.getString(1), cursor.getString(2));
+                    albumIds.put(key, cursor.getInt(0));
+                    if (imagePaths != null) {
+                        imagePaths.put(key, cursor.getString(3));
+                    }
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return albumIds;
+    }
+
+    private static void upsertArtist(SQLiteStatement insertArtist, SQLiteStatement updateArtist,
+            String artist, String artistDisambiguation, long lastModified) {
+        insertArtist.bindString(1, artist);
+        insertArtist.bindString(2, artistDisambiguation);
+        insertArtist.bindLong(3, lastModified);
+        if (insertArtist.executeInsert() < 0) {
+            updateArtist.bindLong(1, lastModified);
+            updateArtist.bindString(2, artist);
+            updateArtist.bindString(3, artistDisambiguation);
+            updateArtist.bindLong(4, lastModified);
+            updateArtist.executeUpdateDelete();
+        }
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * Removes all artists, albumArtists, albums and artistAlbums that are no longer being
+     * referenced by any track.
+     *
+     * @param tracks the tracks that have been merged, used to determine which albumArtists are
+     *               still needed
+     */
+    private void removeOrphans(ScriptResolverTrack[] tracks) {
+        mDb.execSQL("DELETE FROM " + TABLE_ARTISTALBUMS + " WHERE NOT EXISTS (SELECT 1 FROM "
+                + TABLE_TRACKS + " WHERE " + TABLE_TRACKS + "." + TRACKS_ARTISTID + " = "
+                + TABLE_ARTISTALBUMS + "." + ARTISTALBUMS_ARTISTID + " AND " + TABLE_TRACKS + "."
+                + TRACKS_ALBUMID + " = " + TABLE_ARTISTALBUMS + "." + ARTISTALBUMS_ALBUMID + ")");
+        mDb.execSQL("DELETE FROM " + TABLE_ALBUMS + " WHERE " + ID + " NOT IN (SELECT "
+                + TRACKS_ALBUMID + " FROM " + TABLE_TRACKS + ")");
+        mDb.execSQL("DELETE FROM " + TABLE_ARTISTS + " WHERE " + ID + " NOT IN (SELECT "
+                + TRACKS_ARTISTID + " FROM " + TABLE_TRACKS + ") AND " + ID + " NOT IN (SELECT "
+                + ALBUMS_ALBUMARTISTID + " FROM " + TABLE_ALBUMS + ")");
+        Set<String> albumArtistKeys = new HashSet<>();
+        for (ScriptResolverTrack track : tracks) {
+            albumArtistKeys.add(concatKeys(track.albumArtist, track.albumArtistDisambiguation));
+        }
+        List<String> orphanedIds = new ArrayList<>();
+        Cursor cursor = mDb.query(TABLE_ALBUMARTISTS, new String[]{ID, ALBUMARTISTS_ALBUMARTIST,
+                ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION}, null, null, null, null, null);
+        try {
+            cursor.moveToFirst();
+            if (!cursor.isAfterLast()) {
+                do {
+                    if (!albumArtistKeys.contains(
+                            concatKeys(cursor.getString(1), cursor.getString(2)))) {
+                        orphanedIds.add(cursor.getString(0));
+                    }
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        for (String orphanedId : orphanedIds) {
+            mDb.delete(TABLE_ALBUMARTISTS, ID + " = ?", new String[]{orphanedId});
+        }
+    }
+
+    /**
+     * Replaces all null values in the given tracks with empty Strings and checks which albums we
+     * want to store as a compilation album (with artist "Various Artists").
+     *
+     * @return a Map of album names to a Set containing up to two of the album's artist names
+     */
+    private static Map<String, Set<String>> prepareTracks(ScriptResolverTrack[] tracks) {
+        Map<String, Set<String>> albumArtists = new HashMap<>();
+        for (ScriptResolverTrack track : tracks) {
+            if (track.artist == null) {
+                track.artist = "";
+            }
+            if (track.artistDisambiguation == null) {
+                track.artistDisambiguation = "";
+            }
+            if (track.album == null) {
+                track.album = "";
+            }
+            if (track.albumArtist == null) {
+                track.albumArtist = "";
+            }
+            if (track.albumArtistDisambiguation == null) {
+                track.albumArtistDisambiguation = "";
+            }
+            if (track.track == null) {
+                track.track = "";
+            }
+            Set<String> artists = albumArtists.get(track.album);
+            if (artists == null) {
+                artists = new HashSet<>();
+                albumArtists.put(track.album, artists);
+            }
+            if (artists.size() < 2) {
+                artists.add(track.artist);
+            }
+        }
+        return albumArtists;
     }
 
     public synchronized void wipe() {
+        mWriteCount++;
+        Cursor cursor = mDb.query(TABLE_TRACKS, new String[]{ID}, null, null, null, null, null);
+        try {
+            cursor.moveToFirst();
+            if (!cursor.isAfterLast()) {
+                do {
+                    mTrackChanges.removed(cursor.getInt(0));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
         mDb.execSQL("DROP TABLE IF EXISTS `" + TABLE_ARTISTS + "`;");
         mDb.execSQL(CREATE_TABLE_ARTISTS);
         mDb.execSQL("DROP TABLE IF EXISTS `" + TABLE_ALBUMARTISTS + "`;");
@@ -409,19 +1194,57 @@ public class CollectionDb extends SQLiteOpenHelper {
         mDb.execSQL(CREATE_TABLE_ARTISTALBUMS);
         mDb.execSQL("DROP TABLE IF EXISTS `" + TABLE_TRACKS + "`;");
         mDb.execSQL(CREATE_TABLE_TRACKS);
+        createIndexes(mDb);
+        postTracksChanged();
     }
 
     /**
      * Convenience method. Uses a default set of fields.
      */
-    public synchronized Cursor tracks(WhereInfo where, String[] orderBy) {
-        String[] fields = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION, ALBUMS_ALBUM,
-                TRACKS_TRACK, TRACKS_DURATION, TRACKS_URL, TRACKS_LINKURL, TRACKS_ALBUMPOS,
-                TRACKS_LASTMODIFIED};
-        return tracks(where, orderBy, fields);
+    public Cursor tracks(WhereInfo where, String[] orderBy) {
+        return tracks(where, orderBy, TRACK_FIELD_ARRAY);
+    }
+
+    public Cursor tracks(WhereInfo where, String[] orderBy, String[] fields) {
+        return sqlSelect(TABLE_TRACKS, fields, where, trackJoinInfos(), orderBy);
+    }
+
+    /**
+     * @return all tracks with the default set of fields, sorted by the given column
+     */
+    public PagedQuery pagedTracks(String sortColumn, boolean descending) {
+        String[] orderColumns;
+        if (ARTISTS_ARTIST.equals(sortColumn)) {
+            // Walks the artists along their UNIQUE key and their tracks along
+            // tracks_artistId_albumId, so the tracks of an artist are grouped by album. The
+            // artists have to be the outer loop for that, otherwise SQLite sorts all tracks.
+            orderColumns = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION,
+                    TABLE_ARTISTS + "." + ID, TABLE_TRACKS + "." + TRACKS_ALBUMID,
+                    TABLE_TRACKS + "." + ID};
+            List<JoinInfo> joinInfos = new ArrayList<>();
+            JoinInfo joinInfo = new JoinInfo();
+            joinInfo.table = TABLE_TRACKS;
+            joinInfo.conditions.put(TABLE_TRACKS + "." + TRACKS_ARTISTID,
+                    TABLE_ARTISTS + "." + ID);
+            joinInfo.crossJoin = true;
+            joinInfos.add(joinInfo);
+            joinInfo = new JoinInfo();
+            joinInfo.table = TABLE_ALBUMS;
+            joinInfo.conditions.put(TABLE_TRACKS + "." + TRACKS_ALBUMID, TABLE_ALBUMS + "." + ID);
+            joinInfos.add(joinInfo);
+            return new PagedQuery(TABLE_ARTISTS, TRACK_FIELD_ARRAY, joinInfos, orderColumns,
+                    descending);
+        } else if (TRACKS_TRACK.equals(sortColumn)) {
+            orderColumns = new String[]{TRACKS_TRACK, TABLE_TRACKS + "." + TRACKS_ARTISTID,
+                    TABLE_TRACKS + "." + TRACKS_ALBUMID};
+        } else {
+            orderColumns = new String[]{sortColumn, TABLE_TRACKS + "." + ID};
+        }
+        return new PagedQuery(TABLE_TRACKS, TRACK_FIELD_ARRAY, trackJoinInfos(), orderColumns,
+                descending);
     }
 
-    public synchronized Cursor tracks(WhereInfo where, String[] orderBy, String[] fields) {
+    private static List<JoinInfo> trackJoinInfos() {
         List<JoinInfo> joinInfos = new ArrayList<>();
         JoinInfo joinInfo = new JoinInfo();
         joinInfo.table = TABLE_ARTISTS;
@@ -431,31 +1254,18 @@ public class CollectionDb extends SQLiteOpenHelper {
         joinInfo.table = TABLE_ALBUMS;
         joinInfo.conditions.put(TABLE_TRACKS + "." + TRACKS_ALBUMID, TABLE_ALBUMS + "." + ID);
         joinInfos.add(joinInfo);
-        return sqlSelect(TABLE_TRACKS, fields, where, joinInfos, orderBy);
+        return joinInfos;
     }
 
-    public synchronized long tracksCurrentRevision() {
-        String[] fields = new String[]{TRACKS_LASTMODIFIED};
-        long currentRevision = -1;
-        Cursor cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_TRACKS, fields, null, null,
-                    new String[]{TRACKS_LASTMODIFIED + " DESC"});
-            if (cursor.moveToFirst()) {
-                currentRevision = cursor.getLong(0);
-            } else {
-                Log.e(TAG, "tracksCurrentRevision - no tracks in table!");
-                return -1;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+    public long tracksCurrentRevision() {
+        long currentRevision = simpleQueryForLong(SQL_TRACKS_CURRENT_REVISION);
+        if (currentRevision < 0) {
+            Log.e(TAG, "tracksCurrentRevision - no tracks in table!");
         }
         return currentRevision;
     }
 
-    public synchronized Cursor albums(String[] orderBy) {
+    public PagedQuery albums(String sortColumn, boolean descending) {
         String[] fields = new String[]{ALBUMS_ALBUM, ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION,
                 ALBUMS_IMAGEPATH, ALBUMS_LASTMODIFIED};
         List<JoinInfo> joinInfos = new ArrayList<>();
@@ -464,247 +1274,167 @@ public class CollectionDb extends SQLiteOpenHelper {
         joinInfo.conditions.put(
                 TABLE_ALBUMS + "." + ALBUMS_ALBUMARTISTID, TABLE_ARTISTS + "." + ID);
         joinInfos.add(joinInfo);
-        return sqlSelect(TABLE_ALBUMS, fields, null, joinInfos, orderBy);
+        String[] orderColumns;
+        if (ARTISTS_ARTIST.equals(sortColumn)) {
+            // Walks the artists along their UNIQUE key and their albums along
+            // albums_albumArtistId
+            orderColumns = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION,
+                    TABLE_ARTISTS + "." + ID, TABLE_ALBUMS + "." + ID};
+        } else if (ALBUMS_ALBUM.equals(sortColumn)) {
+            orderColumns = new String[]{ALBUMS_ALBUM, TABLE_ALBUMS + "." + ALBUMS_ALBUMARTISTID};
+        } else {
+            orderColumns = new String[]{sortColumn, TABLE_ALBUMS + "." + ID};
+        }
+        return new PagedQuery(TABLE_ALBUMS, fields, joinInfos, orderColumns, descending);
     }
 
-    public synchronized Cursor artists(String[] orderBy) {
+    public PagedQuery artists(String sortColumn, boolean descending) {
         String[] fields = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION,
                 ARTISTS_LASTMODIFIED};
-        return sqlSelect(TABLE_ARTISTS, fields, null, null, orderBy);
+        String[] orderColumns;
+        if (ARTISTS_ARTIST.equals(sortColumn)) {
+            orderColumns = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION};
+        } else {
+            orderColumns = new String[]{sortColumn, TABLE_ARTISTS + "." + ID};
+        }
+        return new PagedQuery(TABLE_ARTISTS, fields, null, orderColumns, descending);
     }
 
-    public synchronized Cursor albumArtists(String[] orderBy) {
+    public PagedQuery albumArtists(String sortColumn, boolean descending) {
         String[] fields = new String[]{ALBUMARTISTS_ALBUMARTIST,
                 ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION, ALBUMARTISTS_LASTMODIFIED};
-        return sqlSelect(TABLE_ALBUMARTISTS, fields, null, null, orderBy);
+        String[] orderColumns;
+        if (ALBUMARTISTS_ALBUMARTIST.equals(sortColumn)) {
+            orderColumns = new String[]{ALBUMARTISTS_ALBUMARTIST,
+                    ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION};
+        } else {
+            orderColumns = new String[]{sortColumn, TABLE_ALBUMARTISTS + "." + ID};
+        }
+        return new PagedQuery(TABLE_ALBUMARTISTS, fields, null, orderColumns, descending);
     }
 
-    public synchronized long artistCurrentRevision(String artist, String artistDisambiguation) {
-        String[] fields = new String[]{ARTISTS_LASTMODIFIED};
-        WhereInfo whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ARTISTS_ARTIST, new String[]{artist});
-        whereInfo.where.put(ARTISTS_ARTISTDISAMBIGUATION, new String[]{artistDisambiguation});
-        long currentRevision = -1;
-        Cursor cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ARTISTS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                currentRevision = cursor.getLong(0);
-            } else {
-                Log.e(TAG, "artistCurrentRevision - Couldn't find artist with given name!");
-                return -1;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+    public long artistCurrentRevision(String artist, String artistDisambiguation) {
+        long currentRevision = simpleQueryForLong(SQL_ARTIST_CURRENT_REVISION, artist,
+                artistDisambiguation);
+        if (currentRevision < 0) {
+            Log.e(TAG, "artistCurrentRevision - Couldn't find artist with given name!");
         }
         return currentRevision;
     }
 
-    public synchronized Cursor artistAlbums(String artist, String artistDisambiguation) {
-        String[] fields = new String[]{ID};
-        WhereInfo whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ARTISTS_ARTIST, new String[]{artist});
-        whereInfo.where.put(ARTISTS_ARTISTDISAMBIGUATION, new String[]{artistDisambiguation});
-        int artistId;
-        Cursor cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ARTISTS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                artistId = cursor.getInt(0);
-            } else {
-                Log.e(TAG, "artistAlbums - Couldn't find artist with given name!");
-                return null;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-        fields = new String[]{ALBUMS_ALBUM, ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION,
-                ALBUMS_IMAGEPATH, ALBUMS_LASTMODIFIED};
-        whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ARTISTALBUMS_ARTISTID, new String[]{String.valueOf(artistId)});
-        List<JoinInfo> joinInfos = new ArrayList<>();
-        JoinInfo joinInfo = new JoinInfo();
-        joinInfo.table = TABLE_ALBUMS;
-        joinInfo.conditions.put(
-                TABLE_ARTISTALBUMS + "." + ARTISTALBUMS_ALBUMID, TABLE_ALBUMS + "." + ID);
-        joinInfos.add(joinInfo);
-        joinInfo = new JoinInfo();
-        joinInfo.table = TABLE_ARTISTS;
-        joinInfo.conditions.put(
-                TABLE_ALBUMS + "." + ALBUMS_ALBUMARTISTID, TABLE_ARTISTS + "." + ID);
-        joinInfos.add(joinInfo);
-        return sqlSelect(TABLE_ARTISTALBUMS, fields, whereInfo, joinInfos,
-                new String[]{ALBUMS_ALBUM});
+    public Cursor artistAlbums(String artist, String artistDisambiguation) {
+        return mDb.rawQuery(SQL_ARTIST_ALBUMS, new String[]{artist, artistDisambiguation});
     }
 
-    public synchronized long albumCurrentRevision(String album, String albumArtist,
+    public long albumCurrentRevision(String album, String albumArtist,
             String albumArtistDisambiguation) {
-        String[] fields = new String[]{ID};
-        WhereInfo whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ARTISTS_ARTIST, new String[]{albumArtist});
-        whereInfo.where.put(ARTISTS_ARTISTDISAMBIGUATION, new String[]{albumArtistDisambiguation});
-        int artistId;
-        Cursor cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ARTISTS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                artistId = cursor.getInt(0);
-            } else {
-                Log.e(TAG, "albumCurrentRevision - Couldn't find artist with given name!");
-                return -1;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-        fields = new String[]{ALBUMS_LASTMODIFIED};
-        whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ALBUMS_ALBUM, new String[]{album});
-        whereInfo.where.put(ALBUMS_ALBUMARTISTID, new String[]{String.valueOf(artistId)});
-        long currentRevision = -1;
-        cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ALBUMS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                currentRevision = cursor.getLong(0);
-            } else {
-                Log.e(TAG, "albumCurrentRevision - Couldn't find album with given name!");
-                return -1;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+        long currentRevision = simpleQueryForLong(SQL_ALBUM_CURRENT_REVISION, album,
+                albumArtist, albumArtistDisambiguation);
+        if (currentRevision < 0) {
+            Log.e(TAG, "albumCurrentRevision - Couldn't find album with given name!");
         }
         return currentRevision;
     }
 
-    public synchronized Cursor albumTracks(String album, String albumArtist,
+    public Cursor albumTracks(String album, String albumArtist,
             String albumArtistDisambiguation) {
-        String[] fields = new String[]{ID};
-        WhereInfo whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ARTISTS_ARTIST, new String[]{albumArtist});
-        whereInfo.where.put(ARTISTS_ARTISTDISAMBIGUATION, new String[]{albumArtistDisambiguation});
-        int artistId;
-        Cursor cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ARTISTS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                artistId = cursor.getInt(0);
-            } else {
-                Log.e(TAG, "albumTracks - Couldn't find artist with given name!");
-                return null;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+        return mDb.rawQuery(SQL_ALBUM_TRACKS,
+                new String[]{album, albumArtist, albumArtistDisambiguation});
+    }
+
+    /**
+     * Runs the given query, which has to return a single long value, with a cached compiled
+     * statement.
+     *
+     * @return the result of the query or -1, if no row has been found
+     */
+    private long simpleQueryForLong(String sql, String... bindArgs) {
+        SQLiteStatement statement;
+        synchronized (mCompiledStatements) {
+            statement = mCompiledStatements.get(sql);
+            if (statement == null) {
+                statement = mDb.compileStatement(sql);
+                mCompiledStatements.put(sql, statement);
             }
         }
-        fields = new String[]{ID};
-        whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(ALBUMS_ALBUM, new String[]{album});
-        whereInfo.where.put(ALBUMS_ALBUMARTISTID, new String[]{String.valueOf(artistId)});
-        int albumId;
-        cursor = null;
-        try {
-            cursor = sqlSelect(TABLE_ALBUMS, fields, whereInfo, null, null);
-            if (cursor.moveToFirst()) {
-                albumId = cursor.getInt(0);
-            } else {
-                Log.e(TAG, "albumTracks - Couldn't find album with given name!");
-                return null;
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+        synchronized (statement) {
+            try {
+                statement.bindAllArgsAsStrings(bindArgs);
+                return statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return -1;
+            } finally {
+                statement.clearBindings();
             }
         }
-
-        whereInfo = new WhereInfo();
-        whereInfo.connection = "AND";
-        whereInfo.where.put(TRACKS_ALBUMID, new String[]{String.valueOf(String.valueOf(albumId))});
-        return tracks(whereInfo, new String[]{TRACKS_ALBUMPOS});
     }
 
     private Cursor sqlSelect(String table, String[] fields, WhereInfo where,
             List<JoinInfo> joinInfos, String[] orderBy) {
-        String whereString = "";
+        StringBuilder statement = new StringBuilder("SELECT ");
+        if (fields != null) {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    statement.append(", ");
+                }
+                statement.append(fields[i]);
+            }
+        } else {
+            statement.append("*");
+        }
+        statement.append(sqlFrom(table, joinInfos));
+
         List<String> allWhereValues = new ArrayList<>();
         if (where != null) {
-            whereString = " WHERE ";
+            statement.append(" WHERE ");
             boolean notFirst = false;
             for (String whereKey : where.where.keySet()) {
                 String[] whereValues = where.where.get(whereKey);
                 for (String whereValue : whereValues) {
                     if (notFirst) {
-                        whereString += " " + where.connection + " ";
+                        statement.append(" ").append(where.connection).append(" ");
                     }
                     notFirst = true;
-                    whereString += table + "." + whereKey + " = ?";
+                    statement.append(table).append(".").append(whereKey).append(" = ?");
                     allWhereValues.add(whereValue);
                 }
             }
         }
 
-        String joinString = "";
+        if (orderBy != null) {
+            statement.append(" ORDER BY ");
+            for (int i = 0; i < orderBy.length; i++) {
+                if (i > 0) {
+                    statement.append(", ");
+                }
+                statement.append(orderBy[i]);
+            }
+        }
+
+        String[] allWhereValuesArray = null;
+        if (allWhereValues.size() > 0) {
+            allWhereValuesArray = allWhereValues.toArray(new String[allWhereValues.size()]);
+        }
+        return mDb.rawQuery(statement.toString(), allWhereValuesArray);
+    }
+
+    private static String sqlFrom(String table, List<JoinInfo> joinInfos) {
+        StringBuilder from = new StringBuilder(" FROM ").append(table);
         if (joinInfos != null) {
             for (JoinInfo joinInfo : joinInfos) {
-                joinString += " INNER JOIN " + joinInfo.table + " ON ";
+                from.append(joinInfo.crossJoin ? " CROSS JOIN " : " INNER JOIN ")
+                        .append(joinInfo.table).append(" ON ");
                 boolean notFirst = false;
                 for (String joinKey : joinInfo.conditions.keySet()) {
                     if (notFirst) {
-                        joinString += " AND ";
+                        from.append(" AND ");
                     }
                     notFirst = true;
-                    joinString += joinKey + " = " + joinInfo.conditions.get(joinKey);
+                    from.append(joinKey).append(" = ").append(joinInfo.conditions.get(joinKey));
                 }
             }
         }
-
-        String orderString = "";
-        if (orderBy != null) {
-            orderString = " ORDER BY ";
-            boolean notFirst = false;
-            for (String orderingTerm : orderBy) {
-                if (notFirst) {
-                    joinString += " , ";
-                }
-                notFirst = true;
-                orderString += orderingTerm;
-            }
-        }
-
-        String fieldsString = "*";
-        if (fields != null) {
-            fieldsString = "";
-            boolean notFirst = false;
-            for (String field : fields) {
-                if (notFirst) {
-                    fieldsString += ", ";
-                }
-                notFirst = true;
-                fieldsString += field;
-            }
-        }
-        String statement = "SELECT " + fieldsString + " FROM " + table + joinString + whereString
-                + orderString;
-        String[] allWhereValuesArray = null;
-        if (allWhereValues.size() > 0) {
-            allWhereValuesArray = allWhereValues.toArray(new String[allWhereValues.size()]);
-        }
-        return mDb.rawQuery(statement, allWhereValuesArray);
+        return from.toString();
     }
 
     private static String concatKeys(Object... keys) {
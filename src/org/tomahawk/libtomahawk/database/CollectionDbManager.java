@@ -17,31 +17,98 @@
  */
 package org.tomahawk.libtomahawk.database;
 
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 
+import android.util.Log;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class CollectionDbManager {
 
     public static final String TAG = CollectionDbManager.class.getSimpleName();
 
+    private static final int WRITE_ADD_TRACKS = 0;
+
+    private static final int WRITE_MERGE_TRACKS = 1;
+
+    private static final int WRITE_WIPE = 2;
+
+    /**
+     * Consecutive addTracks writes to the same {@link CollectionDb} are being combined into a
+     * single transaction until this number of tracks is reached
+     */
+    private static final int MAX_BATCH_SIZE = 5000;
+
     private static class Holder {
 
         private static final CollectionDbManager instance = new CollectionDbManager();
 
     }
 
-    private Map<String, CollectionDb> mCollectionDbs = new HashMap<>();
+    public interface WriteCallback {
+
+        /**
+         * @param success whether or not the write has been committed. If false, nothing of it
+         *                has been written.
+         */
+        void onWritten(boolean success);
+    }
+
+    private static class WriteJob {
+
+        private final CollectionDb mDb;
+
+        private final int mType;
+
+        private ScriptResolverTrack[] mTracks;
+
+        private final List<WriteCallback> mCallbacks = new ArrayList<>();
+
+        private WriteJob(CollectionDb db, int type, ScriptResolverTrack[] tracks,
+                WriteCallback callback) {
+            mDb = db;
+            mType = type;
+            mTracks = tracks;
+            if (callback != null) {
+                mCallbacks.add(callback);
+            }
+        }
+    }
+
+    private final Map<String, CollectionDb> mCollectionDbs = new HashMap<>();
+
+    private final LinkedBlockingQueue<WriteJob> mWriteJobs = new LinkedBlockingQueue<>();
 
     private CollectionDbManager() {
+        Thread writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        write(mWriteJobs.take());
+                    } catch (InterruptedException e) {
+                        Log.e(TAG, "writerThread - " + e.getClass() + ": "
+                                + e.getLocalizedMessage());
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }, TAG + "Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
     }
 
     public static CollectionDbManager get() {
         return Holder.instance;
     }
 
-    public CollectionDb getCollectionDb(String collectionId) {
+    public synchronized CollectionDb getCollectionDb(String collectionId) {
         CollectionDb db = mCollectionDbs.get(collectionId);
         if (db == null) {
             db = new CollectionDb(TomahawkApp.getContext(), collectionId);
@@ -50,4 +117,76 @@ public class CollectionDbManager {
         return db;
     }
 
+    /**
+     * Add the given tracks to the {@link CollectionDb} with the given id on the writer thread. The
+     * given callback is being called on the writer thread once the tracks have been written.
+     */
+    public void addTracks(String collectionId, ScriptResolverTrack[] tracks,
+            WriteCallback callback) {
+        if (tracks == null) {
+            tracks = new ScriptResolverTrack[0];
+        }
+        mWriteJobs.add(new WriteJob(getCollectionDb(collectionId), WRITE_ADD_TRACKS, tracks,
+                callback));
+    }
+
+    /**
+     * Merge the given tracks into the {@link CollectionDb} with the given id on the writer thread.
+     * The given callback is being called on the writer thread once the tracks have been merged.
+     */
+    public void mergeTracks(String collectionId, ScriptResolverTrack[] tracks,
+            WriteCallback callback) {
+        if (tracks == null) {
+            tracks = new ScriptResolverTrack[0];
+        }
+        mWriteJobs.add(new WriteJob(getCollectionDb(collectionId), WRITE_MERGE_TRACKS, tracks,
+                callback));
+    }
+
+    /**
+     * Wipe the {@link CollectionDb} with the given id on the writer thread. The given callback is
+     * being called on the writer thread once the db has been wiped.
+     */
+    public void wipe(String collectionId, WriteCallback callback) {
+        mWriteJobs.add(new WriteJob(getCollectionDb(collectionId), WRITE_WIPE, null, callback));
+    }
+
+    private void write(WriteJob job) {
+        if (job.mType == WRITE_ADD_TRACKS) {
+            // Combine all directly following addTracks jobs for the same db into one transaction
+            WriteJob nextJob = mWriteJobs.peek();
+            while (nextJob != null && nextJob.mType == WRITE_ADD_TRACKS && nextJob.mDb == job.mDb
+                    && job.mTracks.length + nextJob.mTracks.length <= MAX_BATCH_SIZE) {
+                mWriteJobs.poll();
+                ScriptResolverTrack[] tracks =
+                        new ScriptResolverTrack[job.mTracks.length + nextJob.mTracks.length];
+                System.arraycopy(job.mTracks, 0, tracks, 0, job.mTracks.length);
+                System.arraycopy(nextJob.mTracks, 0, tracks, job.mTracks.length,
+                        nextJob.mTracks.length);
+                job.mTracks = tracks;
+                job.mCallbacks.addAll(nextJob.mCallbacks);
+                nextJob = mWriteJobs.peek();
+            }
+        }
+        boolean success = true;
+        try {
+            switch (job.mType) {
+                case WRITE_ADD_TRACKS:
+                    job.mDb.addTracks(job.mTracks);
+                    break;
+                case WRITE_MERGE_TRACKS:
+                    job.mDb.mergeTracks(job.mTracks);
+                    break;
+                case WRITE_WIPE:
+                    job.mDb.wipe();
+                    break;
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "write - " + e.getClass() + ": " + e.getLocalizedMessage());
+            success = false;
+        }
+        for (WriteCallback callback : job.mCallbacks) {
+            callback.onWritten(success);
+        }
+    }
 }
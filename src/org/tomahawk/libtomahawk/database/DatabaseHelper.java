@@ -19,6 +19,7 @@ package org.tomahawk.libtomahawk.database;
 
 import org.tomahawk.libtomahawk.collection.Album;
 import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.CollectionCursor;
 import org.tomahawk.libtomahawk.collection.Playlist;
 import org.tomahawk.libtomahawk.collection.PlaylistComparator;
 import org.tomahawk.libtomahawk.collection.PlaylistEntry;
@@ -63,6 +64,24 @@ public class DatabaseHelper {
 
     public static final int CHUNK_SIZE = 50;
 
+    private static final String[] PLAYLIST_COLUMNS = new String[]{
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID,
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_NAME,
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_CURRENTREVISION,
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_HATCHETID,
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_TOPARTISTS,
+            TomahawkSQLiteHelper.PLAYLISTS_COLUMN_TRACKCOUNT};
+
+    // The column order that CollectionCursor expects for the entries of a stored Playlist
+    private static final String[] PLAYLIST_ENTRY_COLUMNS = new String[]{
+            TomahawkSQLiteHelper.TRACKS_COLUMN_ARTISTNAME,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_ALBUMNAME,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKNAME,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_RESULTHINT,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_ISFETCHEDVIAHATCHET,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTENTRYID,
+            TomahawkSQLiteHelper.TRACKS_COLUMN_ID};
+
     private static class Holder {
 
         private static final DatabaseHelper instance = new DatabaseHelper();
@@ -81,6 +100,8 @@ public class DatabaseHelper {
         TomahawkSQLiteHelper dbHelper = new TomahawkSQLiteHelper(TomahawkApp.getContext());
         dbHelper.close();
         mDatabase = dbHelper.getWritableDatabase();
+        // Let reads run on their own connections, so that they don't have to wait for writes
+        mDatabase.enableWriteAheadLogging();
     }
 
     public static DatabaseHelper get() {
@@ -301,17 +322,13 @@ public class DatabaseHelper {
      */
     public List<Playlist> getPlaylists() {
         final List<Playlist> playListList = new ArrayList<>();
-        String[] columns = new String[]{TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID};
 
         Cursor playlistsCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_PLAYLISTS,
-                columns, TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID + " != ?",
+                PLAYLIST_COLUMNS, TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID + " != ?",
                 new String[]{LOVEDITEMS_PLAYLIST_ID}, null, null, null);
         playlistsCursor.moveToFirst();
         while (!playlistsCursor.isAfterLast()) {
-            Playlist playlist = getEmptyPlaylist(playlistsCursor.getString(0));
-            if (playlist != null) {
-                playListList.add(playlist);
-            }
+            playListList.add(playlistFromCursor(playlistsCursor));
             playlistsCursor.moveToNext();
         }
         playlistsCursor.close();
@@ -381,29 +398,38 @@ public class DatabaseHelper {
      * its id
      */
     public Playlist getEmptyPlaylist(String playlistId) {
-        String[] columns = new String[]{TomahawkSQLiteHelper.PLAYLISTS_COLUMN_NAME,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_CURRENTREVISION,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_HATCHETID,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_TOPARTISTS};
-
         Cursor playlistsCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_PLAYLISTS,
-                columns, TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID + " = ?",
+                PLAYLIST_COLUMNS, TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID + " = ?",
                 new String[]{playlistId}, null, null, null);
+        Playlist playlist = null;
         if (playlistsCursor.moveToFirst()) {
-            Playlist playlist = Playlist.get(playlistId, true);
-            playlist.setName(playlistsCursor.getString(0));
-            playlist.setCurrentRevision(playlistsCursor.getString(1));
-            playlist.setHatchetId(playlistsCursor.getString(2));
-            String rawTopArtistsString = playlistsCursor.getString(3);
-            if (rawTopArtistsString != null && rawTopArtistsString.length() > 0) {
-                playlist.setTopArtistNames(rawTopArtistsString.split("\t\t"));
-            }
-            playlistsCursor.close();
-            playlist.setCount(getPlaylistTrackCount(playlistId));
-            return playlist;
+            playlist = playlistFromCursor(playlistsCursor);
         }
         playlistsCursor.close();
-        return null;
+        return playlist;
+    }
+
+    /**
+     * @param playlistsCursor a {@link Cursor} containing the {@link #PLAYLIST_COLUMNS}, which is
+     *                        positioned at the row that should be read
+     * @return the {@link Playlist} described by the current row, without any entries
+     */
+    private Playlist playlistFromCursor(Cursor playlistsCursor) {
+        String playlistId = playlistsCursor.getString(0);
+        Playlist playlist = Playlist.get(playlistId, true);
+        playlist.setName(playlistsCursor.getString(1));
+        playlist.setCurrentRevision(playlistsCursor.getString(2));
+        playlist.setHatchetId(playlistsCursor.getString(3));
+        String rawTopArtistsString = playlistsCursor.getString(4);
+        if (rawTopArtistsString != null && rawTopArtistsString.length() > 0) {
+            playlist.setTopArtistNames(rawTopArtistsString.split("\t\t"));
+        }
+        if (playlistsCursor.isNull(5)) {
+            playlist.setCount(getPlaylistTrackCount(playlistId));
+        } else {
+            playlist.setCount(playlistsCursor.getLong(5));
+        }
+        return playlist;
     }
 
     public Playlist getLovedItemsPlaylist() {
@@ -425,60 +451,20 @@ public class DatabaseHelper {
      * its id
      */
     private Playlist getPlaylist(String playlistId, boolean reverseEntries) {
-        String[] columns = new String[]{TomahawkSQLiteHelper.PLAYLISTS_COLUMN_NAME,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_CURRENTREVISION,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_HATCHETID,
-                TomahawkSQLiteHelper.PLAYLISTS_COLUMN_TOPARTISTS};
-
-        Cursor playlistsCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_PLAYLISTS,
-                columns, TomahawkSQLiteHelper.PLAYLISTS_COLUMN_ID + " = ?",
-                new String[]{playlistId}, null, null, null);
-        if (playlistsCursor.moveToFirst()) {
-            columns = new String[]{TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKNAME,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_ARTISTNAME,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_ALBUMNAME,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_RESULTHINT,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_ISFETCHEDVIAHATCHET,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTENTRYID};
-            Cursor tracksCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_TRACKS, columns,
-                    TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTID + " = ?",
+        Playlist playlist = getEmptyPlaylist(playlistId);
+        if (playlist != null) {
+            // The entries are only being materialized when they are requested
+            Cursor tracksCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_TRACKS,
+                    PLAYLIST_ENTRY_COLUMNS, TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTID + " = ?",
                     new String[]{playlistId}, null, null,
                     TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTENTRYINDEX + (reverseEntries
                             ? " DESC" : " ASC"));
-            ArrayList<PlaylistEntry> entries = new ArrayList<>();
-            tracksCursor.moveToFirst();
-            while (!tracksCursor.isAfterLast()) {
-                String trackName = tracksCursor.getString(0);
-                String artistName = tracksCursor.getString(1);
-                String albumName = tracksCursor.getString(2);
-                String resultHint = tracksCursor.getString(3);
-                Query query = Query.get(trackName, albumName, artistName, resultHint, false,
-                        tracksCursor.getInt(4) == TRUE);
-                String entryId;
-                if (tracksCursor.getString(5) != null) {
-                    entryId = tracksCursor.getString(5);
-                } else {
-                    entryId = TomahawkMainActivity.getLifetimeUniqueStringId();
-                }
-                PlaylistEntry entry = PlaylistEntry.get(playlistId, query, entryId);
-                entries.add(entry);
-                tracksCursor.moveToNext();
-            }
-            Playlist playlist = Playlist.fromEntriesList(playlistId, true,
-                    playlistsCursor.getString(0), playlistsCursor.getString(1), entries);
-            playlist.setHatchetId(playlistsCursor.getString(2));
+            CollectionCursor<PlaylistEntry> cursor =
+                    new CollectionCursor<>(tracksCursor, PlaylistEntry.class, playlist);
+            playlist.setCursor(cursor);
             playlist.setFilled(true);
-            tracksCursor.close();
-            String rawTopArtistsString = playlistsCursor.getString(3);
-            if (rawTopArtistsString != null && rawTopArtistsString.length() > 0) {
-                playlist.setTopArtistNames(rawTopArtistsString.split("\t\t"));
-            }
-            playlistsCursor.close();
-            playlist.setCount(getPlaylistTrackCount(playlistId));
-            return playlist;
         }
-        playlistsCursor.close();
-        return null;
+        return playlist;
     }
 
     /**
@@ -1020,6 +1006,34 @@ public class DatabaseHelper {
      * @param media which you like to add to the database
      */
     public synchronized void addMedia(MediaWrapper media) {
+        ContentValues values = buildMediaValues(media);
+
+        mDatabase.beginTransaction();
+        mDatabase.replace(TomahawkSQLiteHelper.TABLE_MEDIA, "NULL", values);
+        mDatabase.setTransactionSuccessful();
+        mDatabase.endTransaction();
+
+    }
+
+    /**
+     * Add the given medias to the database. All medias are being added within one transaction.
+     *
+     * @param medias the List of medias which you like to add to the database
+     */
+    public synchronized void addMedias(List<MediaWrapper> medias) {
+        mDatabase.beginTransaction();
+        try {
+            for (MediaWrapper media : medias) {
+                mDatabase.replace(TomahawkSQLiteHelper.TABLE_MEDIA, "NULL",
+                        buildMediaValues(media));
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    private static ContentValues buildMediaValues(MediaWrapper media) {
         ContentValues values = new ContentValues();
 
         values.put(TomahawkSQLiteHelper.MEDIA_LOCATION, media.getLocation());
@@ -1039,12 +1053,7 @@ public class DatabaseHelper {
         values.put(TomahawkSQLiteHelper.MEDIA_TRACKNUMBER, media.getTrackNumber());
         values.put(TomahawkSQLiteHelper.MEDIA_DISCNUMBER, media.getDiscNumber());
         values.put(TomahawkSQLiteHelper.MEDIA_LASTMODIFIED, media.getLastModified());
-
-        mDatabase.beginTransaction();
-        mDatabase.replace(TomahawkSQLiteHelper.TABLE_MEDIA, "NULL", values);
-        mDatabase.setTransactionSuccessful();
-        mDatabase.endTransaction();
-
+        return values;
     }
 
     public synchronized HashMap<String, MediaWrapper> getMedias() {
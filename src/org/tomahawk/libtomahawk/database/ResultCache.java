@@ -0,0 +1,418 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.database;
+
+import com.google.gson.JsonParseException;
+
+import org.tomahawk.libtomahawk.collection.Album;
+import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.Track;
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Resolver;
+import org.tomahawk.libtomahawk.resolver.Result;
+import org.tomahawk.libtomahawk.utils.GsonHelper;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the scored {@link Result}s that every {@link Resolver} has reported for a {@link Query}
+ * so that they can be served right away after the next app start, instead of having to resolve
+ * every {@link Query} through every {@link Resolver} again.
+ *
+ * There is one entry per {@link Query} key and {@link Resolver} id. An entry is considered stale
+ * once it is older than the time to live of its {@link Resolver}. Stale entries are still being
+ * returned, it is up to the caller to refresh them. The number of entries is bounded by
+ * MAX_ENTRIES, the least recently accessed entries are evicted first.
+ */
+public class ResultCache extends SQLiteOpenHelper {
+
+    public static final String TAG = ResultCache.class.getSimpleName();
+
+    public static final String TABLE_RESULTS = "results";
+
+    public static final String RESULTS_QUERYKEY = "queryKey";
+
+    public static final String RESULTS_RESOLVERID = "resolverId";
+
+    public static final String RESULTS_DATA = "data";
+
+    public static final String RESULTS_TIMESTAMP = "timestamp";
+
+    public static final String RESULTS_LASTACCESS = "lastAccess";
+
+    public static final long DEFAULT_TIME_TO_LIVE = 24 * 60 * 60 * 1000;
+
+    public static final long SUBSCRIPTION_TIME_TO_LIVE = 7 * DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * Entries without any results expire sooner, so that a {@link Resolver} the user has just
+     * logged into isn't being ignored for too long
+     */
+    public static final long EMPTY_TIME_TO_LIVE = 60 * 60 * 1000;
+
+    public static final int MAX_ENTRIES = 20000;
+
+    private static final int TRIM_INTERVAL = 100;
+
+    /**
+     * The number of accessed {@link Query} keys after which their access times are being written
+     * to the database, even if no trim is due yet
+     */
+    private static final int MAX_PENDING_ACCESSES = 100;
+
+    private static final String CREATE_TABLE_RESULTS = "CREATE TABLE IF NOT EXISTS "
+            + TABLE_RESULTS + " ("
+            + RESULTS_QUERYKEY + " TEXT NOT NULL,"
+            + RESULTS_RESOLVERID + " TEXT NOT NULL,"
+            + RESULTS_DATA + " TEXT,"
+            + RESULTS_TIMESTAMP + " INTEGER,"
+            + RESULTS_LASTACCESS + " INTEGER,"
+            + "PRIMARY KEY (" + RESULTS_QUERYKEY + ", " + RESULTS_RESOLVERID
+            + ") ON CONFLICT REPLACE);";
+
+    private static final String CREATE_INDEX_LASTACCESS = "CREATE INDEX IF NOT EXISTS "
+            + TABLE_RESULTS + "_" + RESULTS_LASTACCESS + " ON " + TABLE_RESULTS + " ("
+            + RESULTS_LASTACCESS + ");";
+
+    private static final int DB_VERSION = 1;
+
+    private static final String DB_FILE = "resultcache.db";
+
+    private static final Map<String, Long> sTimesToLive = new ConcurrentHashMap<>();
+
+    static {
+        sTimesToLive.put(TomahawkApp.PLUGINNAME_SPOTIFY, SUBSCRIPTION_TIME_TO_LIVE);
+        sTimesToLive.put(TomahawkApp.PLUGINNAME_DEEZER, SUBSCRIPTION_TIME_TO_LIVE);
+        sTimesToLive.put(TomahawkApp.PLUGINNAME_RDIO, SUBSCRIPTION_TIME_TO_LIVE);
+        sTimesToLive.put(TomahawkApp.PLUGINNAME_BEATSMUSIC, SUBSCRIPTION_TIME_TO_LIVE);
+    }
+
+    private final SQLiteDatabase mDb;
+
+    private int mPutsSinceTrim;
+
+    // Maps the keys of the Queries whose entries have been accessed to the time of their last
+    // access. Written to the database in one batch, instead of one UPDATE per hit.
+    private final Map<String, Long> mPendingAccesses = new HashMap<>();
+
+    private long mHits;
+
+    private long mStaleHits;
+
+    private long mMisses;
+
+    private static class Holder {
+
+        private static final ResultCache instance = new ResultCache(TomahawkApp.getContext());
+
+    }
+
+    /**
+     * The part of a {@link Result} that is needed to restore it, plus the score it got when it was
+     * being reported for the cached {@link Query}
+     */
+    public static class CachedResult {
+
+        public String mUrl;
+
+        public String mTrack;
+
+        public String mArtist;
+
+        public String mAlbum;
+
+        public float mScore;
+
+        public int mBitrate;
+
+        public int mSize;
+
+        public long mDuration;
+
+        public int mAlbumPos;
+
+        public String mLinkUrl;
+
+        public String mPurchaseUrl;
+
+        public static CachedResult from(Result result, float score) {
+            CachedResult cachedResult = new CachedResult();
+            cachedResult.mUrl = result.getPath();
+            cachedResult.mTrack = result.getTrack().getName();
+            cachedResult.mArtist = result.getArtist().getName();
+            cachedResult.mAlbum = result.getAlbum().getName();
+            cachedResult.mScore = score;
+            cachedResult.mBitrate = result.getBitrate();
+            cachedResult.mSize = result.getSize();
+            cachedResult.mDuration = result.getTrack().getDuration();
+            cachedResult.mAlbumPos = result.getTrack().getAlbumPos();
+            cachedResult.mLinkUrl = result.getLinkUrl();
+            cachedResult.mPurchaseUrl = result.getPurchaseUrl();
+            return cachedResult;
+        }
+
+        public Result toResult(Resolver resolver) {
+            Artist artist = Artist.get(mArtist);
+            Album album = Album.get(mAlbum, artist);
+            Track track = Track.get(mTrack, album, artist);
+            if (track.getDuration() == 0) {
+                track.setDuration(mDuration);
+            }
+            if (track.getAlbumPos() == 0) {
+                track.setAlbumPos(mAlbumPos);
+            }
+            Result result = Result.get(mUrl, track, resolver);
+            result.setBitrate(mBitrate);
+            result.setSize(mSize);
+            result.setLinkUrl(mLinkUrl);
+            result.setPurchaseUrl(mPurchaseUrl);
+            return result;
+        }
+    }
+
+    /**
+     * All {@link CachedResult}s that one {@link Resolver} has reported for a {@link Query}
+     */
+    public static class Entry {
+
+        public String mResolverId;
+
+        public long mTimeStamp;
+
+        public boolean mIsStale;
+
+        public List<CachedResult> mResults;
+    }
+
+    public static class Stats {
+
+        public long mHits;
+
+        public long mStaleHits;
+
+        public long mMisses;
+
+        public long mSize;
+
+        /**
+         * @return the fraction of lookups that could be answered with at least one fresh entry
+         */
+        public float getHitRate() {
+            long lookups = mHits + mStaleHits + mMisses;
+            return lookups == 0 ? 0f : (float) mHits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "hits: " + mHits + ", stale hits: " + mStaleHits + ", misses: " + mMisses
+                    + ", hit rate: " + getHitRate() + ", size: " + mSize;
+        }
+    }
+
+    private ResultCache(Context context) {
+        super(context, DB_FILE, null, DB_VERSION);
+
+        close();
+        mDb = getWritableDatabase();
+        trimToSize();
+    }
+
+    public static ResultCache get() {
+        return Holder.instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_RESULTS);
+        db.execSQL(CREATE_INDEX_LASTACCESS);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.d(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion
+                + ", which might destroy all old data");
+    }
+
+    /**
+     * Set the time after which the cached results of the {@link Resolver} with the given id are
+     * considered stale
+     */
+    public static void setTimeToLive(String resolverId, long timeToLive) {
+        sTimesToLive.put(resolverId, timeToLive);
+    }
+
+    public static long getTimeToLive(String resolverId) {
+        Long timeToLive = sTimesToLive.get(resolverId);
+        return timeToLive != null ? timeToLive : DEFAULT_TIME_TO_LIVE;
+    }
+
+    /**
+     * Get every cached {@link Entry} for the given {@link Query}, including stale ones.
+     *
+     * @return a {@link List} of {@link Entry}s, one for each {@link Resolver} that has reported
+     * results for the given {@link Query}. Empty if nothing has been cached yet.
+     */
+    public synchronized List<Entry> get(Query query) {
+        List<Entry> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        String[] whereArgs = new String[]{query.getCacheKey()};
+        Cursor cursor = mDb.query(TABLE_RESULTS,
+                new String[]{RESULTS_RESOLVERID, RESULTS_DATA, RESULTS_TIMESTAMP},
+                RESULTS_QUERYKEY + " = ?", whereArgs, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                Entry entry = new Entry();
+                entry.mResolverId = cursor.getString(0);
+                entry.mTimeStamp = cursor.getLong(2);
+                try {
+                    CachedResult[] results =
+                            GsonHelper.get().fromJson(cursor.getString(1), CachedResult[].class);
+                    if (results == null) {
+                        entry.mResults = Collections.emptyList();
+                    } else {
+                        entry.mResults = new ArrayList<>();
+                        Collections.addAll(entry.mResults, results);
+                    }
+                } catch (JsonParseException e) {
+                    Log.e(TAG, "get - " + e.getClass() + ": " + e.getLocalizedMessage());
+                    continue;
+                }
+                long timeToLive = entry.mResults.isEmpty()
+                        ? Math.min(EMPTY_TIME_TO_LIVE, getTimeToLive(entry.mResolverId))
+                        : getTimeToLive(entry.mResolverId);
+                entry.mIsStale = now - entry.mTimeStamp > timeToLive;
+                entries.add(entry);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (entries.isEmpty()) {
+            mMisses++;
+        } else {
+            boolean hasFreshEntry = false;
+            for (Entry entry : entries) {
+                hasFreshEntry |= !entry.mIsStale;
+            }
+            if (hasFreshEntry) {
+                mHits++;
+            } else {
+                mStaleHits++;
+            }
+            mPendingAccesses.put(query.getCacheKey(), now);
+            if (mPendingAccesses.size() >= MAX_PENDING_ACCESSES) {
+                flushAccesses();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Store the given {@link CachedResult}s that the {@link Resolver} with the given id has
+     * reported for the given {@link Query}. Replaces the previous entry of that {@link Resolver}.
+     */
+    public synchronized void put(Query query, String resolverId, List<CachedResult> results) {
+        long now = System.currentTimeMillis();
+        ContentValues values = new ContentValues();
+        values.put(RESULTS_QUERYKEY, query.getCacheKey());
+        values.put(RESULTS_RESOLVERID, resolverId);
+        values.put(RESULTS_DATA, GsonHelper.get().toJson(
+                results.toArray(new CachedResult[results.size()])));
+        values.put(RESULTS_TIMESTAMP, now);
+        values.put(RESULTS_LASTACCESS, now);
+        mDb.insert(TABLE_RESULTS, null, values);
+
+        if (++mPutsSinceTrim >= TRIM_INTERVAL) {
+            trimToSize();
+        }
+    }
+
+    /**
+     * Remove every entry of the {@link Resolver} with the given id. Should be called whenever the
+     * set of results a {@link Resolver} would report has changed, e.g. after logging in or out.
+     */
+    public synchronized void remove(String resolverId) {
+        mDb.delete(TABLE_RESULTS, RESULTS_RESOLVERID + " = ?", new String[]{resolverId});
+    }
+
+    public synchronized Stats getStats() {
+        Stats stats = new Stats();
+        stats.mHits = mHits;
+        stats.mStaleHits = mStaleHits;
+        stats.mMisses = mMisses;
+        stats.mSize = DatabaseUtils.queryNumEntries(mDb, TABLE_RESULTS);
+        return stats;
+    }
+
+    /**
+     * Write the access times of all entries that have been accessed since the last flush to the
+     * database, within a single transaction
+     */
+    private synchronized void flushAccesses() {
+        if (mPendingAccesses.isEmpty()) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        String[] whereArgs = new String[1];
+        mDb.beginTransaction();
+        try {
+            for (Map.Entry<String, Long> access : mPendingAccesses.entrySet()) {
+                values.put(RESULTS_LASTACCESS, access.getValue());
+                whereArgs[0] = access.getKey();
+                mDb.update(TABLE_RESULTS, values, RESULTS_QUERYKEY + " = ?", whereArgs);
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        mPendingAccesses.clear();
+    }
+
+    /**
+     * Evict the least recently accessed entries until there are no more than MAX_ENTRIES left.
+     * Evicts a tenth of MAX_ENTRIES more than necessary, so that this doesn't have to be done on
+     * every call to {@link #put}.
+     */
+    private synchronized void trimToSize() {
+        mPutsSinceTrim = 0;
+        // Make sure that recently accessed entries aren't being evicted
+        flushAccesses();
+        long size = DatabaseUtils.queryNumEntries(mDb, TABLE_RESULTS);
+        if (size > MAX_ENTRIES) {
+            long evictCount = size - MAX_ENTRIES + MAX_ENTRIES / 10;
+            mDb.execSQL("DELETE FROM " + TABLE_RESULTS + " WHERE rowid IN (SELECT rowid FROM "
+                    + TABLE_RESULTS + " ORDER BY " + RESULTS_LASTACCESS + " ASC LIMIT "
+                    + evictCount + ");");
+            Log.d(TAG, "trimToSize - evicted " + evictCount + " entries");
+        }
+    }
+}
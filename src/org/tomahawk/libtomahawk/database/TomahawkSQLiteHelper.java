@@ -162,7 +162,7 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "userplaylists.db";
 
-    private static final int DATABASE_VERSION = 19;
+    private static final int DATABASE_VERSION = 20;
 
     // Database creation sql statements
     private static final String CREATE_TABLE_PLAYLISTS =
@@ -190,6 +190,12 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
                     + " REFERENCES `" + TABLE_PLAYLISTS + "` (`" + PLAYLISTS_COLUMN_ID
                     + "`));";
 
+    // Lets the entries of a playlist be read in order without sorting the whole table
+    private static final String CREATE_INDEX_TRACKS_PLAYLISTID =
+            "CREATE INDEX IF NOT EXISTS `" + TABLE_TRACKS + "_" + TRACKS_COLUMN_PLAYLISTID
+                    + "_index` ON `" + TABLE_TRACKS + "` (`" + TRACKS_COLUMN_PLAYLISTID + "`, `"
+                    + TRACKS_COLUMN_PLAYLISTENTRYINDEX + "`);";
+
     private static final String CREATE_TABLE_SEARCHHISTORY =
             "CREATE TABLE `" + TABLE_SEARCHHISTORY + "` (  `"
                     + SEARCHHISTORY_COLUMN_ID + "` INTEGER PRIMARY KEY AUTOINCREMENT, `"
@@ -258,6 +264,7 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase database) {
         database.execSQL(CREATE_TABLE_PLAYLISTS);
         database.execSQL(CREATE_TABLE_TRACKS);
+        database.execSQL(CREATE_INDEX_TRACKS_PLAYLISTID);
         database.execSQL(CREATE_TABLE_SEARCHHISTORY);
         database.execSQL(CREATE_TABLE_INFOSYSTEMOPLOGINFO);
         database.execSQL(CREATE_TABLE_INFOSYSTEMOPLOG);
@@ -302,6 +309,9 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
                 db.execSQL("DROP TABLE IF EXISTS `" + TABLE_MEDIA + "`;");
                 db.execSQL(CREATE_TABLE_MEDIA);
             }
+            if (oldVersion < 20) {
+                db.execSQL(CREATE_INDEX_TRACKS_PLAYLISTID);
+            }
         }
     }
 
@@ -40,6 +40,7 @@ import org.tomahawk.libtomahawk.resolver.Query;
 import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
+import org.tomahawk.tomahawk_android.utils.EventCoalescer;
 
 import android.text.TextUtils;
 import android.util.Log;
@@ -48,6 +49,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import de.greenrobot.event.EventBus;
@@ -79,6 +81,15 @@ public class InfoSystem {
         public InfoRequestData mInfoRequestData;
     }
 
+    /**
+     * Contains the request ids of all {@link InfoRequestData}s that have been reported during the
+     * last EventCoalescer.DEFAULT_WINDOW ms. Is being posted on the main thread.
+     */
+    public static class BatchedResultsEvent {
+
+        public Set<String> mRequestIds;
+    }
+
     private final ArrayList<InfoPlugin> mInfoPlugins = new ArrayList<>();
 
     private final ConcurrentHashMap<String, InfoRequestData> mSentRequests
@@ -100,6 +111,15 @@ public class InfoSystem {
 
     private Query mNowPlaying = null;
 
+    private final EventCoalescer<String> mResultsCoalescer = new EventCoalescer<String>() {
+        @Override
+        protected Object createEvent(Set<String> keys) {
+            BatchedResultsEvent event = new BatchedResultsEvent();
+            event.mRequestIds = keys;
+            return event;
+        }
+    };
+
     private InfoSystem() {
         mInfoPlugins.add(new HatchetInfoPlugin());
     }
@@ -634,6 +654,7 @@ public class InfoSystem {
         event.mInfoRequestData = infoRequestData;
         event.mSuccess = success;
         EventBus.getDefault().post(event);
+        mResultsCoalescer.add(infoRequestData.getRequestId());
     }
 
 
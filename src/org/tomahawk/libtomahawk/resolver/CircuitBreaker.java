@@ -0,0 +1,180 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import android.os.SystemClock;
+
+/**
+ * Keeps track of the outcome of the last requests to a {@link Resolver}. If too many of them have
+ * failed, the breaker opens and no more requests are allowed. After a backoff time a single probe
+ * request is allowed. If it succeeds, the breaker closes again. If it fails, the backoff time is
+ * doubled.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Requests are allowed
+     */
+    public static final int STATE_CLOSED = 0;
+
+    /**
+     * Requests are not allowed until the backoff time has passed
+     */
+    public static final int STATE_OPEN = 1;
+
+    /**
+     * A single probe request is allowed
+     */
+    public static final int STATE_HALF_OPEN = 2;
+
+    private static final int WINDOW_SIZE = 20;
+
+    private static final int MIN_REQUEST_COUNT = 10;
+
+    private static final float FAILURE_RATE_THRESHOLD = 0.5f;
+
+    private static final long INITIAL_BACKOFF = 30 * 1000;
+
+    private static final long MAX_BACKOFF = 30 * 60 * 1000;
+
+    /**
+     * A probe that hasn't succeeded or failed after this time is counted as failed
+     */
+    private static final long PROBE_TIMEOUT = 30 * 1000;
+
+    private int mState = STATE_CLOSED;
+
+    // Ring buffer containing the outcomes of the last WINDOW_SIZE requests
+    private final boolean[] mFailures = new boolean[WINDOW_SIZE];
+
+    private int mOutcomeCount;
+
+    private int mFailureCount;
+
+    private int mNextOutcomeIndex;
+
+    private long mBackoff = INITIAL_BACKOFF;
+
+    private long mOpenUntil;
+
+    private long mProbeStartTime;
+
+    public synchronized int getState() {
+        return mState;
+    }
+
+    /**
+     * @return the time in ms the breaker stays open after the next failure
+     */
+    public synchronized long getBackoff() {
+        return mBackoff;
+    }
+
+    /**
+     * @return the failure rate of the last WINDOW_SIZE requests
+     */
+    public synchronized float getFailureRate() {
+        return mOutcomeCount > 0 ? (float) mFailureCount / mOutcomeCount : 0f;
+    }
+
+    /**
+     * Check whether or not a request is allowed. Should only be called when the request will
+     * actually be made, because it might use up the single probe request.
+     *
+     * @return whether or not the request is allowed
+     */
+    public synchronized boolean allowRequest() {
+        long now = SystemClock.elapsedRealtime();
+        if (mState == STATE_HALF_OPEN && now - mProbeStartTime > PROBE_TIMEOUT) {
+            open(now, true);
+        }
+        if (mState == STATE_OPEN && now >= mOpenUntil) {
+            mState = STATE_HALF_OPEN;
+            mProbeStartTime = now;
+            return true;
+        }
+        return mState == STATE_CLOSED;
+    }
+
+    /**
+     * Record a successful request
+     *
+     * @return whether or not the breaker has been closed
+     */
+    public synchronized boolean onSuccess() {
+        if (mState == STATE_HALF_OPEN) {
+            close();
+            return true;
+        } else if (mState == STATE_CLOSED) {
+            recordOutcome(false);
+        }
+        return false;
+    }
+
+    /**
+     * Record a failed or timed out request
+     *
+     * @return whether or not the breaker has been tripped, meaning that it changed from closed to
+     * open
+     */
+    public synchronized boolean onFailure() {
+        long now = SystemClock.elapsedRealtime();
+        if (mState == STATE_HALF_OPEN) {
+            open(now, true);
+        } else if (mState == STATE_CLOSED) {
+            recordOutcome(true);
+            if (mOutcomeCount >= MIN_REQUEST_COUNT
+                    && getFailureRate() >= FAILURE_RATE_THRESHOLD) {
+                open(now, false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (mOutcomeCount == WINDOW_SIZE) {
+            if (mFailures[mNextOutcomeIndex]) {
+                mFailureCount--;
+            }
+        } else {
+            mOutcomeCount++;
+        }
+        mFailures[mNextOutcomeIndex] = failed;
+        if (failed) {
+            mFailureCount++;
+        }
+        mNextOutcomeIndex = (mNextOutcomeIndex + 1) % WINDOW_SIZE;
+    }
+
+    private void open(long now, boolean probeFailed) {
+        if (probeFailed) {
+            mBackoff = Math.min(mBackoff * 2, MAX_BACKOFF);
+        }
+        mState = STATE_OPEN;
+        mOpenUntil = now + mBackoff;
+    }
+
+    private void close() {
+        mState = STATE_CLOSED;
+        mBackoff = INITIAL_BACKOFF;
+        mOutcomeCount = 0;
+        mFailureCount = 0;
+        mNextOutcomeIndex = 0;
+    }
+}
@@ -18,15 +18,23 @@
 package org.tomahawk.libtomahawk.resolver;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.standard.StandardFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntField;
-import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.FuzzyQuery;
@@ -34,8 +42,12 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.Version;
 import org.tomahawk.libtomahawk.database.CollectionDb;
 import org.tomahawk.libtomahawk.database.CollectionDbManager;
@@ -48,8 +60,14 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class FuzzyIndex {
 
@@ -61,15 +79,97 @@ public class FuzzyIndex {
 
     private static final String LAST_FUZZY_INDEX_UPDATE_SUFFIX = "_last_fuzzy_index_update";
 
+    private static final String FUZZY_INDEX_VERSION_SUFFIX = "_fuzzy_index_version";
+
+    /**
+     * Has to be increased whenever the structure of the indexed documents changes, so that existing
+     * indexes are being recreated
+     */
+    private static final int INDEX_VERSION = 2;
+
+    private static final String FIELD_ID = "id";
+
+    private static final String FIELD_ARTIST = "artist";
+
+    private static final String FIELD_ALBUM = "album";
+
+    private static final String FIELD_TRACK = "track";
+
+    // Contains artist, album and track name, so that a fulltext query can match any of them
+    private static final String FIELD_FULLTEXT = "fulltext";
+
+    // Contains the edge n-grams of every word in the fulltext field
+    private static final String FIELD_PREFIX = "prefix";
+
+    private static final int MIN_PREFIX_LENGTH = 1;
+
+    private static final int MAX_PREFIX_LENGTH = 20;
+
+    /**
+     * Words shorter than this are only being matched exactly. Longer words are being matched with
+     * an edit distance of 1, words of {@link #MIN_TWO_EDITS_LENGTH} or more with a distance of 2.
+     */
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    private static final int MIN_TWO_EDITS_LENGTH = 6;
+
+    /**
+     * The number of leading characters that have to match exactly in a fuzzy match. This way only a
+     * small part of the term dictionary has to be enumerated.
+     */
+    private static final int FUZZY_PREFIX_LENGTH = 1;
+
+    private static final int MAX_HITS = 50;
+
+    private static final int QUERY_CACHE_SIZE = 100;
+
+    // Stop words are kept, because they are an important part of a lot of artist and track names
+    private static final Analyzer ANALYZER =
+            new StandardAnalyzer(Version.LUCENE_47, CharArraySet.EMPTY_SET);
+
+    private static final Analyzer PREFIX_ANALYZER = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+            Tokenizer source = new StandardTokenizer(Version.LUCENE_47, reader);
+            TokenStream filter = new StandardFilter(Version.LUCENE_47, source);
+            filter = new LowerCaseFilter(Version.LUCENE_47, filter);
+            filter = new EdgeNGramTokenFilter(Version.LUCENE_47, filter, MIN_PREFIX_LENGTH,
+                    MAX_PREFIX_LENGTH);
+            return new TokenStreamComponents(source, filter);
+        }
+    };
+
+    /**
+     * The maximum number of ids that we put into a single sql query. Sqlite doesn't allow more than
+     * 999 variables per statement.
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final String mLastUpdateStorageKey;
 
+    private final String mIndexVersionStorageKey;
+
     private String mCollectionId;
 
     private String mLucenePath;
 
     private IndexWriter mLuceneWriter;
 
-    private SearcherManager mSearcherManager;
+    private volatile SearcherManager mSearcherManager;
+
+    /**
+     * The most recently parsed Lucene queries of this index, mapped to the texts they have been
+     * parsed from. Search-as-you-type repeats the same queries a lot.
+     */
+    private final Map<String, org.apache.lucene.search.Query> mQueryCache =
+            new LinkedHashMap<String, org.apache.lucene.search.Query>(QUERY_CACHE_SIZE, 0.75f,
+                    true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, org.apache.lucene.search.Query> eldest) {
+                    return size() > QUERY_CACHE_SIZE;
+                }
+            };
 
     public static class IndexResult {
 
@@ -89,7 +189,9 @@ public class FuzzyIndex {
                 PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
         long lastDbUpdate = preferences.getLong(collectionDb.getLastUpdateStorageKey(), -1);
         long lastIndexUpdate = preferences.getLong(mLastUpdateStorageKey, -2);
-        create(lastDbUpdate > lastIndexUpdate);
+        mIndexVersionStorageKey = mCollectionId + FUZZY_INDEX_VERSION_SUFFIX;
+        int indexVersion = preferences.getInt(mIndexVersionStorageKey, 1);
+        create(lastDbUpdate > lastIndexUpdate || indexVersion != INDEX_VERSION);
     }
 
     /**
@@ -100,9 +202,11 @@ public class FuzzyIndex {
      */
     public synchronized boolean create(boolean recreate) {
         CollectionDb collectionDb = CollectionDbManager.get().getCollectionDb(mCollectionId);
-        String[] fields = new String[]{CollectionDb.TABLE_TRACKS + "." + CollectionDb.ID,
-                CollectionDb.ARTISTS_ARTIST, CollectionDb.ALBUMS_ALBUM, CollectionDb.TRACKS_TRACK};
-        Cursor cursor = collectionDb.tracks(null, null, fields);
+        if (recreate) {
+            // All pending changes will be part of the recreated index anyway
+            collectionDb.pollTrackChanges();
+        }
+        Cursor cursor = collectionDb.tracks(null, null, getIndexedFields());
         try {
             Log.d(TAG, "create - recreate:" + recreate);
             beginIndexing(recreate);
@@ -111,22 +215,13 @@ public class FuzzyIndex {
                 cursor.moveToFirst();
                 if (!cursor.isAfterLast()) {
                     do {
-                        Document document = new Document();
-                        document.add(new IntField("id", cursor.getInt(0),
-                                Field.Store.YES));
-                        document.add(new StringField("artist", cursor.getString(1),
-                                Field.Store.YES));
-                        document.add(new StringField("album", cursor.getString(2),
-                                Field.Store.YES));
-                        document.add(new StringField("track", cursor.getString(3),
-                                Field.Store.YES));
-                        mLuceneWriter.addDocument(document);
+                        mLuceneWriter.addDocument(buildDocument(cursor));
                     } while (cursor.moveToNext());
                 }
                 SharedPreferences preferences =
                         PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
                 preferences.edit().putLong(mLastUpdateStorageKey, System.currentTimeMillis())
-                        .commit();
+                        .putInt(mIndexVersionStorageKey, INDEX_VERSION).commit();
             }
         } catch (IOException e) {
             Log.e(TAG, "create - " + e.getClass() + ": " + e.getLocalizedMessage());
@@ -142,21 +237,130 @@ public class FuzzyIndex {
         return true;
     }
 
+    /**
+     * Applies all track changes that have been made to the {@link CollectionDb} since the last call
+     * to this method (or since the index has been created). Only the affected documents are being
+     * updated or deleted, so that we don't have to rebuild the whole index after every sync.
+     *
+     * @return whether or not the update has been successful
+     */
+    public synchronized boolean update() {
+        CollectionDb collectionDb = CollectionDbManager.get().getCollectionDb(mCollectionId);
+        long time = System.currentTimeMillis();
+        CollectionDb.TrackChanges changes = collectionDb.pollTrackChanges();
+        if (changes.isEmpty()) {
+            return true;
+        }
+        Log.d(TAG, "update - added: " + changes.mAddedIds.size() + ", removed: "
+                + changes.mRemovedIds.size() + ", changed: " + changes.mChangedIds.size());
+        try {
+            beginIndexing(false);
+            for (Integer id : changes.mRemovedIds) {
+                mLuceneWriter.deleteDocuments(buildIdTerm(id));
+            }
+            Set<Integer> updatedIds = new HashSet<>(changes.mAddedIds);
+            updatedIds.addAll(changes.mChangedIds);
+            List<String> ids = new ArrayList<>();
+            for (Integer id : updatedIds) {
+                ids.add(String.valueOf(id));
+                if (ids.size() == MAX_IDS_PER_QUERY) {
+                    updateDocuments(collectionDb, ids);
+                    ids.clear();
+                }
+            }
+            if (ids.size() > 0) {
+                updateDocuments(collectionDb, ids);
+            }
+            SharedPreferences preferences =
+                    PreferenceManager.getDefaultSharedPreferences(TomahawkApp.getContext());
+            preferences.edit().putLong(mLastUpdateStorageKey, time).commit();
+        } catch (IOException e) {
+            Log.e(TAG, "update - " + e.getClass() + ": " + e.getLocalizedMessage());
+            // Keep the changes, so that they are being applied by the next update
+            collectionDb.requeueTrackChanges(changes);
+            return false;
+        } finally {
+            endIndexing();
+            updateSearcherManager();
+        }
+        Log.d(TAG, "update - took " + (System.currentTimeMillis() - time) + "ms");
+        return true;
+    }
+
+    private void updateDocuments(CollectionDb collectionDb, List<String> ids) throws IOException {
+        CollectionDb.WhereInfo whereInfo = new CollectionDb.WhereInfo();
+        whereInfo.connection = "OR";
+        whereInfo.where.put(CollectionDb.ID, ids.toArray(new String[ids.size()]));
+        Cursor cursor = collectionDb.tracks(whereInfo, null, getIndexedFields());
+        try {
+            cursor.moveToFirst();
+            if (!cursor.isAfterLast()) {
+                do {
+                    mLuceneWriter.updateDocument(buildIdTerm(cursor.getInt(0)),
+                            buildDocument(cursor));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static String[] getIndexedFields() {
+        return new String[]{CollectionDb.TABLE_TRACKS + "." + CollectionDb.ID,
+                CollectionDb.ARTISTS_ARTIST, CollectionDb.ALBUMS_ALBUM, CollectionDb.TRACKS_TRACK};
+    }
+
+    /**
+     * Builds a {@link Document} out of the current row of the given {@link Cursor}, which has to
+     * contain the fields returned by {@link #getIndexedFields()}.
+     */
+    private static Document buildDocument(Cursor cursor) {
+        String artist = nonNull(cursor.getString(1));
+        String album = nonNull(cursor.getString(2));
+        String track = nonNull(cursor.getString(3));
+        String fulltext = artist + " " + album + " " + track;
+        Document document = new Document();
+        document.add(new IntField(FIELD_ID, cursor.getInt(0), Field.Store.YES));
+        document.add(new TextField(FIELD_ARTIST, artist, Field.Store.YES));
+        document.add(new TextField(FIELD_ALBUM, album, Field.Store.YES));
+        document.add(new TextField(FIELD_TRACK, track, Field.Store.YES));
+        document.add(new TextField(FIELD_FULLTEXT, fulltext, Field.Store.NO));
+        document.add(new TextField(FIELD_PREFIX, fulltext, Field.Store.NO));
+        return document;
+    }
+
+    private static String nonNull(String string) {
+        return string != null ? string : "";
+    }
+
+    /**
+     * @return a {@link Term} that exactly matches the document with the given id. The id is being
+     * stored as an {@link IntField}, so we have to use its prefix coded representation here.
+     */
+    private static Term buildIdTerm(int id) {
+        BytesRef bytes = new BytesRef(NumericUtils.BUF_SIZE_INT);
+        NumericUtils.intToPrefixCoded(id, 0, bytes);
+        return new Term(FIELD_ID, bytes);
+    }
+
     private void updateSearcherManager() {
         Log.d(TAG, "updateSearcherManager");
         try {
             if (mSearcherManager != null) {
-                mSearcherManager.close();
+                mSearcherManager.maybeRefresh();
+            } else {
+                File indexDirFile = new File(mLucenePath);
+                Directory dir = FSDirectory.open(indexDirFile);
+                mSearcherManager = new SearcherManager(dir, new SearcherFactory());
             }
-            File indexDirFile = new File(mLucenePath);
-            Directory dir = FSDirectory.open(indexDirFile);
-            mSearcherManager = new SearcherManager(dir, new SearcherFactory());
         } catch (IOException e) {
             Log.e(TAG, "updateSearcherManager - " + e.getClass() + ": " + e.getLocalizedMessage());
         }
     }
 
-    public void close() {
+    public synchronized void close() {
         Log.d(TAG, "close");
         endIndexing();
         if (mSearcherManager != null) {
@@ -169,55 +373,153 @@ public class FuzzyIndex {
         }
     }
 
-    public synchronized List<IndexResult> searchIndex(Query query) {
+    /**
+     * Searches the index for the given {@link Query}. Can be called from multiple threads at once.
+     */
+    public List<IndexResult> searchIndex(Query query) {
         List<IndexResult> indexResults = new ArrayList<>();
+        SearcherManager searcherManager = mSearcherManager;
+        if (searcherManager == null) {
+            Log.e(TAG, "searchIndex - index isn't open");
+            return indexResults;
+        }
         try {
-            BooleanQuery qry = new BooleanQuery();
-            if (query.isFullTextQuery()) {
-                String escapedQuery = MultiFieldQueryParser.escape(query.getFullTextQuery());
-                Term term = new Term("track", escapedQuery);
-                org.apache.lucene.search.Query fqry = new FuzzyQuery(term);
-                qry.add(fqry, BooleanClause.Occur.SHOULD);
-                term = new Term("artist", escapedQuery);
-                fqry = new FuzzyQuery(term);
-                qry.add(fqry, BooleanClause.Occur.SHOULD);
-                term = new Term("fulltext", escapedQuery);
-                fqry = new FuzzyQuery(term);
-                qry.add(fqry, BooleanClause.Occur.SHOULD);
-                Log.d(TAG, "searchIndex - fulltext: " + escapedQuery);
-            } else {
-                String escapedTrackName = MultiFieldQueryParser
-                        .escape(query.getBasicTrack().getName());
-                String escapedArtistName = MultiFieldQueryParser
-                        .escape(query.getArtist().getName());
-                Term term = new Term("track", escapedTrackName);
-                org.apache.lucene.search.Query fqry = new FuzzyQuery(term);
-                qry.add(fqry, BooleanClause.Occur.MUST);
-                term = new Term("artist", escapedArtistName);
-                fqry = new FuzzyQuery(term);
-                qry.add(fqry, BooleanClause.Occur.MUST);
-                Log.d(TAG, "searchIndex - non-fulltext: " + escapedArtistName + ", "
-                        + escapedTrackName);
+            org.apache.lucene.search.Query luceneQuery = getLuceneQuery(query);
+            if (luceneQuery == null) {
+                return indexResults;
             }
-            IndexSearcher searcher = mSearcherManager.acquire();
-            long time = System.currentTimeMillis();
-            ScoreDoc[] hits = searcher.search(qry, 50).scoreDocs;
-            Log.d(TAG,
-                    "searchIndex - searching took " + (System.currentTimeMillis() - time) + "ms");
-            for (ScoreDoc doc : hits) {
-                Document document = searcher.doc(doc.doc);
-                IndexResult indexResult = new IndexResult();
-                indexResult.id = document.getField("id").numericValue().intValue();
-                indexResult.score = doc.score;
-                indexResults.add(indexResult);
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                long time = System.currentTimeMillis();
+                ScoreDoc[] hits = searcher.search(luceneQuery, MAX_HITS).scoreDocs;
+                Log.d(TAG, "searchIndex - searching took " + (System.currentTimeMillis() - time)
+                        + "ms");
+                for (ScoreDoc doc : hits) {
+                    Document document = searcher.doc(doc.doc);
+                    IndexResult indexResult = new IndexResult();
+                    indexResult.id = document.getField(FIELD_ID).numericValue().intValue();
+                    indexResult.score = doc.score;
+                    indexResults.add(indexResult);
+                }
+            } finally {
+                searcherManager.release(searcher);
             }
-            mSearcherManager.release(searcher);
-        } catch (IOException e) {
+        } catch (IOException | AlreadyClosedException e) {
             Log.e(TAG, "searchIndex - " + e.getClass() + ": " + e.getLocalizedMessage());
         }
         return indexResults;
     }
 
+    /**
+     * @return the Lucene query for the given {@link Query} from the cache or, if it isn't cached
+     * yet, the newly parsed one. Null if the {@link Query} doesn't contain a single word.
+     */
+    private org.apache.lucene.search.Query getLuceneQuery(Query query) throws IOException {
+        // The cache key is made of exactly the texts that the Lucene query is being parsed from
+        String fullText = null;
+        String track = null;
+        String artist = null;
+        String key;
+        if (query.isFullTextQuery()) {
+            fullText = query.getFullTextQuery();
+            key = FIELD_FULLTEXT + "\t\t" + fullText;
+        } else {
+            track = query.getBasicTrack().getName();
+            artist = query.getArtist().getName();
+            key = FIELD_TRACK + "\t\t" + track + "\t\t" + FIELD_ARTIST + "\t\t" + artist;
+        }
+        synchronized (mQueryCache) {
+            if (mQueryCache.containsKey(key)) {
+                return mQueryCache.get(key);
+            }
+        }
+        BooleanQuery luceneQuery = new BooleanQuery();
+        if (fullText != null) {
+            // Every word has to be found in any of the fields. The last word is probably still
+            // being typed, so it is allowed to be the prefix of a word as well.
+            List<String> words = tokenize(fullText);
+            for (int i = 0; i < words.size(); i++) {
+                luceneQuery.add(buildWordQuery(FIELD_FULLTEXT, words.get(i), i == words.size() - 1),
+                        BooleanClause.Occur.MUST);
+            }
+            Log.d(TAG, "getLuceneQuery - fulltext: " + words);
+        } else {
+            List<String> trackWords = tokenize(track);
+            List<String> artistWords = tokenize(artist);
+            if (!trackWords.isEmpty() && !artistWords.isEmpty()) {
+                luceneQuery.add(buildFieldQuery(FIELD_TRACK, trackWords),
+                        BooleanClause.Occur.MUST);
+                luceneQuery.add(buildFieldQuery(FIELD_ARTIST, artistWords),
+                        BooleanClause.Occur.MUST);
+            }
+            Log.d(TAG, "getLuceneQuery - non-fulltext: " + artistWords + ", " + trackWords);
+        }
+        if (luceneQuery.clauses().isEmpty()) {
+            luceneQuery = null;
+        }
+        synchronized (mQueryCache) {
+            mQueryCache.put(key, luceneQuery);
+        }
+        return luceneQuery;
+    }
+
+    /**
+     * @return a query that matches the given field if most of the given words can be found in it
+     */
+    private static org.apache.lucene.search.Query buildFieldQuery(String field,
+            List<String> words) {
+        BooleanQuery fieldQuery = new BooleanQuery();
+        for (String word : words) {
+            fieldQuery.add(buildWordQuery(field, word, false), BooleanClause.Occur.SHOULD);
+        }
+        // Tolerate a single missing word, like a "feat." or a "remastered", in longer names
+        fieldQuery.setMinimumNumberShouldMatch(words.size() > 2 ? words.size() - 1 : words.size());
+        return fieldQuery;
+    }
+
+    /**
+     * @return a query that matches the given word in the given field. Exact matches are ranked
+     * higher than fuzzy ones.
+     */
+    private static org.apache.lucene.search.Query buildWordQuery(String field, String word,
+            boolean matchPrefix) {
+        BooleanQuery wordQuery = new BooleanQuery();
+        TermQuery termQuery = new TermQuery(new Term(field, word));
+        termQuery.setBoost(2f);
+        wordQuery.add(termQuery, BooleanClause.Occur.SHOULD);
+        if (word.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = word.length() >= MIN_TWO_EDITS_LENGTH ? 2 : 1;
+            wordQuery.add(new FuzzyQuery(new Term(field, word), maxEdits, FUZZY_PREFIX_LENGTH),
+                    BooleanClause.Occur.SHOULD);
+        }
+        if (matchPrefix && word.length() <= MAX_PREFIX_LENGTH) {
+            wordQuery.add(new TermQuery(new Term(FIELD_PREFIX, word)), BooleanClause.Occur.SHOULD);
+        }
+        return wordQuery;
+    }
+
+    /**
+     * @return the lower-cased words of the given text, split the same way as the indexed fields
+     */
+    private static List<String> tokenize(String text) throws IOException {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        TokenStream stream = ANALYZER.tokenStream(FIELD_FULLTEXT, text);
+        try {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } finally {
+            stream.close();
+        }
+        return words;
+    }
+
     /**
      * Initializes the IndexWriter to be able to add entries to the index.
      *
@@ -228,7 +530,9 @@ public class FuzzyIndex {
         endIndexing();
         File indexDirFile = new File(mLucenePath);
         Directory dir = FSDirectory.open(indexDirFile);
-        Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_47);
+        Map<String, Analyzer> fieldAnalyzers = new HashMap<>();
+        fieldAnalyzers.put(FIELD_PREFIX, PREFIX_ANALYZER);
+        Analyzer analyzer = new PerFieldAnalyzerWrapper(ANALYZER, fieldAnalyzers);
         IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_47, analyzer);
         if (recreate) {
             SharedPreferences preferences =
@@ -20,11 +20,16 @@ package org.tomahawk.libtomahawk.resolver;
 import org.tomahawk.libtomahawk.collection.Collection;
 import org.tomahawk.libtomahawk.collection.CollectionManager;
 import org.tomahawk.libtomahawk.collection.DbCollection;
+import org.tomahawk.libtomahawk.database.ResultCache;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverUrlResult;
 import org.tomahawk.tomahawk_android.TomahawkApp;
+import org.tomahawk.tomahawk_android.utils.EventCoalescer;
 import org.tomahawk.tomahawk_android.utils.ThreadManager;
 import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -32,7 +37,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -59,6 +67,51 @@ public class PipeLine {
 
     private static final float MINSCORE = 0.5F;
 
+    /**
+     * A staged resolve stops as soon as a local or subscription {@link Result} with at least this
+     * score has been reported
+     */
+    public static final float GOOD_ENOUGH_SCORE = 0.95F;
+
+    public static final int STAGE_LOCAL = 0;
+
+    public static final int STAGE_SUBSCRIPTION = 1;
+
+    public static final int STAGE_OTHER = 2;
+
+    private static final int STAGE_COUNT = 3;
+
+    private static final int LOCAL_STAGE_DEADLINE = 300;
+
+    /**
+     * The time in ms after which the local stage ends, even if some of the local collections
+     * haven't started resolving yet (e.g. because their FuzzyIndex is still initializing)
+     */
+    private static final int LOCAL_STAGE_BACKSTOP = 2000;
+
+    private static final int DEFAULT_STAGE_DEADLINE = 5000;
+
+    private static final int MAX_STAGE_DEADLINE = 10000;
+
+    /**
+     * After this many consecutively missed deadlines a {@link Resolver} is being skipped by staged
+     * resolves for DEADLINE_MISS_PENALTY ms
+     */
+    private static final int MAX_DEADLINE_MISSES = 3;
+
+    private static final long DEADLINE_MISS_PENALTY = 2 * 60 * 1000;
+
+    /**
+     * The key of the tasks that {@link #resolve(Query, boolean)} queues in the {@link
+     * ThreadManager}
+     */
+    public static final String RESOLVE_KEY = TAG;
+
+    /**
+     * The key of the tasks that {@link #resolveStaged(Query)} queues in the {@link ThreadManager}
+     */
+    public static final String STAGED_KEY = TAG + "_staged";
+
     private static class Holder {
 
         private static final PipeLine instance = new PipeLine();
@@ -70,6 +123,16 @@ public class PipeLine {
         public Query mQuery;
     }
 
+    /**
+     * Contains all {@link Query}s that have received results during the last
+     * EventCoalescer.DEFAULT_WINDOW ms. Is being posted on the main thread. Meant for the UI, which
+     * should react to this instead of every single {@link ResultsEvent}.
+     */
+    public static class BatchedResultsEvent {
+
+        public Set<Query> mQueries;
+    }
+
     public static class StreamUrlEvent {
 
         public Result mResult;
@@ -84,10 +147,198 @@ public class PipeLine {
         public ScriptResolverUrlResult mResult;
     }
 
+    /**
+     * Is being posted whenever a {@link Resolver} has been added or removed
+     */
     public static class ResolversChangedEvent {
 
     }
 
+    /**
+     * Is being posted when the {@link CircuitBreaker} of a {@link Resolver} has been tripped or
+     * closed again. Only meant for displaying the state, the set of {@link Resolver}s hasn't
+     * changed, so nothing has to be resolved again.
+     */
+    public static class CircuitBreakerStateChangedEvent {
+
+        public String mResolverId;
+
+        /**
+         * Maps resolver ids to the state of their {@link CircuitBreaker}
+         */
+        public Map<String, Integer> mCircuitBreakerStates;
+    }
+
+    private static class DeadlineMisses {
+
+        private int mCount;
+
+        private long mSkipUntil;
+    }
+
+    /**
+     * Resolves a {@link Query} stage by stage. The local collections are being asked first, the
+     * subscription {@link Resolver}s second and all other {@link Resolver}s last. The next stage is
+     * being started as soon as every {@link Resolver} of the current stage has reported or when the
+     * stage's deadline has passed. The whole process stops early once a local or subscription
+     * {@link Result} with a score of at least GOOD_ENOUGH_SCORE has been reported.
+     *
+     * A {@link Resolver}'s deadline only starts to run once it actually starts resolving, so that
+     * time spent waiting in a queue isn't counted against it. A stage whose {@link Resolver}s don't
+     * get to start in time after being dispatched (LOCAL_STAGE_BACKSTOP ms for the local stage,
+     * MAX_STAGE_DEADLINE ms for the others) is being ended anyway.
+     */
+    private class StagedResolve implements Runnable {
+
+        private final Query mQuery;
+
+        private int mStage = -1;
+
+        private final Set<String> mPendingResolverIds = new HashSet<>();
+
+        // Maps the ids of the Resolvers of the current stage that haven't started resolving yet to
+        // their deadline in ms
+        private final Map<String, Integer> mUnstartedDeadlines = new HashMap<>();
+
+        // The uptime at which the deadline of every started Resolver of the current stage has
+        // passed
+        private long mStageEnd;
+
+        // The uptime at which the current stage ends, even if some of its Resolvers haven't
+        // started yet
+        private long mStageBackstop;
+
+        private Set<String> mFreshResolverIds = Collections.emptySet();
+
+        private boolean mFinished;
+
+        public StagedResolve(Query query) {
+            mQuery = query;
+        }
+
+        public synchronized void start() {
+            mFreshResolverIds = reportCachedResults(mQuery, false);
+            if (!mFinished) {
+                advance();
+            }
+        }
+
+        public synchronized void onResultsReported(String resolverId, float bestScore) {
+            if (mFinished) {
+                return;
+            }
+            mUnstartedDeadlines.remove(resolverId);
+            boolean wasPending = mPendingResolverIds.remove(resolverId);
+            if (wasPending) {
+                onDeadlineMet(resolverId);
+            }
+            if (bestScore >= GOOD_ENOUGH_SCORE && getStage(resolverId) != STAGE_OTHER) {
+                finish();
+            } else if (wasPending && mPendingResolverIds.isEmpty() && mStage != STAGE_LOCAL) {
+                advance();
+            }
+        }
+
+        /**
+         * Called when the {@link Resolver} with the given id actually starts resolving. Starts the
+         * {@link Resolver}'s deadline.
+         */
+        public synchronized void onStarted(String resolverId) {
+            if (mFinished) {
+                return;
+            }
+            Integer deadline = mUnstartedDeadlines.remove(resolverId);
+            if (deadline != null) {
+                mStageEnd = Math.max(mStageEnd, SystemClock.uptimeMillis() + deadline);
+                scheduleDeadline();
+            }
+        }
+
+        /**
+         * Called when the deadline of the current stage has passed
+         */
+        @Override
+        public synchronized void run() {
+            if (mFinished) {
+                return;
+            }
+            for (String resolverId : mPendingResolverIds) {
+                // Resolvers that haven't even started haven't missed their deadline
+                if (!mUnstartedDeadlines.containsKey(resolverId)) {
+                    onDeadlineMissed(resolverId);
+                }
+            }
+            mPendingResolverIds.clear();
+            advance();
+        }
+
+        private void advance() {
+            mDeadlineHandler.removeCallbacks(this);
+            while (++mStage < STAGE_COUNT) {
+                mUnstartedDeadlines.clear();
+                mStageEnd = 0;
+                if (dispatch(mStage)) {
+                    mStageBackstop = SystemClock.uptimeMillis()
+                            + (mStage == STAGE_LOCAL ? LOCAL_STAGE_BACKSTOP : MAX_STAGE_DEADLINE);
+                    scheduleDeadline();
+                    return;
+                }
+            }
+            finish();
+        }
+
+        /**
+         * Schedule the end of the current stage. As long as some of its {@link Resolver}s haven't
+         * started yet, the stage doesn't end before its backstop.
+         */
+        private void scheduleDeadline() {
+            long stageEnd = mUnstartedDeadlines.isEmpty() ? mStageEnd
+                    : Math.max(mStageEnd, mStageBackstop);
+            mDeadlineHandler.removeCallbacks(this);
+            mDeadlineHandler.postAtTime(this, stageEnd);
+        }
+
+        /**
+         * Dispatch the {@link Query} to every {@link Resolver} of the given stage
+         *
+         * @return whether or not anything has been dispatched
+         */
+        private boolean dispatch(int stage) {
+            if (stage == STAGE_LOCAL && !mQuery.isOnlyLocal()) {
+                for (Collection collection : CollectionManager.get().getCollections()) {
+                    if (collection instanceof DbCollection) {
+                        DbCollection dbCollection = (DbCollection) collection;
+                        mUnstartedDeadlines.put(dbCollection.getResolver().getId(),
+                                LOCAL_STAGE_DEADLINE);
+                        dbCollection.resolve(mQuery);
+                    }
+                }
+            }
+            for (Resolver resolver : mResolvers) {
+                String resolverId = resolver.getId();
+                if (getStage(resolver) == stage && !mFreshResolverIds.contains(resolverId)
+                        && !isSkipped(resolverId) && shouldResolve(resolver, mQuery, false)
+                        && resolver.resolve(mQuery) && resolver instanceof ScriptResolver) {
+                    int timeout = ((ScriptResolver) resolver).getTimeout();
+                    if (timeout <= 0) {
+                        timeout = DEFAULT_STAGE_DEADLINE;
+                    }
+                    mUnstartedDeadlines.put(resolverId, Math.min(timeout, MAX_STAGE_DEADLINE));
+                    mPendingResolverIds.add(resolverId);
+                }
+            }
+            return !mUnstartedDeadlines.isEmpty();
+        }
+
+        private void finish() {
+            mFinished = true;
+            mDeadlineHandler.removeCallbacks(this);
+            mPendingResolverIds.clear();
+            mUnstartedDeadlines.clear();
+            mStagedResolves.remove(mQuery, this);
+        }
+    }
+
     private final Set<ScriptAccount> mScriptAccounts =
             Collections.newSetFromMap(new ConcurrentHashMap<ScriptAccount, Boolean>());
 
@@ -100,6 +351,26 @@ public class PipeLine {
     private final Set<Query> mWaitingQueries = Collections
             .newSetFromMap(new ConcurrentHashMap<Query, Boolean>());
 
+    private final Set<Query> mWaitingStagedQueries = Collections
+            .newSetFromMap(new ConcurrentHashMap<Query, Boolean>());
+
+    private final ConcurrentHashMap<Query, StagedResolve> mStagedResolves =
+            new ConcurrentHashMap<>();
+
+    // Maps resolver ids to the number of deadlines that resolver has missed in a row
+    private final Map<String, DeadlineMisses> mDeadlineMisses = new HashMap<>();
+
+    private final Handler mDeadlineHandler = new Handler(Looper.getMainLooper());
+
+    private final EventCoalescer<Query> mResultsCoalescer = new EventCoalescer<Query>() {
+        @Override
+        protected Object createEvent(Set<Query> keys) {
+            BatchedResultsEvent event = new BatchedResultsEvent();
+            event.mQueries = keys;
+            return event;
+        }
+    };
+
     private final Set<ScriptAccount> mLoadingPlugins = Collections
             .newSetFromMap(new ConcurrentHashMap<ScriptAccount, Boolean>());
 
@@ -153,12 +424,17 @@ public class PipeLine {
     private synchronized void checkWaitingJobs() {
         if (mLoadingPlugins.isEmpty() && mInitializingResolvers.isEmpty()) {
             Log.d(TAG, "All plugins loaded. All resolvers initialized. Resolving "
-                    + mWaitingQueries.size() + " waiting queries. Looking up "
+                    + (mWaitingQueries.size() + mWaitingStagedQueries.size())
+                    + " waiting queries. Looking up "
                     + mWaitingUrlLookups.size() + " waiting URLs.");
             for (Query query : mWaitingQueries) {
                 resolve(query);
             }
             mWaitingQueries.clear();
+            for (Query query : mWaitingStagedQueries) {
+                resolveStaged(query);
+            }
+            mWaitingStagedQueries.clear();
             for (String url : mWaitingUrlLookups) {
                 lookupUrl(url);
             }
@@ -176,11 +452,28 @@ public class PipeLine {
         if (!resolver.isInitialized()) {
             mInitializingResolvers.add(resolver);
         }
-        EventBus.getDefault().post(new ResolversChangedEvent());
+        postResolversChangedEvent();
     }
 
     public void removeResolver(Resolver resolver) {
         mResolvers.remove(resolver);
+        postResolversChangedEvent();
+    }
+
+    /**
+     * Called by the {@link ResolverMetrics} whenever the {@link CircuitBreaker} of the {@link
+     * Resolver} with the given id has been tripped or closed again
+     */
+    public void onCircuitBreakerStateChanged(String resolverId) {
+        Log.d(TAG, "onCircuitBreakerStateChanged - " + resolverId + ": "
+                + ResolverMetrics.get().getMetrics(resolverId));
+        CircuitBreakerStateChangedEvent event = new CircuitBreakerStateChangedEvent();
+        event.mResolverId = resolverId;
+        event.mCircuitBreakerStates = ResolverMetrics.get().getCircuitBreakerStates();
+        EventBus.getDefault().post(event);
+    }
+
+    private void postResolversChangedEvent() {
         EventBus.getDefault().post(new ResolversChangedEvent());
     }
 
@@ -238,7 +531,9 @@ public class PipeLine {
     }
 
     /**
-     * This will invoke every {@link Resolver} to resolve the given {@link Query}.
+     * This will invoke every {@link Resolver} to resolve the given {@link Query}. Results that have
+     * been cached in the {@link ResultCache} are reported right away. {@link Resolver}s are only
+     * invoked if they have no cached results for the given {@link Query} or if those are stale.
      */
     public Query resolve(final Query q, final boolean forceOnlyLocal) {
         final TomahawkRunnable r = new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_RESOLVING) {
@@ -247,8 +542,10 @@ public class PipeLine {
                 if (!mLoadingPlugins.isEmpty() || !mInitializingResolvers.isEmpty()) {
                     mWaitingQueries.add(q);
                 } else {
+                    Set<String> freshResolverIds = reportCachedResults(q, forceOnlyLocal);
                     for (Resolver resolver : mResolvers) {
-                        if (shouldResolve(resolver, q, forceOnlyLocal)) {
+                        if (!freshResolverIds.contains(resolver.getId())
+                                && shouldResolve(resolver, q, forceOnlyLocal)) {
                             resolver.resolve(q);
                         }
                     }
@@ -262,14 +559,190 @@ public class PipeLine {
                 }
             }
         };
-        ThreadManager.get().execute(r, q);
+        ThreadManager.get().execute(r, q, RESOLVE_KEY);
+        return q;
+    }
+
+    /**
+     * Resolve the given {@link Query} in stages, which is meant for cases where only the first
+     * good {@link Result} is of interest, like playback. The local collections are being asked
+     * first, the subscription {@link Resolver}s second and all other {@link Resolver}s last. Every
+     * stage has a deadline, after which the next stage is being started. As soon as a local or
+     * subscription {@link Result} with a score of at least GOOD_ENOUGH_SCORE has been reported,
+     * no more {@link Resolver}s are being asked.
+     * {@link Resolver}s that keep missing their deadline are being skipped for a while.
+     */
+    public Query resolveStaged(final Query q) {
+        final TomahawkRunnable r = new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_RESOLVING) {
+            @Override
+            public void run() {
+                if (!mLoadingPlugins.isEmpty() || !mInitializingResolvers.isEmpty()) {
+                    mWaitingStagedQueries.add(q);
+                } else {
+                    StagedResolve stagedResolve = new StagedResolve(q);
+                    // Only start if this Query isn't already being resolved in stages
+                    if (mStagedResolves.putIfAbsent(q, stagedResolve) == null) {
+                        stagedResolve.start();
+                    }
+                }
+            }
+        };
+        ThreadManager.get().execute(r, q, STAGED_KEY);
         return q;
     }
 
     /**
-     * Method to determine if a given Resolver should resolve the query or not
+     * Resolve the given {@link Set} of {@link Query}s in stages and return a HashSet containing
+     * all of them.
+     *
+     * @see #resolveStaged(Query)
+     */
+    public HashSet<Query> resolveStaged(Set<Query> queries) {
+        HashSet<Query> queryKeys = new HashSet<>();
+        if (queries != null) {
+            for (Query query : queries) {
+                queryKeys.add(resolveStaged(query));
+            }
+        }
+        return queryKeys;
+    }
+
+    /**
+     * @return the stage in which the {@link Resolver} with the given id is being asked during a
+     * staged resolve
+     */
+    private int getStage(String resolverId) {
+        Resolver resolver = getResolver(resolverId);
+        return resolver != null ? getStage(resolver) : STAGE_LOCAL;
+    }
+
+    private int getStage(Resolver resolver) {
+        if (!(resolver instanceof ScriptResolver)) {
+            return STAGE_LOCAL;
+        } else if (isSubscriptionResolver(resolver.getId())) {
+            return STAGE_SUBSCRIPTION;
+        } else {
+            return STAGE_OTHER;
+        }
+    }
+
+    private boolean isSubscriptionResolver(String resolverId) {
+        return TomahawkApp.PLUGINNAME_SPOTIFY.equals(resolverId)
+                || TomahawkApp.PLUGINNAME_DEEZER.equals(resolverId)
+                || TomahawkApp.PLUGINNAME_BEATSMUSIC.equals(resolverId)
+                || TomahawkApp.PLUGINNAME_RDIO.equals(resolverId);
+    }
+
+    private void onDeadlineMissed(String resolverId) {
+        synchronized (mDeadlineMisses) {
+            DeadlineMisses misses = mDeadlineMisses.get(resolverId);
+            if (misses == null) {
+                misses = new DeadlineMisses();
+                mDeadlineMisses.put(resolverId, misses);
+            }
+            misses.mCount++;
+            ResolverMetrics.get().onDeadlineMissed(resolverId);
+            if (misses.mCount >= MAX_DEADLINE_MISSES) {
+                misses.mSkipUntil = SystemClock.elapsedRealtime() + DEADLINE_MISS_PENALTY;
+                Log.d(TAG, "onDeadlineMissed - " + resolverId + " has missed " + misses.mCount
+                        + " deadlines in a row and will be skipped for "
+                        + DEADLINE_MISS_PENALTY + "ms");
+            }
+        }
+    }
+
+    private void onDeadlineMet(String resolverId) {
+        synchronized (mDeadlineMisses) {
+            mDeadlineMisses.remove(resolverId);
+        }
+    }
+
+    private boolean isSkipped(String resolverId) {
+        synchronized (mDeadlineMisses) {
+            DeadlineMisses misses = mDeadlineMisses.get(resolverId);
+            return misses != null && SystemClock.elapsedRealtime() < misses.mSkipUntil;
+        }
+    }
+
+    /**
+     * Report all {@link Result}s that have been cached in the {@link ResultCache} for the given
+     * {@link Query}.
+     *
+     * @return a {@link Set} containing the ids of all {@link Resolver}s whose cached {@link
+     * Result}s are still fresh and therefore don't have to resolve the given {@link Query} again
+     */
+    private Set<String> reportCachedResults(Query q, boolean forceOnlyLocal) {
+        Set<String> freshResolverIds = new HashSet<>();
+        if (!isCacheable(q, forceOnlyLocal)) {
+            return freshResolverIds;
+        }
+        boolean reported = false;
+        for (ResultCache.Entry entry : ResultCache.get().get(q)) {
+            Resolver resolver = getResolver(entry.mResolverId);
+            if (resolver == null || !isApplicable(resolver, q, forceOnlyLocal)) {
+                continue;
+            }
+            float bestScore = 0f;
+            for (ResultCache.CachedResult cachedResult : entry.mResults) {
+                q.addTrackResult(cachedResult.toResult(resolver), cachedResult.mScore);
+                bestScore = Math.max(bestScore, cachedResult.mScore);
+                reported = true;
+            }
+            if (!entry.mIsStale) {
+                freshResolverIds.add(entry.mResolverId);
+                onStagedResultsReported(q, entry.mResolverId, bestScore);
+            }
+        }
+        if (reported) {
+            ResultsEvent event = new ResultsEvent();
+            event.mQuery = q;
+            EventBus.getDefault().post(event);
+            mResultsCoalescer.add(q);
+        }
+        return freshResolverIds;
+    }
+
+    /**
+     * Called by a {@link Resolver} or a {@link DbCollection} when it actually starts resolving the
+     * given {@link Query}, as opposed to when the {@link Query} has been queued.
+     */
+    public void onResolvingStarted(Query q, String resolverId) {
+        StagedResolve stagedResolve = mStagedResolves.get(q);
+        if (stagedResolve != null) {
+            stagedResolve.onStarted(resolverId);
+        }
+    }
+
+    private void onStagedResultsReported(Query q, String resolverId, float bestScore) {
+        StagedResolve stagedResolve = mStagedResolves.get(q);
+        if (stagedResolve != null) {
+            stagedResolve.onResultsReported(resolverId, bestScore);
+        }
+    }
+
+    /**
+     * Only the results of {@link ScriptResolver}s for non-fulltext {@link Query}s are being stored
+     * in the {@link ResultCache}. Local results are cheap to get and might be gone by next time.
+     */
+    private boolean isCacheable(Query q, boolean forceOnlyLocal) {
+        return !forceOnlyLocal && !q.isOnlyLocal() && !q.isFullTextQuery();
+    }
+
+    /**
+     * Method to determine if a given Resolver should resolve the query or not. Should only be
+     * called right before the Resolver is actually being asked, because a Resolver whose {@link
+     * CircuitBreaker} is open might be allowed a single probe request.
      */
     public boolean shouldResolve(Resolver resolver, Query q, boolean forceOnlyLocal) {
+        return isApplicable(resolver, q, forceOnlyLocal)
+                && ResolverMetrics.get().allowRequest(resolver.getId());
+    }
+
+    /**
+     * Method to determine if a given Resolver can resolve the query, regardless of the state of
+     * its {@link CircuitBreaker}
+     */
+    private boolean isApplicable(Resolver resolver, Query q, boolean forceOnlyLocal) {
         if (!forceOnlyLocal && !q.isOnlyLocal()) {
             if (resolver instanceof ScriptResolver) {
                 ScriptResolver scriptResolver = ((ScriptResolver) resolver);
@@ -315,13 +788,11 @@ public class PipeLine {
      */
     public void reportResults(final Query query, final ArrayList<Result> results,
             final String resolverId) {
+        ResolverMetrics.get().onReported(resolverId, query, results.size());
         int priority;
         if (TomahawkApp.PLUGINNAME_USERCOLLECTION.equals(resolverId)) {
             priority = TomahawkRunnable.PRIORITY_IS_REPORTING_LOCALSOURCE;
-        } else if (TomahawkApp.PLUGINNAME_SPOTIFY.equals(resolverId)
-                || TomahawkApp.PLUGINNAME_DEEZER.equals(resolverId)
-                || TomahawkApp.PLUGINNAME_BEATSMUSIC.equals(resolverId)
-                || TomahawkApp.PLUGINNAME_RDIO.equals(resolverId)) {
+        } else if (isSubscriptionResolver(resolverId)) {
             priority = TomahawkRunnable.PRIORITY_IS_REPORTING_SUBSCRIPTION;
         } else {
             priority = TomahawkRunnable.PRIORITY_IS_REPORTING;
@@ -331,17 +802,30 @@ public class PipeLine {
                     @Override
                     public void run() {
                         if (query != null) {
+                            List<ResultCache.CachedResult> cachedResults = new ArrayList<>();
+                            float bestScore = 0f;
                             for (Result r : results) {
                                 if (r != null) {
-                                    float trackScore = query.howSimilar(r);
+                                    float trackScore = query.howSimilar(r, MINSCORE);
                                     if (trackScore >= MINSCORE) {
                                         query.addTrackResult(r, trackScore);
+                                        bestScore = Math.max(bestScore, trackScore);
+                                        cachedResults.add(
+                                                ResultCache.CachedResult.from(r, trackScore));
                                     }
                                 }
                             }
+                            ResolverMetrics.get()
+                                    .onResultsScored(resolverId, cachedResults.size());
+                            if (isCacheable(query, false)
+                                    && getResolver(resolverId) instanceof ScriptResolver) {
+                                ResultCache.get().put(query, resolverId, cachedResults);
+                            }
                             ResultsEvent event = new ResultsEvent();
                             event.mQuery = query;
                             EventBus.getDefault().post(event);
+                            mResultsCoalescer.add(query);
+                            onStagedResultsReported(query, resolverId, bestScore);
                         }
                     }
                 }
@@ -26,16 +26,18 @@ import org.tomahawk.libtomahawk.collection.Image;
 import org.tomahawk.libtomahawk.collection.Playlist;
 import org.tomahawk.libtomahawk.collection.Track;
 import org.tomahawk.libtomahawk.utils.LevensteinDistance;
+import org.tomahawk.libtomahawk.utils.VariousUtils;
 import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
 import org.tomahawk.tomahawk_android.mediaplayers.TomahawkMediaPlayer;
 
 import android.text.TextUtils;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class represents a query which is passed to a resolver. It contains all the information
@@ -47,6 +49,14 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
 
     private static final HashSet<String> sBlacklistedResults = new HashSet<>();
 
+    // Is being incremented whenever a Result is being blacklisted
+    private static final AtomicInteger sBlacklistRevision = new AtomicInteger();
+
+    /**
+     * The number of most recently calculated scores that are being kept per Query
+     */
+    private static final int SIMILARITY_SCORES_SIZE = 1000;
+
     private Track mBasicTrack;
 
     private String mResultHint;
@@ -59,68 +69,22 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
 
     private boolean mIsFetchedViaHatchet;
 
-    private final ConcurrentSkipListSet<Result> mTrackResults
-            = new ConcurrentSkipListSet<>(new ResultComparator());
-
-    private final ConcurrentHashMap<Result, Float> mTrackResultScores
-            = new ConcurrentHashMap<>();
-
-    public class ResultComparator implements Comparator<Result> {
-
-        /**
-         * The actual comparison method
-         *
-         * @param r1 First {@link org.tomahawk.libtomahawk.resolver.Result} object
-         * @param r2 Second {@link org.tomahawk.libtomahawk.resolver.Result} Object
-         * @return int containing comparison score
-         */
-        public int compare(Result r1, Result r2) {
-            if (mResultHint != null) {
-                // We have a result hint. If the cacheKey matches we automatically put the matching
-                // Result at the top of the sorted list.
-                if (r1.getCacheKey().equals(mResultHint)) {
-                    return -1;
-                } else if (r2.getCacheKey().equals(mResultHint)) {
-                    return 1;
-                }
-            }
-            if (r1 == r2) {
-                return 0;
-            }
-            Float score1 = mTrackResultScores.get(r1);
-            Float score2 = mTrackResultScores.get(r2);
-            int scoreResult = score2.compareTo(score1);
-            if (scoreResult > 0) {
-                return 1;
-            } else if (scoreResult < 0) {
-                return -1;
-            } else {
-                // We have two identical trackScores.
-                // Now we take the Resolver's weight into account.
-                Integer weight1 = r1.getResolvedBy().getWeight();
-                Integer weight2 = r2.getResolvedBy().getWeight();
-                int weightResult = weight2.compareTo(weight1);
-                if (weightResult > 0) {
-                    return 1;
-                } else if (weightResult < 0) {
-                    return -1;
-                } else {
-                    // We have two identical trackScores and Resolver weights.
-                    Integer hashCode1 = r1.hashCode();
-                    Integer hashCode2 = r2.hashCode();
-                    int hashCodeResult = hashCode1.compareTo(hashCode2);
-                    if (hashCodeResult > 0) {
-                        return 1;
-                    } else if (hashCodeResult < 0) {
-                        return -1;
-                    } else {
-                        // should never happen
-                        return 0;
-                    }
-                }
-            }
-        }
-    }
+    private final RankedResults mTrackResults;
+
+    // The sBlacklistRevision up to which blacklisted Results have been removed from mTrackResults
+    private int mBlacklistRevision;
+
+    private final Map<Result, Float> mSimilarityScores = createScoreCache();
+
+    /**
+     * Maps the {@link Result}s, for which {@link #howSimilar(Result, float)} stopped early, to the
+     * minScore that has been given in that call
+     */
+    private final Map<Result, Float> mPrunedSimilarityScores = createScoreCache();
+
+    private String mNormalizedFullTextQuery;
+
+    private String mNormalizedFullTextQueryNoArticle;
 
     /**
      * Constructs a new Query.
@@ -134,6 +98,9 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
         mFullTextQuery = fullTextQuery != null ? fullTextQuery : "";
         mIsFullTextQuery = true;
         mIsOnlyLocal = onlyLocal;
+        // Fulltext queries are being displayed as a whole list of search results, so we keep all
+        // of them
+        mTrackResults = new RankedResults(Integer.MAX_VALUE, null);
     }
 
     /**
@@ -157,6 +124,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
         mIsFullTextQuery = false;
         mIsOnlyLocal = onlyLocal;
         mIsFetchedViaHatchet = isFetchedViaHatchet;
+        mTrackResults = new RankedResults(RankedResults.DEFAULT_CAPACITY, mResultHint);
     }
 
     /**
@@ -164,7 +132,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * Queries being unique by trackname/artistname/albumname/resulthint/onlyLocal
      */
     public static Query get(String fullTextQuery, boolean onlyLocal) {
-        Cacheable cacheable = get(Query.class, getCacheKey(fullTextQuery, onlyLocal));
+        Cacheable cacheable = get(Query.class, getLookupKey(fullTextQuery, onlyLocal));
         return cacheable != null ? (Query) cacheable : new Query(fullTextQuery, onlyLocal);
     }
 
@@ -175,7 +143,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
     public static Query get(String trackName, String albumName, String artistName,
             String resultHint, boolean onlyLocal, boolean isFetchedViaHatchet) {
         Cacheable cacheable = get(Query.class,
-                getCacheKey(trackName, albumName, artistName, resultHint, onlyLocal));
+                getLookupKey(trackName, albumName, artistName, resultHint, onlyLocal));
         return cacheable != null ? (Query) cacheable :
                 new Query(trackName, albumName, artistName, resultHint, onlyLocal,
                         isFetchedViaHatchet);
@@ -229,6 +197,16 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
         }
     }
 
+    private static Map<Result, Float> createScoreCache() {
+        return Collections.synchronizedMap(
+                new LinkedHashMap<Result, Float>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Result, Float> eldest) {
+                        return size() > SIMILARITY_SCORES_SIZE;
+                    }
+                });
+    }
+
     public Track getBasicTrack() {
         return mBasicTrack;
     }
@@ -242,11 +220,13 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * Given as queries.
      */
     public Playlist getResultPlaylist() {
+        removeBlacklistedResults();
         ArrayList<Query> queries = new ArrayList<>();
-        for (Result result : mTrackResults) {
+        for (RankedResults.RankedResult rankedResult : mTrackResults.getAll()) {
+            Result result = rankedResult.getResult();
             if (!isOnlyLocal() || result.isLocal()) {
                 Query query = Query.get(result, isOnlyLocal());
-                query.addTrackResult(result, mTrackResultScores.get(result));
+                query.addTrackResult(result, rankedResult.getScore());
                 queries.add(query);
             }
         }
@@ -257,10 +237,29 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
     }
 
     public Result getPreferredTrackResult() {
-        if (mTrackResults.size() > 0) {
-            return mTrackResults.first();
+        removeBlacklistedResults();
+        return mTrackResults.first();
+    }
+
+    /**
+     * Removes the Results that have been blacklisted through another Query with the same Result
+     * since the last call, so that they don't take the place of the ones kept in reserve.
+     */
+    private void removeBlacklistedResults() {
+        int blacklistRevision = sBlacklistRevision.get();
+        if (mBlacklistRevision != blacklistRevision) {
+            mBlacklistRevision = blacklistRevision;
+            boolean removed;
+            do {
+                // Removing a Result moves up one from the reserve, which has to be checked as well
+                removed = false;
+                for (RankedResults.RankedResult rankedResult : mTrackResults.getAll()) {
+                    if (sBlacklistedResults.contains(rankedResult.getResult().getCacheKey())) {
+                        removed |= mTrackResults.remove(rankedResult.getResult());
+                    }
+                }
+            } while (removed);
         }
-        return null;
     }
 
     public Track getPreferredTrack() {
@@ -280,18 +279,18 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
     public void addTrackResult(Result result, float trackScore) {
         String cacheKey = result.getCacheKey();
         if (!sBlacklistedResults.contains(cacheKey)) {
-            mTrackResultScores.put(result, trackScore);
-            mTrackResults.add(result);
+            mTrackResults.add(result, trackScore);
         }
     }
 
     public void blacklistTrackResult(Result result) {
         sBlacklistedResults.add(result.getCacheKey());
+        sBlacklistRevision.incrementAndGet();
+        mTrackResults.remove(result);
         if (result.getCacheKey().equals(mResultHint)) {
             mResultHint = null;
+            mTrackResults.setResultHint(null);
         }
-        mTrackResults.remove(result);
-        mTrackResultScores.remove(result);
     }
 
     public String getResultHint() {
@@ -335,30 +334,25 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * This method determines how similar the given result is to the search string.
      */
     public float howSimilar(Result r) {
-        String resultArtistName = "";
-        String resultAlbumName = "";
-        String resultTrackName = "";
+        Float cachedScore = mSimilarityScores.get(r);
+        if (cachedScore != null) {
+            return cachedScore;
+        }
         String artistName;
         String albumName;
         String trackName;
         if (isFullTextQuery()) {
-            artistName = cleanUpString(mFullTextQuery, true);
-            albumName = cleanUpString(mFullTextQuery, false);
+            artistName = getNormalizedFullTextQuery(true);
+            albumName = getNormalizedFullTextQuery(false);
             trackName = albumName;
         } else {
-            artistName = cleanUpString(mBasicTrack.getArtist().getName(), false);
-            albumName = cleanUpString(mBasicTrack.getAlbum().getName(), false);
-            trackName = cleanUpString(mBasicTrack.getName(), false);
-        }
-        if (r.getArtist().getName() != null) {
-            resultArtistName = cleanUpString(r.getArtist().getName(), false);
-        }
-        if (r.getAlbum().getName() != null) {
-            resultAlbumName = cleanUpString(r.getAlbum().getName(), false);
-        }
-        if (r.getTrack().getName() != null) {
-            resultTrackName = cleanUpString(r.getTrack().getName(), false);
+            artistName = mBasicTrack.getArtist().getNormalizedName();
+            albumName = mBasicTrack.getAlbum().getNormalizedName();
+            trackName = mBasicTrack.getNormalizedName();
         }
+        String resultArtistName = r.getArtist().getNormalizedName();
+        String resultAlbumName = r.getAlbum().getNormalizedName();
+        String resultTrackName = r.getTrack().getNormalizedName();
 
         int distanceArtist = LevensteinDistance.getDistance(artistName, resultArtistName);
         int distanceAlbum = LevensteinDistance.getDistance(albumName, resultAlbumName);
@@ -379,12 +373,12 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
         }
         float distanceScoreTrack = (float) (maxLengthTrack - distanceTrack) / maxLengthTrack;
 
+        float score;
         if (isFullTextQuery()) {
-            final String searchString = cleanUpString(getFullTextQuery(), false);
+            final String searchString = albumName;
             ArrayList<String> resultSearchStrings = new ArrayList<>();
-            resultSearchStrings
-                    .add(cleanUpString(resultArtistName + " " + resultTrackName, false));
-            resultSearchStrings.add(cleanUpString(resultTrackName, false));
+            resultSearchStrings.add(joinNormalized(resultArtistName, resultTrackName));
+            resultSearchStrings.add(resultTrackName);
 
             float maxResult = 0F;
             for (String resultSearchString : resultSearchStrings) {
@@ -403,13 +397,154 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
                 }
                 maxResult = Math.max(result, maxResult);
             }
-            return maxResult;
+            score = maxResult;
         } else {
             if (TextUtils.isEmpty(mBasicTrack.getAlbum().getName())) {
                 distanceScoreAlbum = 1F;
             }
 
-            return (distanceScoreArtist * 4 + distanceScoreAlbum + distanceScoreTrack * 5) / 10;
+            score = (distanceScoreArtist * 4 + distanceScoreAlbum + distanceScoreTrack * 5) / 10;
+        }
+        mSimilarityScores.put(r, score);
+        return score;
+    }
+
+    /**
+     * This method determines how similar the given result is to the search string, but stops
+     * calculating as soon as it is clear that the given minScore can't be reached anymore. If the
+     * returned value is greater than or equal to minScore, it is the same value that {@link
+     * #howSimilar(Result)} would have returned.
+     *
+     * @return the score of the given {@link Result} or a value smaller than minScore, if the score
+     * would have been smaller than minScore
+     */
+    public float howSimilar(Result r, float minScore) {
+        if (minScore <= 0F) {
+            return howSimilar(r);
+        }
+        Float cachedScore = mSimilarityScores.get(r);
+        if (cachedScore != null) {
+            return cachedScore;
+        }
+        Float prunedMinScore = mPrunedSimilarityScores.get(r);
+        if (prunedMinScore != null && prunedMinScore <= minScore) {
+            return Float.NEGATIVE_INFINITY;
+        }
+
+        String resultArtistName = r.getArtist().getNormalizedName();
+        String resultAlbumName = r.getAlbum().getNormalizedName();
+        String resultTrackName = r.getTrack().getNormalizedName();
+        float score;
+        if (isFullTextQuery()) {
+            // Only the maximum of all scores counts, so every score only has to be calculated
+            // exactly if it could beat the best score found so far.
+            final String searchString = getNormalizedFullTextQuery(false);
+            final String resultArtistTrackName = joinNormalized(resultArtistName, resultTrackName);
+            score = Float.NEGATIVE_INFINITY;
+            if (resultArtistTrackName.contains(searchString)
+                    || resultTrackName.contains(searchString)) {
+                score = 0.9F;
+            }
+            score = Math.max(score, similarity(searchString, resultTrackName,
+                    Math.max(minScore, score)));
+            score = Math.max(score, similarity(searchString, resultArtistTrackName,
+                    Math.max(minScore, score)));
+            score = Math.max(score, similarity(getNormalizedFullTextQuery(true), resultArtistName,
+                    Math.max(minScore, score)));
+            if (searchString.length() > 0 || resultAlbumName.length() > 0) {
+                score = Math.max(score, similarity(searchString, resultAlbumName,
+                        Math.max(minScore, score)));
+            } else {
+                score = Math.max(score, 0F);
+            }
+        } else {
+            // Calculate the score with the highest weight first. Every other score can then be
+            // bounded by the minimum value it needs to have to still be able to reach minScore.
+            float distanceScoreTrack = similarity(mBasicTrack.getNormalizedName(),
+                    resultTrackName, (minScore * 10 - 4 - 1) / 5);
+            float distanceScoreArtist = Float.NEGATIVE_INFINITY;
+            if (distanceScoreTrack != Float.NEGATIVE_INFINITY) {
+                distanceScoreArtist = similarity(mBasicTrack.getArtist().getNormalizedName(),
+                        resultArtistName, (minScore * 10 - distanceScoreTrack * 5 - 1) / 4);
+            }
+            float distanceScoreAlbum = Float.NEGATIVE_INFINITY;
+            if (distanceScoreArtist != Float.NEGATIVE_INFINITY) {
+                String albumName = mBasicTrack.getAlbum().getNormalizedName();
+                if (TextUtils.isEmpty(mBasicTrack.getAlbum().getName())) {
+                    distanceScoreAlbum = 1F;
+                } else if (albumName.length() > 0 || resultAlbumName.length() > 0) {
+                    distanceScoreAlbum = similarity(albumName, resultAlbumName,
+                            minScore * 10 - distanceScoreTrack * 5 - distanceScoreArtist * 4);
+                } else {
+                    distanceScoreAlbum = 0F;
+                }
+            }
+            if (distanceScoreAlbum == Float.NEGATIVE_INFINITY) {
+                score = Float.NEGATIVE_INFINITY;
+            } else {
+                score = (distanceScoreArtist * 4 + distanceScoreAlbum + distanceScoreTrack * 5)
+                        / 10;
+            }
+        }
+        if (score >= minScore) {
+            mSimilarityScores.put(r, score);
+        } else {
+            mPrunedSimilarityScores.put(r, minScore);
+            score = Float.NEGATIVE_INFINITY;
+        }
+        return score;
+    }
+
+    /**
+     * Calculates the similarity score of the two given Strings in the same way as {@link
+     * #howSimilar(Result)} does.
+     *
+     * @return the similarity score, or {@link Float#NEGATIVE_INFINITY} if the score is smaller than
+     * the given minScore
+     */
+    private static float similarity(String name, String resultName, float minScore) {
+        int maxLength = Math.max(name.length(), resultName.length());
+        int maxDistance = maxLength;
+        if (minScore > 0F) {
+            // Be a bit more tolerant than necessary, so that rounding errors can't cause us to
+            // drop a score that would have been exactly minScore
+            maxDistance = (int) Math.floor(maxLength * (1D - minScore) + 0.01D);
+        }
+        int distance = LevensteinDistance.getDistance(name, resultName, maxDistance);
+        if (distance > maxDistance) {
+            return Float.NEGATIVE_INFINITY;
+        }
+        return (float) (maxLength - distance) / maxLength;
+    }
+
+    /**
+     * Joins the two given normalized Strings the same way {@link #cleanUpString(String, boolean)}
+     * would clean up the String "first + " " + second".
+     */
+    private static String joinNormalized(String first, String second) {
+        if (first.length() == 0) {
+            return second;
+        } else if (second.length() == 0) {
+            return first;
+        }
+        return first + " " + second;
+    }
+
+    /**
+     * @return the cleaned up fulltext query String, cached so that we don't have to clean it up
+     * again for every {@link Result}
+     */
+    private String getNormalizedFullTextQuery(boolean replaceArticle) {
+        if (replaceArticle) {
+            if (mNormalizedFullTextQueryNoArticle == null) {
+                mNormalizedFullTextQueryNoArticle = cleanUpString(mFullTextQuery, true);
+            }
+            return mNormalizedFullTextQueryNoArticle;
+        } else {
+            if (mNormalizedFullTextQuery == null) {
+                mNormalizedFullTextQuery = cleanUpString(mFullTextQuery, false);
+            }
+            return mNormalizedFullTextQuery;
         }
     }
 
@@ -420,11 +555,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * @return the clean String
      */
     public String cleanUpString(String in, boolean replaceArticle) {
-        String out = in.toLowerCase().trim().replaceAll("[\\s]{2,}", " ");
-        if (replaceArticle && out.startsWith("the ")) {
-            out = out.substring(4);
-        }
-        return out;
+        return VariousUtils.cleanUpString(in, replaceArticle);
     }
 
     public String getName() {
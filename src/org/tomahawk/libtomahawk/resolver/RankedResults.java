@@ -0,0 +1,247 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds the best {@link Result}s of a {@link Query}, sorted by their score. Every entry stores the
+ * score and the weight of its {@link Resolver} at the time it has been added, so that the order
+ * can't be corrupted by changing them afterwards. Two entries with the same score are ordered by
+ * the weight of their {@link Resolver}s and, if those are identical as well, by the time they have
+ * been added.
+ *
+ * Besides the given capacity, as many {@link Result}s are being kept in reserve. They are not
+ * visible, but move up as soon as a visible one is being removed (e.g. because it has been
+ * blacklisted), so that a removal doesn't lose the next best candidate.
+ *
+ * Writers are serialized and publish a new sorted array on every change, so that readers never
+ * have to lock and {@link #first()} is a single volatile read.
+ */
+public class RankedResults {
+
+    /**
+     * The default number of {@link Result}s that are being kept
+     */
+    public static final int DEFAULT_CAPACITY = 10;
+
+    private static final RankedResult[] EMPTY = new RankedResult[0];
+
+    private final int mCapacity;
+
+    // The number of Results that are being kept, including the reserve
+    private final int mKeptCapacity;
+
+    private volatile RankedResult[] mResults = EMPTY;
+
+    // If set, the Result with this cacheKey is always ranked first
+    private String mResultHint;
+
+    private long mNextSequenceNumber;
+
+    public static class RankedResult {
+
+        private final Result mResult;
+
+        private final float mScore;
+
+        private final int mWeight;
+
+        private final long mSequenceNumber;
+
+        private RankedResult(Result result, float score, int weight, long sequenceNumber) {
+            mResult = result;
+            mScore = score;
+            mWeight = weight;
+            mSequenceNumber = sequenceNumber;
+        }
+
+        public Result getResult() {
+            return mResult;
+        }
+
+        public float getScore() {
+            return mScore;
+        }
+    }
+
+    /**
+     * @param capacity   the maximum number of {@link Result}s that are being kept
+     * @param resultHint the cacheKey of the {@link Result} that should always be ranked first. Can
+     *                   be null.
+     */
+    public RankedResults(int capacity, String resultHint) {
+        mCapacity = capacity;
+        mKeptCapacity = capacity > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : capacity * 2;
+        mResultHint = resultHint;
+    }
+
+    /**
+     * @return the best {@link Result} or null, if there is none
+     */
+    public Result first() {
+        RankedResult[] results = mResults;
+        return results.length > 0 ? results[0].mResult : null;
+    }
+
+    public int size() {
+        return Math.min(mResults.length, mCapacity);
+    }
+
+    /**
+     * @return an unmodifiable snapshot of all visible {@link RankedResult}s, sorted by their rank
+     */
+    public List<RankedResult> getAll() {
+        RankedResult[] results = mResults;
+        List<RankedResult> all = Arrays.asList(results);
+        if (results.length > mCapacity) {
+            all = all.subList(0, mCapacity);
+        }
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Add the given {@link Result} or update its score, if it has been added before.
+     *
+     * @return whether or not the {@link Result} is now visible. False if it didn't rank high
+     * enough, in which case it might still be kept in reserve.
+     */
+    public synchronized boolean add(Result result, float score) {
+        RankedResult[] results = mResults;
+        int index = indexOf(results, result);
+        long sequenceNumber;
+        if (index >= 0) {
+            // Keep the original sequence number, so that re-scoring doesn't change the tie-break
+            sequenceNumber = results[index].mSequenceNumber;
+            results = removeAt(results, index);
+        } else {
+            sequenceNumber = mNextSequenceNumber++;
+        }
+        RankedResult rankedResult = new RankedResult(result, score,
+                result.getResolvedBy() != null ? result.getResolvedBy().getWeight() : 0,
+                sequenceNumber);
+        int position = insertionPoint(results, rankedResult);
+        if (position >= mKeptCapacity) {
+            mResults = results;
+            return false;
+        }
+        int size = Math.min(results.length + 1, mKeptCapacity);
+        RankedResult[] newResults = new RankedResult[size];
+        System.arraycopy(results, 0, newResults, 0, position);
+        newResults[position] = rankedResult;
+        System.arraycopy(results, position, newResults, position + 1, size - position - 1);
+        mResults = newResults;
+        return position < mCapacity;
+    }
+
+    /**
+     * Remove the given {@link Result}. The best one in reserve takes its place.
+     *
+     * @return whether or not the {@link Result} has been contained
+     */
+    public synchronized boolean remove(Result result) {
+        RankedResult[] results = mResults;
+        int index = indexOf(results, result);
+        if (index >= 0) {
+            mResults = removeAt(results, index);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Set the cacheKey of the {@link Result} that should always be ranked first and re-sort
+     * accordingly.
+     */
+    public synchronized void setResultHint(String resultHint) {
+        mResultHint = resultHint;
+        RankedResult[] results = mResults.clone();
+        Arrays.sort(results, new Comparator<RankedResult>() {
+            @Override
+            public int compare(RankedResult lhs, RankedResult rhs) {
+                return RankedResults.this.compare(lhs, rhs);
+            }
+        });
+        mResults = results;
+    }
+
+    private static int indexOf(RankedResult[] results, Result result) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].mResult == result) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static RankedResult[] removeAt(RankedResult[] results, int index) {
+        RankedResult[] newResults = new RankedResult[results.length - 1];
+        System.arraycopy(results, 0, newResults, 0, index);
+        System.arraycopy(results, index + 1, newResults, index, results.length - index - 1);
+        return newResults;
+    }
+
+    /**
+     * Binary search for the position at which the given {@link RankedResult} has to be inserted
+     */
+    private int insertionPoint(RankedResult[] results, RankedResult rankedResult) {
+        int low = 0;
+        int high = results.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(results[mid], rankedResult) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return a negative value if r1 should be ranked before r2, a positive value otherwise. Only
+     * returns 0 if both are the same.
+     */
+    private int compare(RankedResult r1, RankedResult r2) {
+        if (r1 == r2) {
+            return 0;
+        }
+        if (mResultHint != null) {
+            // We have a result hint. If the cacheKey matches we automatically put the matching
+            // Result at the top of the sorted list.
+            boolean hinted1 = r1.mResult.getCacheKey().equals(mResultHint);
+            boolean hinted2 = r2.mResult.getCacheKey().equals(mResultHint);
+            if (hinted1 != hinted2) {
+                return hinted1 ? -1 : 1;
+            }
+        }
+        int result = Float.compare(r2.mScore, r1.mScore);
+        if (result == 0) {
+            // We have two identical trackScores. Now we take the Resolver's weight into account.
+            result = r2.mWeight < r1.mWeight ? -1 : (r2.mWeight == r1.mWeight ? 0 : 1);
+        }
+        if (result == 0) {
+            // We have two identical trackScores and Resolver weights. The older one wins.
+            result = r1.mSequenceNumber < r2.mSequenceNumber ? -1 : 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,434 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import org.tomahawk.libtomahawk.utils.GsonHelper;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects per-{@link Resolver} metrics: the latency between starting the script call for a {@link
+ * Query} and the {@link Resolver} reporting back, how many {@link Result}s have been reported, how
+ * many of those scored above the {@link PipeLine}'s minimum score, and how often resolving failed
+ * or timed out.
+ *
+ * Failures and timeouts also feed a {@link CircuitBreaker} per {@link Resolver}, which decides
+ * whether or not that {@link Resolver} should be asked at all.
+ */
+public class ResolverMetrics {
+
+    public static final String TAG = ResolverMetrics.class.getSimpleName();
+
+    /**
+     * The upper bounds in ms of the latency histogram's buckets. The last bucket of the histogram
+     * holds everything that took longer than the last bound.
+     */
+    public static final int[] LATENCY_BUCKETS =
+            new int[]{50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    /**
+     * Used if a {@link Resolver} hasn't told us its timeout
+     */
+    private static final int DEFAULT_TIMEOUT = 10000;
+
+    private static class Holder {
+
+        private static final ResolverMetrics instance = new ResolverMetrics();
+
+    }
+
+    public static class Metrics {
+
+        public String mResolverId;
+
+        public long mDispatchCount;
+
+        public long mReportCount;
+
+        public long mResultCount;
+
+        /**
+         * Number of reported {@link Result}s that scored at least the {@link PipeLine}'s MINSCORE
+         */
+        public long mGoodResultCount;
+
+        public float mGoodResultShare;
+
+        public long mFailureCount;
+
+        /**
+         * Number of dispatched {@link Query}s that haven't been reported back within the {@link
+         * Resolver}'s timeout
+         */
+        public long mTimeoutCount;
+
+        /**
+         * Number of deadlines missed during a {@link PipeLine#resolveStaged(Query)}
+         */
+        public long mDeadlineMissCount;
+
+        public long[] mLatencyHistogram = new long[LATENCY_BUCKETS.length + 1];
+
+        public long mAverageLatency;
+
+        public long mMaxLatency;
+
+        /**
+         * One of the {@link CircuitBreaker} states
+         */
+        public int mCircuitBreakerState;
+
+        public float mFailureRate;
+
+        private long mTotalLatency;
+
+        private long mLatencyCount;
+
+        /**
+         * @return the upper bound in ms of the histogram bucket that contains the given percentile
+         * of all latencies. -1 if the percentile lies in the last, unbounded bucket.
+         */
+        public int getLatencyPercentile(float percentile) {
+            long threshold = (long) Math.ceil(mLatencyCount * percentile);
+            long count = 0;
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                count += mLatencyHistogram[i];
+                if (count >= threshold) {
+                    return LATENCY_BUCKETS[i];
+                }
+            }
+            return -1;
+        }
+
+        private Metrics copy() {
+            Metrics metrics = new Metrics();
+            metrics.mResolverId = mResolverId;
+            metrics.mDispatchCount = mDispatchCount;
+            metrics.mReportCount = mReportCount;
+            metrics.mResultCount = mResultCount;
+            metrics.mGoodResultCount = mGoodResultCount;
+            metrics.mGoodResultShare =
+                    mResultCount > 0 ? (float) mGoodResultCount / mResultCount : 0f;
+            metrics.mFailureCount = mFailureCount;
+            metrics.mTimeoutCount = mTimeoutCount;
+            metrics.mDeadlineMissCount = mDeadlineMissCount;
+            metrics.mLatencyHistogram = mLatencyHistogram.clone();
+            metrics.mAverageLatency = mLatencyCount > 0 ? mTotalLatency / mLatencyCount : 0;
+            metrics.mMaxLatency = mMaxLatency;
+            metrics.mCircuitBreakerState = mCircuitBreakerState;
+            metrics.mFailureRate = mFailureRate;
+            metrics.mTotalLatency = mTotalLatency;
+            metrics.mLatencyCount = mLatencyCount;
+            return metrics;
+        }
+
+        @Override
+        public String toString() {
+            return mResolverId + " - dispatched: " + mDispatchCount + ", reported: "
+                    + mReportCount + ", results: " + mResultCount + ", good results: "
+                    + mGoodResultCount + ", failures: " + mFailureCount + ", timeouts: "
+                    + mTimeoutCount + ", deadline misses: " + mDeadlineMissCount
+                    + ", avg latency: " + mAverageLatency + "ms, max latency: " + mMaxLatency
+                    + "ms, circuit breaker state: " + mCircuitBreakerState + ", failure rate: "
+                    + mFailureRate;
+        }
+    }
+
+    private static class Dispatch {
+
+        private int mTimeout;
+
+        private long mTime;
+
+        private long mExpiryTime;
+    }
+
+    private final Map<String, Metrics> mMetrics = new HashMap<>();
+
+    private final Map<String, CircuitBreaker> mCircuitBreakers = new HashMap<>();
+
+    // Ids of the resolvers whose CircuitBreaker has been tripped or closed, but which haven't been
+    // announced yet
+    private final Set<String> mChangedCircuitBreakers = new HashSet<>();
+
+    // Maps resolver ids to the Queries that have been dispatched to that resolver, but whose script
+    // call hasn't been started yet. These can't time out.
+    private final Map<String, HashMap<Query, Dispatch>> mQueuedDispatches = new HashMap<>();
+
+    // Maps resolver ids to the Queries whose script call has been started and that haven't been
+    // reported back yet. Ordered by start time, so that expired dispatches are at the front.
+    private final Map<String, LinkedHashMap<Query, Dispatch>> mDispatches = new HashMap<>();
+
+    private ResolverMetrics() {
+    }
+
+    public static ResolverMetrics get() {
+        return Holder.instance;
+    }
+
+    /**
+     * Record that the given {@link Query} has been dispatched to the {@link Resolver} with the
+     * given id. The timeout only starts to run once {@link #onStarted(String, Query)} is called,
+     * so that the time a dispatch spends waiting in the queue isn't counted against the Resolver.
+     *
+     * @param timeout the time in ms after which the started dispatch is counted as timed out
+     */
+    public void onDispatched(String resolverId, Query query, int timeout) {
+        synchronized (this) {
+            expireDispatches(resolverId, SystemClock.elapsedRealtime());
+            getOrCreate(resolverId).mDispatchCount++;
+            HashMap<Query, Dispatch> queuedDispatches = mQueuedDispatches.get(resolverId);
+            if (queuedDispatches == null) {
+                queuedDispatches = new HashMap<>();
+                mQueuedDispatches.put(resolverId, queuedDispatches);
+            }
+            Dispatch dispatch = new Dispatch();
+            dispatch.mTimeout = timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+            queuedDispatches.put(query, dispatch);
+        }
+        announceCircuitBreakerChanges();
+    }
+
+    /**
+     * Record that the script call to resolve the given {@link Query} is actually being made by the
+     * {@link Resolver} with the given id. Starts the dispatch's timeout.
+     */
+    public void onStarted(String resolverId, Query query) {
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            expireDispatches(resolverId, now);
+            HashMap<Query, Dispatch> queuedDispatches = mQueuedDispatches.get(resolverId);
+            Dispatch dispatch = queuedDispatches != null ? queuedDispatches.remove(query) : null;
+            if (dispatch == null) {
+                return;
+            }
+            LinkedHashMap<Query, Dispatch> dispatches = mDispatches.get(resolverId);
+            if (dispatches == null) {
+                dispatches = new LinkedHashMap<>();
+                mDispatches.put(resolverId, dispatches);
+            }
+            dispatch.mTime = now;
+            dispatch.mExpiryTime = now + dispatch.mTimeout;
+            // Remove first, so that the re-started Query moves to the end
+            dispatches.remove(query);
+            dispatches.put(query, dispatch);
+        }
+        announceCircuitBreakerChanges();
+    }
+
+    /**
+     * Record that the {@link Resolver} with the given id has reported the given number of {@link
+     * Result}s for the given {@link Query}.
+     */
+    public void onReported(String resolverId, Query query, int resultCount) {
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            expireDispatches(resolverId, now);
+            Metrics metrics = getOrCreate(resolverId);
+            metrics.mReportCount++;
+            metrics.mResultCount += resultCount;
+            removeQueuedDispatch(resolverId, query);
+            LinkedHashMap<Query, Dispatch> dispatches = mDispatches.get(resolverId);
+            Dispatch dispatch = dispatches != null ? dispatches.remove(query) : null;
+            if (dispatch != null) {
+                long latency = now - dispatch.mTime;
+                int bucket = 0;
+                while (bucket < LATENCY_BUCKETS.length && latency > LATENCY_BUCKETS[bucket]) {
+                    bucket++;
+                }
+                metrics.mLatencyHistogram[bucket]++;
+                metrics.mLatencyCount++;
+                metrics.mTotalLatency += latency;
+                metrics.mMaxLatency = Math.max(metrics.mMaxLatency, latency);
+            }
+            if (getCircuitBreaker(resolverId).onSuccess()) {
+                mChangedCircuitBreakers.add(resolverId);
+            }
+        }
+        announceCircuitBreakerChanges();
+    }
+
+    /**
+     * Record how many of the {@link Result}s that the {@link Resolver} with the given id has
+     * reported scored at least the {@link PipeLine}'s minimum score.
+     */
+    public synchronized void onResultsScored(String resolverId, int goodResultCount) {
+        getOrCreate(resolverId).mGoodResultCount += goodResultCount;
+    }
+
+    /**
+     * Record that resolving the given {@link Query} has failed on the JS side of the {@link
+     * Resolver} with the given id.
+     */
+    public void onFailure(String resolverId, Query query) {
+        synchronized (this) {
+            getOrCreate(resolverId).mFailureCount++;
+            removeQueuedDispatch(resolverId, query);
+            LinkedHashMap<Query, Dispatch> dispatches = mDispatches.get(resolverId);
+            if (dispatches != null) {
+                dispatches.remove(query);
+            }
+            if (getCircuitBreaker(resolverId).onFailure()) {
+                mChangedCircuitBreakers.add(resolverId);
+            }
+        }
+        announceCircuitBreakerChanges();
+    }
+
+    public synchronized void onDeadlineMissed(String resolverId) {
+        getOrCreate(resolverId).mDeadlineMissCount++;
+    }
+
+    /**
+     * Check whether or not the {@link CircuitBreaker} of the {@link Resolver} with the given id
+     * allows a request. Should only be called right before the request is actually being made.
+     */
+    public synchronized boolean allowRequest(String resolverId) {
+        return getCircuitBreaker(resolverId).allowRequest();
+    }
+
+    /**
+     * @return the states of all {@link CircuitBreaker}s, mapped by resolver id
+     */
+    public synchronized Map<String, Integer> getCircuitBreakerStates() {
+        Map<String, Integer> states = new HashMap<>();
+        for (Map.Entry<String, CircuitBreaker> entry : mCircuitBreakers.entrySet()) {
+            states.put(entry.getKey(), entry.getValue().getState());
+        }
+        return states;
+    }
+
+    /**
+     * @return a snapshot of the {@link Metrics} of the {@link Resolver} with the given id
+     */
+    public synchronized Metrics getMetrics(String resolverId) {
+        expireDispatches(resolverId, SystemClock.elapsedRealtime());
+        return snapshot(resolverId);
+    }
+
+    /**
+     * @return a snapshot of the {@link Metrics} of every {@link Resolver}, mapped by resolver id
+     */
+    public synchronized Map<String, Metrics> getAllMetrics() {
+        long now = SystemClock.elapsedRealtime();
+        Map<String, Metrics> allMetrics = new HashMap<>();
+        for (String resolverId : mMetrics.keySet()) {
+            expireDispatches(resolverId, now);
+            allMetrics.put(resolverId, snapshot(resolverId));
+        }
+        return allMetrics;
+    }
+
+    /**
+     * @return the {@link Metrics} of every {@link Resolver} as a JSON object, mapped by resolver
+     * id
+     */
+    public String toJson() {
+        return GsonHelper.get().toJson(getAllMetrics());
+    }
+
+    public synchronized void reset() {
+        mMetrics.clear();
+        mQueuedDispatches.clear();
+        mDispatches.clear();
+    }
+
+    private Metrics snapshot(String resolverId) {
+        Metrics metrics = getOrCreate(resolverId).copy();
+        CircuitBreaker circuitBreaker = getCircuitBreaker(resolverId);
+        metrics.mCircuitBreakerState = circuitBreaker.getState();
+        metrics.mFailureRate = circuitBreaker.getFailureRate();
+        return metrics;
+    }
+
+    private CircuitBreaker getCircuitBreaker(String resolverId) {
+        CircuitBreaker circuitBreaker = mCircuitBreakers.get(resolverId);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker();
+            mCircuitBreakers.put(resolverId, circuitBreaker);
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Let the {@link PipeLine} know about every {@link CircuitBreaker} that has been tripped or
+     * closed. Must not be called while holding the lock, since the {@link PipeLine} posts events.
+     */
+    private void announceCircuitBreakerChanges() {
+        List<String> resolverIds;
+        synchronized (this) {
+            if (mChangedCircuitBreakers.isEmpty()) {
+                return;
+            }
+            resolverIds = new ArrayList<>(mChangedCircuitBreakers);
+            mChangedCircuitBreakers.clear();
+        }
+        for (String resolverId : resolverIds) {
+            PipeLine.get().onCircuitBreakerStateChanged(resolverId);
+        }
+    }
+
+    private Metrics getOrCreate(String resolverId) {
+        Metrics metrics = mMetrics.get(resolverId);
+        if (metrics == null) {
+            metrics = new Metrics();
+            metrics.mResolverId = resolverId;
+            mMetrics.put(resolverId, metrics);
+        }
+        return metrics;
+    }
+
+    private void removeQueuedDispatch(String resolverId, Query query) {
+        HashMap<Query, Dispatch> queuedDispatches = mQueuedDispatches.get(resolverId);
+        if (queuedDispatches != null) {
+            queuedDispatches.remove(query);
+        }
+    }
+
+    /**
+     * Count every started dispatch of the {@link Resolver} with the given id, that hasn't been
+     * reported back before its expiry time, as timed out.
+     */
+    private void expireDispatches(String resolverId, long now) {
+        LinkedHashMap<Query, Dispatch> dispatches = mDispatches.get(resolverId);
+        if (dispatches == null) {
+            return;
+        }
+        Iterator<Dispatch> iterator = dispatches.values().iterator();
+        while (iterator.hasNext()) {
+            Dispatch dispatch = iterator.next();
+            if (dispatch.mExpiryTime > now) {
+                break;
+            }
+            iterator.remove();
+            getOrCreate(resolverId).mTimeoutCount++;
+            if (getCircuitBreaker(resolverId).onFailure()) {
+                mChangedCircuitBreakers.add(resolverId);
+            }
+        }
+    }
+}
@@ -110,19 +110,19 @@ public class Result extends Cacheable {
     }
 
     public static Result get(String url, Track track, Resolver resolvedBy) {
-        Cacheable cacheable = get(Result.class, getCacheKey(url, track.getName(),
+        Cacheable cacheable = get(Result.class, getLookupKey(url, track.getName(),
                 track.getAlbum().getName(), track.getArtist().getName()));
         return cacheable != null ? (Result) cacheable : new Result(url, track, resolvedBy);
     }
 
     public static Result get(Artist artist) {
-        Cacheable cacheable = get(Result.class, getCacheKey(artist.getName()));
+        Cacheable cacheable = get(Result.class, getLookupKey(artist.getName()));
         return cacheable != null ? (Result) cacheable : new Result(artist);
     }
 
     public static Result get(Album album) {
         Cacheable cacheable = get(Result.class,
-                getCacheKey(album.getName(), album.getArtist().getName()));
+                getLookupKey(album.getName(), album.getArtist().getName()));
         return cacheable != null ? (Result) cacheable : new Result(album);
     }
 
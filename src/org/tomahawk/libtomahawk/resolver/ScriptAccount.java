@@ -29,7 +29,6 @@ import org.tomahawk.libtomahawk.resolver.plugins.ScriptCollectionPluginFactory;
 import org.tomahawk.libtomahawk.resolver.plugins.ScriptInfoPluginFactory;
 import org.tomahawk.libtomahawk.resolver.plugins.ScriptResolverPluginFactory;
 import org.tomahawk.libtomahawk.utils.GsonHelper;
-import org.tomahawk.libtomahawk.utils.StringEscapeUtils;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
 
@@ -46,9 +45,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyListener {
 
@@ -68,7 +69,7 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     private WebView mWebView;
 
-    private HashMap<String, ScriptJob> mJobs = new HashMap<>();
+    private Map<String, ScriptJob> mJobs = new ConcurrentHashMap<>();
 
     private HashMap<String, ScriptObject> mObjects = new HashMap<>();
 
@@ -89,6 +90,44 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     private Map<String, FuzzyIndex> mFuzzyIndexMap = new HashMap<>();
 
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final List<String> mPendingScripts = new ArrayList<>();
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingScripts();
+        }
+    };
+
+    private int mMaxQueueDepth;
+
+    private final Object mRoundTripLock = new Object();
+
+    private long mFinishedJobCount;
+
+    private long mTotalRoundTripTime;
+
+    private long mMaxRoundTripTime;
+
+    /**
+     * The queue depth and round trip time metrics of the channel between a {@link ScriptAccount}
+     * and its WebView. All times are in milliseconds.
+     */
+    public static class DispatchStats {
+
+        public int mQueueDepth;
+
+        public int mMaxQueueDepth;
+
+        public long mFinishedJobCount;
+
+        public long mAverageRoundTripTime;
+
+        public long mMaxRoundTripTime;
+    }
+
     public ScriptAccount(String path, boolean manuallyInstalled) {
         String prefix = manuallyInstalled ? "file://" : "file:///android_asset";
         mPath = prefix + path;
@@ -136,7 +175,7 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
             WebView.setWebContentsDebuggingEnabled(true);
         }
 
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
+        mMainHandler.post(new Runnable() {
             @Override
             public void run() {
                 //initalize WebView
@@ -265,29 +304,111 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     public void startJob(final ScriptJob job) {
         final String requestId = TomahawkMainActivity.getSessionUniqueStringId();
+        job.setStartTime(System.currentTimeMillis());
         mJobs.put(requestId, job);
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                String serializedArgs = GsonHelper.get().toJson(job.getArguments());
-                serializedArgs = "JSON.parse('" + StringEscapeUtils
-                        .escapeJavaScript(serializedArgs) + "')";
-                evaluateJavaScript("Tomahawk.PluginManager.invoke("
-                        + "'" + requestId + "',"
-                        + "'" + job.getScriptObject().getId() + "',"
-                        + "'" + job.getMethodName() + "',"
-                        + serializedArgs + ")");
+        evaluateJavaScript("Tomahawk.PluginManager.invoke("
+                + "'" + requestId + "',"
+                + "'" + job.getScriptObject().getId() + "',"
+                + "'" + job.getMethodName() + "',"
+                + toJsLiteral(job.getArguments()) + ")");
+    }
+
+    /**
+     * Start all of the given {@link ScriptJob}s with a single call to the JS side. All given
+     * ScriptJobs have to belong to the same {@link ScriptObject}. Every job's result is being
+     * reported back on its own, as soon as it is available.
+     */
+    public void startJobBatch(final List<ScriptJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<BatchedJob> batchedJobs = new ArrayList<>();
+        for (ScriptJob job : jobs) {
+            BatchedJob batchedJob = new BatchedJob();
+            batchedJob.requestId = TomahawkMainActivity.getSessionUniqueStringId();
+            batchedJob.methodName = job.getMethodName();
+            batchedJob.params = job.getArguments();
+            job.setStartTime(startTime);
+            mJobs.put(batchedJob.requestId, job);
+            batchedJobs.add(batchedJob);
+        }
+        String objectId = jobs.get(0).getScriptObject().getId();
+        evaluateJavaScript("Tomahawk.PluginManager.invokeBatch("
+                + "'" + objectId + "',"
+                + toJsLiteral(batchedJobs) + ")");
+    }
+
+    /**
+     * Queue the given javascript code. All code that has been queued before the main looper gets
+     * to run again is being evaluated with one single call.
+     */
+    private void evaluateJavaScript(String code) {
+        synchronized (mPendingScripts) {
+            mPendingScripts.add(code);
+            mMaxQueueDepth = Math.max(mMaxQueueDepth, mPendingScripts.size());
+            if (mPendingScripts.size() == 1) {
+                mMainHandler.post(mFlushRunnable);
             }
-        });
+        }
     }
 
-    private void evaluateJavaScript(final String code) {
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                mWebView.loadUrl("javascript: " + code);
+    /**
+     * Evaluate all queued javascript code in the WebView. Must be called on the main thread.
+     */
+    private void flushPendingScripts() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (mPendingScripts) {
+            for (String code : mPendingScripts) {
+                // Every call gets its own try-catch block, so that one failing call doesn't stop
+                // all following calls from being evaluated
+                sb.append("try {").append(code).append("} catch (e) {")
+                        .append("Tomahawk.log('evaluateJavaScript - ' + e);}\n");
             }
-        });
+            mPendingScripts.clear();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            mWebView.evaluateJavascript(sb.toString(), null);
+        } else {
+            mWebView.loadUrl("javascript: " + sb.toString());
+        }
+    }
+
+    /**
+     * Serialize the given object to JSON, so that it can directly be used as a literal inside of
+     * javascript code. This way we don't have to escape it and let the JS side parse it again.
+     */
+    private static String toJsLiteral(Object object) {
+        // JSON allows the line terminators U+2028 and U+2029 inside of Strings, javascript doesn't
+        return GsonHelper.get().toJson(object)
+                .replace("\u2028", "\\u2028").replace("\u2029", "\\u2029");
+    }
+
+    /**
+     * @return the current {@link DispatchStats} of this {@link ScriptAccount}
+     */
+    public DispatchStats getDispatchStats() {
+        DispatchStats stats = new DispatchStats();
+        synchronized (mPendingScripts) {
+            stats.mQueueDepth = mPendingScripts.size();
+            stats.mMaxQueueDepth = mMaxQueueDepth;
+        }
+        synchronized (mRoundTripLock) {
+            stats.mFinishedJobCount = mFinishedJobCount;
+            stats.mAverageRoundTripTime =
+                    mFinishedJobCount > 0 ? mTotalRoundTripTime / mFinishedJobCount : 0;
+            stats.mMaxRoundTripTime = mMaxRoundTripTime;
+        }
+        return stats;
+    }
+
+    private void onJobFinished(ScriptJob job) {
+        long roundTripTime = System.currentTimeMillis() - job.getStartTime();
+        synchronized (mRoundTripLock) {
+            mFinishedJobCount++;
+            mTotalRoundTripTime += roundTripTime;
+            mMaxRoundTripTime = Math.max(mMaxRoundTripTime, roundTripTime);
+        }
     }
 
     public void reportScriptJobResult(JsonObject result) {
@@ -299,6 +420,7 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
         if (requestId != null && !requestId.isEmpty()) {
             ScriptJob job = mJobs.get(requestId);
             if (job != null) {
+                onJobFinished(job);
                 JsonElement errorNode = result.get("error");
                 if (errorNode == null) {
                     job.reportResults(result.get("data"));
@@ -381,12 +503,20 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
                 headers.put(key, concatenatedValues);
             }
         }
-        String headersString = GsonHelper.get().toJson(headers);
         evaluateJavaScript("Tomahawk._nativeAsyncRequestDone(" + requestId + ","
-                + "'" + StringEscapeUtils.escapeJavaScript(responseText) + "',"
-                + "'" + StringEscapeUtils.escapeJavaScript(headersString) + "',"
+                + toJsLiteral(responseText) + ","
+                + toJsLiteral(headers) + ","
                 + status + ","
-                + "'" + StringEscapeUtils.escapeJavaScript(statusText) + "');");
+                + toJsLiteral(statusText) + ");");
+    }
+
+    private static class BatchedJob {
+
+        String requestId;
+
+        String methodName;
+
+        Map<String, Object> params;
     }
 
     public class CollectionAddTracksResult {
@@ -401,18 +531,45 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
         String id;
     }
 
-    public void invokeNativeScriptJob(int requestId, String methodName, String paramsString) {
+    public void invokeNativeScriptJob(final int requestId, String methodName,
+            String paramsString) {
+        // Collection writes are being done on the CollectionDb writer thread, so that we don't
+        // block the javascript bridge. The result is being reported once they have been written.
+        CollectionDbManager.WriteCallback callback = new CollectionDbManager.WriteCallback() {
+            @Override
+            public void onWritten(boolean success) {
+                if (success) {
+                    reportNativeScriptJobResult(requestId);
+                } else {
+                    reportNativeScriptJobFailure(requestId, "couldn't write to the collection");
+                }
+            }
+        };
         if (methodName.equals("collectionAddTracks")) {
             CollectionAddTracksResult result =
                     GsonHelper.get().fromJson(paramsString, CollectionAddTracksResult.class);
-            CollectionDbManager.get().getCollectionDb(result.id).addTracks(result.tracks);
+            CollectionDbManager.get().addTracks(result.id, result.tracks, callback);
+        } else if (methodName.equals("collectionMergeTracks")) {
+            CollectionAddTracksResult result =
+                    GsonHelper.get().fromJson(paramsString, CollectionAddTracksResult.class);
+            CollectionDbManager.get().mergeTracks(result.id, result.tracks, callback);
         } else if (methodName.equals("collectionWipe")) {
             CollectionWipeResult result =
                     GsonHelper.get().fromJson(paramsString, CollectionWipeResult.class);
-            CollectionDbManager.get().getCollectionDb(result.id).wipe();
+            CollectionDbManager.get().wipe(result.id, callback);
+        } else {
+            reportNativeScriptJobResult(requestId);
         }
+    }
+
+    private void reportNativeScriptJobResult(int requestId) {
         evaluateJavaScript(
                 "Tomahawk.NativeScriptJobManager.reportNativeScriptJobResult(" + requestId + ");");
     }
 
+    private void reportNativeScriptJobFailure(int requestId, String errorMessage) {
+        evaluateJavaScript("Tomahawk.NativeScriptJobManager.reportNativeScriptJobFailure("
+                + requestId + "," + toJsLiteral(errorMessage) + ");");
+    }
+
 }
@@ -13,6 +13,8 @@ import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.libtomahawk.utils.NetworkUtils;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
+import org.tomahawk.tomahawk_android.utils.ThreadManager;
+import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 
 import android.text.TextUtils;
 import android.util.Log;
@@ -110,53 +112,55 @@ public class ScriptInterface {
     @JavascriptInterface
     public void nativeAsyncRequestString(final int reqId, final String url,
             final String stringifiedExtraHeaders, final String stringifiedOptions) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Map<String, String> extraHeaders = new HashMap<>();
-                    if (!TextUtils.isEmpty(stringifiedExtraHeaders)) {
-                        extraHeaders = GsonHelper.get()
-                                .fromJson(stringifiedExtraHeaders, Map.class);
+        ThreadManager.get().executeNetwork(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_RESOLVING) {
+                    @Override
+                    public void run() {
+                        try {
+                            Map<String, String> extraHeaders = new HashMap<>();
+                            if (!TextUtils.isEmpty(stringifiedExtraHeaders)) {
+                                extraHeaders = GsonHelper.get()
+                                        .fromJson(stringifiedExtraHeaders, Map.class);
+                            }
+                            ScriptInterfaceRequestOptions options = null;
+                            if (!TextUtils.isEmpty(stringifiedOptions)) {
+                                options = GsonHelper.get().fromJson(stringifiedOptions,
+                                        ScriptInterfaceRequestOptions.class);
+                            }
+                            JsCallback callback = null;
+                            if (reqId >= 0) {
+                                callback = new JsCallback(reqId);
+                            }
+                            String method = null;
+                            String username = null;
+                            String password = null;
+                            String data = null;
+                            if (options != null) {
+                                method = options.method;
+                                username = options.username;
+                                password = options.password;
+                                data = options.data;
+                            }
+                            Response response = NetworkUtils.httpRequest(method, url, extraHeaders,
+                                    username, password, data, true, mScriptAccount.getName());
+                            String responseText = response.body().string();
+                            Map<String, List<String>> responseHeaders = new HashMap<>();
+                            for (String headerName : response.headers().names()) {
+                                responseHeaders.put(headerName.toLowerCase(),
+                                        response.headers(headerName));
+                            }
+                            int status = response.code();
+                            String statusText = response.message();
+
+                            if (callback != null) {
+                                callback.call(responseText, responseHeaders, status, statusText);
+                            }
+                        } catch (IOException e) {
+                            Log.e(TAG, "nativeAsyncRequestString: " + e.getClass() + ": "
+                                    + e.getLocalizedMessage());
+                        }
                     }
-                    ScriptInterfaceRequestOptions options = null;
-                    if (!TextUtils.isEmpty(stringifiedOptions)) {
-                        options = GsonHelper.get().fromJson(stringifiedOptions,
-                                ScriptInterfaceRequestOptions.class);
-                    }
-                    JsCallback callback = null;
-                    if (reqId >= 0) {
-                        callback = new JsCallback(reqId);
-                    }
-                    String method = null;
-                    String username = null;
-                    String password = null;
-                    String data = null;
-                    if (options != null) {
-                        method = options.method;
-                        username = options.username;
-                        password = options.password;
-                        data = options.data;
-                    }
-                    Response response = NetworkUtils.httpRequest(
-                            method, url, extraHeaders, username, password, data, true);
-                    String responseText = response.body().string();
-                    Map<String, List<String>> responseHeaders = new HashMap<>();
-                    for (String headerName : response.headers().names()) {
-                        responseHeaders.put(headerName.toLowerCase(), response.headers(headerName));
-                    }
-                    int status = response.code();
-                    String statusText = response.message();
-
-                    if (callback != null) {
-                        callback.call(responseText, responseHeaders, status, statusText);
-                    }
-                } catch (IOException e) {
-                    Log.e(TAG, "nativeAsyncRequestString: " + e.getClass() + ": "
-                            + e.getLocalizedMessage());
-                }
-            }
-        }).start();
+                });
     }
 
     @JavascriptInterface
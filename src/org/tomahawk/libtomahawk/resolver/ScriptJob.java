@@ -48,6 +48,8 @@ public class ScriptJob {
 
     private FailureCallback mFailureCallback;
 
+    private long mStartTime;
+
     private interface SuccessCallback {
 
     }
@@ -191,6 +193,44 @@ public class ScriptJob {
         object.getScriptAccount().startJob(job);
     }
 
+    /**
+     * Constructs a new ScriptJob without starting it. Several of these can be started at once by
+     * using {@link ScriptAccount#startJobBatch(java.util.List)}.
+     *
+     * @param object          The {@link ScriptObject} that is associated with this {@link
+     *                        ScriptJob}. The {@link ScriptObject} represents the Java-{@link
+     *                        ScriptPlugin} on the JS side.
+     * @param methodName      The name of the method that will be called on the JS side.
+     * @param arguments       The set of arguments (parameters) that is provided to the called
+     *                        method.
+     * @param successCallback A callback object that will get called when the request has
+     *                        successfully returned from the JS side.
+     */
+    public static ScriptJob create(ScriptObject object, String methodName,
+            Map<String, Object> arguments, SuccessCallback successCallback) {
+        return new ScriptJob(object, methodName, arguments, successCallback, null);
+    }
+
+    /**
+     * Constructs a new ScriptJob without starting it. Several of these can be started at once by
+     * using {@link ScriptAccount#startJobBatch(java.util.List)}.
+     *
+     * @param object          The {@link ScriptObject} that is associated with this {@link
+     *                        ScriptJob}. The {@link ScriptObject} represents the Java-{@link
+     *                        ScriptPlugin} on the JS side.
+     * @param methodName      The name of the method that will be called on the JS side.
+     * @param arguments       The set of arguments (parameters) that is provided to the called
+     *                        method.
+     * @param successCallback A callback object that will get called when the request has
+     *                        successfully returned from the JS side.
+     * @param failureCallback A callback object that will get called when the request has failed.
+     */
+    public static ScriptJob create(ScriptObject object, String methodName,
+            Map<String, Object> arguments, SuccessCallback successCallback,
+            FailureCallback failureCallback) {
+        return new ScriptJob(object, methodName, arguments, successCallback, failureCallback);
+    }
+
     private ScriptJob(ScriptObject object, String methodName, Map<String, Object> arguments,
             SuccessCallback successCallback, FailureCallback failureCallback) {
         mScriptObject = object;
@@ -224,6 +264,14 @@ public class ScriptJob {
         return mArguments;
     }
 
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    public void setStartTime(long startTime) {
+        mStartTime = startTime;
+    }
+
     /**
      * This method is being called if the request was successful.
      *
@@ -24,6 +24,7 @@ import com.squareup.okhttp.Response;
 
 import org.tomahawk.libtomahawk.authentication.AuthenticatorManager;
 import org.tomahawk.libtomahawk.authentication.AuthenticatorUtils;
+import org.tomahawk.libtomahawk.database.ResultCache;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverAccessTokenResult;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverConfigUi;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverSettings;
@@ -35,6 +36,7 @@ import org.tomahawk.tomahawk_android.R;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.utils.WeakReferenceHandler;
 
+import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
@@ -43,6 +45,7 @@ import android.widget.ImageView;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import de.greenrobot.event.EventBus;
@@ -84,6 +87,22 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
     // Meaning this resolver is no longer being shown as resolving.
     private final TimeOutHandler mTimeOutHandler = new TimeOutHandler(this);
 
+    private final List<Query> mQueriesToResolve = new ArrayList<>();
+
+    private final Handler mBatchHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mResolveBatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            List<Query> queries;
+            synchronized (mQueriesToResolve) {
+                queries = new ArrayList<>(mQueriesToResolve);
+                mQueriesToResolve.clear();
+            }
+            resolveBatch(queries);
+        }
+    };
+
     private static class TimeOutHandler extends WeakReferenceHandler<ScriptResolver> {
 
         public TimeOutHandler(ScriptResolver scriptResolver) {
@@ -265,7 +284,9 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
     }
 
     /**
-     * Invoke the javascript to resolve the given {@link Query}.
+     * Invoke the javascript to resolve the given {@link Query}. All {@link Query}s that are being
+     * given to this method before the main looper gets to run again are being sent to the JS side
+     * in one batch.
      *
      * @param query the {@link Query} which should be resolved
      * @return whether or not the Resolver is ready to resolve
@@ -277,32 +298,68 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
             mTimeOutHandler.removeCallbacksAndMessages(null);
             mTimeOutHandler.sendEmptyMessageDelayed(TIMEOUT_HANDLER_MSG, mTimeout);
 
-            ScriptJob.ResultsArrayCallback callback = new ScriptJob.ResultsArrayCallback() {
-                @Override
-                public void onReportResults(JsonArray results) {
-                    ArrayList<Result> parsedResults =
-                            ScriptUtils.parseResultList(ScriptResolver.this, results);
-                    PipeLine.get().reportResults(query, parsedResults, mId);
-                    mTimeOutHandler.removeCallbacksAndMessages(null);
-                    mStopped = true;
+            ResolverMetrics.get().onDispatched(mId, query, mTimeout);
+            synchronized (mQueriesToResolve) {
+                mQueriesToResolve.add(query);
+                if (mQueriesToResolve.size() == 1) {
+                    mBatchHandler.post(mResolveBatchRunnable);
                 }
-            };
-
-            if (query.isFullTextQuery()) {
-                HashMap<String, Object> args = new HashMap<>();
-                args.put("query", query.getFullTextQuery());
-                ScriptJob.start(mScriptObject, "search", args, callback);
-            } else {
-                HashMap<String, Object> args = new HashMap<>();
-                args.put("artist", query.getArtist().getName());
-                args.put("album", query.getAlbum().getName());
-                args.put("track", query.getName());
-                ScriptJob.start(mScriptObject, "resolve", args, callback);
             }
         }
         return mInitialized;
     }
 
+    /**
+     * Invoke the javascript to resolve all of the given {@link Query}s with a single call.
+     */
+    public void resolveBatch(List<Query> queries) {
+        for (Query query : queries) {
+            ResolverMetrics.get().onStarted(mId, query);
+            PipeLine.get().onResolvingStarted(query, mId);
+        }
+        if (queries.size() == 1) {
+            mScriptAccount.startJob(buildResolveJob(queries.get(0)));
+        } else if (queries.size() > 1) {
+            List<ScriptJob> jobs = new ArrayList<>();
+            for (Query query : queries) {
+                jobs.add(buildResolveJob(query));
+            }
+            mScriptAccount.startJobBatch(jobs);
+        }
+    }
+
+    private ScriptJob buildResolveJob(final Query query) {
+        ScriptJob.ResultsArrayCallback callback = new ScriptJob.ResultsArrayCallback() {
+            @Override
+            public void onReportResults(JsonArray results) {
+                ArrayList<Result> parsedResults =
+                        ScriptUtils.parseResultList(ScriptResolver.this, results);
+                PipeLine.get().reportResults(query, parsedResults, mId);
+                mTimeOutHandler.removeCallbacksAndMessages(null);
+                mStopped = true;
+            }
+        };
+        ScriptJob.FailureCallback failureCallback = new ScriptJob.FailureCallback() {
+            @Override
+            public void onReportFailure(String errormessage) {
+                Log.e(TAG, "resolve - " + mId + " failed to resolve query \""
+                        + query.getCacheKey() + "\": " + errormessage);
+                ResolverMetrics.get().onFailure(mId, query);
+            }
+        };
+
+        HashMap<String, Object> args = new HashMap<>();
+        if (query.isFullTextQuery()) {
+            args.put("query", query.getFullTextQuery());
+            return ScriptJob.create(mScriptObject, "search", args, callback, failureCallback);
+        } else {
+            args.put("artist", query.getArtist().getName());
+            args.put("album", query.getAlbum().getName());
+            args.put("track", query.getName());
+            return ScriptJob.create(mScriptObject, "resolve", args, callback, failureCallback);
+        }
+    }
+
     public void getStreamUrl(final Result result) {
         if (result != null) {
             HashMap<String, Object> args = new HashMap<>();
@@ -381,6 +438,14 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
         return mWeight;
     }
 
+    /**
+     * @return the time in ms after which this {@link ScriptResolver} is no longer considered to be
+     * resolving, as stated in its settings. 0 if its settings haven't been loaded yet.
+     */
+    public int getTimeout() {
+        return mTimeout;
+    }
+
     public String getDescription() {
         return mScriptAccount.getMetaData().description;
     }
@@ -400,6 +465,9 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
 
     public void setEnabled(boolean enabled) {
         Log.d(TAG, this.mId + " has been " + (enabled ? "enabled" : "disabled"));
+        if (mEnabled != enabled) {
+            ResultCache.get().remove(mId);
+        }
         mEnabled = enabled;
         Map<String, Object> config = getConfig();
         config.put(ScriptAccount.ENABLED_KEY, enabled);
@@ -105,4 +105,70 @@ public final class LevensteinDistance {
         // actually has the most recent cost counts
         return p[n];
     }
-}
\ No newline at end of file
+
+    /**
+     * Bounded variant of {@link #getDistance(String, String)}. Only the cells within a band of
+     * width 2 * maxDistance + 1 around the diagonal are being computed (Ukkonen's cutoff) and the
+     * calculation stops as soon as every cell of a row exceeds the given maxDistance.
+     *
+     * @return the same value as {@link #getDistance(String, String)} if that value is smaller than
+     * or equal to maxDistance, otherwise maxDistance + 1
+     */
+    public static int getDistance(String target, String other, int maxDistance) {
+        final int n = target.length();
+        final int m = other.length();
+        if (n == 0 || m == 0) {
+            return n == m ? 1 : 0;
+        }
+        if (maxDistance >= Math.max(n, m)) {
+            // The bound can never be hit
+            return getDistance(target, other);
+        }
+        final int tooFar = maxDistance + 1;
+        if (maxDistance < 0 || Math.abs(n - m) > maxDistance) {
+            return tooFar;
+        }
+
+        int p[] = new int[n + 1]; //'previous' cost array, horizontally
+        int d[] = new int[n + 1]; // cost array, horizontally
+        int _d[]; //placeholder to assist in swapping p and d
+
+        for (int i = 0; i <= n; i++) {
+            p[i] = i <= maxDistance ? i : tooFar;
+        }
+
+        for (int j = 1; j <= m; j++) {
+            final char t_j = other.charAt(j - 1);
+            // only the cells within the band have to be computed
+            final int from = Math.max(1, j - maxDistance);
+            final int to = Math.min(n, j + maxDistance);
+
+            d[0] = j <= maxDistance ? j : tooFar;
+            if (from > 1) {
+                d[from - 1] = tooFar;
+            }
+            int rowMin = d[0];
+            for (int i = from; i <= to; i++) {
+                int cost = target.charAt(i - 1) == t_j ? 0 : 1;
+                // minimum of cell to the left+1, to the top+1, diagonally left and up +cost
+                int value = Math.min(Math.min(d[i - 1] + 1, p[i] + 1), p[i - 1] + cost);
+                d[i] = Math.min(value, tooFar);
+                rowMin = Math.min(rowMin, d[i]);
+            }
+            if (to < n) {
+                d[to + 1] = tooFar;
+            }
+            if (rowMin > maxDistance) {
+                // every path through this row already exceeds maxDistance
+                return tooFar;
+            }
+
+            // copy current distance counts to 'previous row' distance counts
+            _d = p;
+            p = d;
+            d = _d;
+        }
+
+        return Math.min(p[n], tooFar);
+    }
+}
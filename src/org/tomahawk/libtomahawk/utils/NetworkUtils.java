@@ -1,8 +1,12 @@
 package org.tomahawk.libtomahawk.utils;
 
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.Credentials;
+import com.squareup.okhttp.Interceptor;
 import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.Response;
@@ -14,17 +18,145 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 
 import java.io.IOException;
-import java.net.Proxy;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NetworkUtils {
 
     public static final String TAG = NetworkUtils.class.getSimpleName();
 
+    public static final String DEFAULT_STATS_TAG = "default";
+
     private static final MediaType MEDIA_TYPE_FORM =
             MediaType.parse("application/x-www-form-urlencoded");
 
+    private static final int TIMEOUT = 15000;
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private static final long KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+
+    /**
+     * All requests are being done with this client (or with a clone of it), so that they all share
+     * the same connection pool
+     */
+    private static final OkHttpClient sClient = new OkHttpClient();
+
+    private static final OkHttpClient sNoRedirectsClient;
+
+    private static final ConcurrentHashMap<String, RequestCounters> sRequestCounters =
+            new ConcurrentHashMap<>();
+
+    private static final Set<Connection> sKnownConnections =
+            Collections.newSetFromMap(new WeakHashMap<Connection, Boolean>());
+
+    static {
+        sClient.setConnectTimeout(TIMEOUT, TimeUnit.MILLISECONDS);
+        sClient.setReadTimeout(TIMEOUT, TimeUnit.MILLISECONDS);
+        sClient.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION));
+        sClient.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.SPDY_3, Protocol.HTTP_1_1));
+        sClient.interceptors().add(new BasicAuthInterceptor());
+        sClient.networkInterceptors().add(new ConnectionCountingInterceptor());
+        // The clone shares the connection pool and the interceptors with sClient
+        sNoRedirectsClient = sClient.clone();
+        sNoRedirectsClient.setFollowRedirects(false);
+    }
+
+    /**
+     * The counters of all requests that have been done with the same stats tag
+     */
+    public static class RequestStats {
+
+        public String mTag;
+
+        public int mInFlightRequests;
+
+        public long mFinishedRequests;
+
+        public long mNewConnections;
+
+        public long mReusedConnections;
+    }
+
+    private static class RequestCounters {
+
+        private final AtomicInteger mInFlightRequests = new AtomicInteger();
+
+        private final AtomicLong mFinishedRequests = new AtomicLong();
+
+        private final AtomicLong mNewConnections = new AtomicLong();
+
+        private final AtomicLong mReusedConnections = new AtomicLong();
+    }
+
+    /**
+     * Attached to every {@link Request} as its tag, so that the interceptors know which
+     * credentials and counters belong to it
+     */
+    private static class RequestTag {
+
+        private String mStatsTag;
+
+        private String mUsername;
+
+        private String mPassword;
+    }
+
+    /**
+     * Applies HTTP Basic Auth to a single request, if the server asks for it and credentials have
+     * been provided for that request. This way we don't need a separate client per credentials.
+     */
+    private static class BasicAuthInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (response.code() == HttpURLConnection.HTTP_UNAUTHORIZED
+                    && request.tag() instanceof RequestTag
+                    && request.header("Authorization") == null) {
+                RequestTag tag = (RequestTag) request.tag();
+                if (tag.mUsername != null && tag.mPassword != null) {
+                    response.body().close();
+                    String credential = Credentials.basic(tag.mUsername, tag.mPassword);
+                    return chain.proceed(
+                            request.newBuilder().header("Authorization", credential).build());
+                }
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Counts how many requests have been able to reuse a pooled connection
+     */
+    private static class ConnectionCountingInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            boolean isNewConnection;
+            synchronized (sKnownConnections) {
+                isNewConnection = sKnownConnections.add(chain.connection());
+            }
+            RequestCounters counters = getRequestCounters(request.tag());
+            if (isNewConnection) {
+                counters.mNewConnections.incrementAndGet();
+            } else {
+                counters.mReusedConnections.incrementAndGet();
+            }
+            return chain.proceed(request);
+        }
+    }
+
     /**
      * Does a HTTP or HTTPS request
      *
@@ -42,34 +174,36 @@ public class NetworkUtils {
     public static Response httpRequest(String method, String urlString,
             Map<String, String> extraHeaders, final String username, final String password,
             String data, boolean followRedirects) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-
-        //Set time-outs
-        client.setConnectTimeout(15000, TimeUnit.MILLISECONDS);
-        client.setReadTimeout(15000, TimeUnit.MILLISECONDS);
-
-        client.setFollowRedirects(followRedirects);
-
-        // Configure HTTP Basic Auth if available
-        if (username != null && password != null) {
-            client.setAuthenticator(new com.squareup.okhttp.Authenticator() {
-                @Override
-                public Request authenticate(Proxy proxy, Response response) throws IOException {
-                    String credential = Credentials.basic(username, password);
-                    return response.request().newBuilder().header("Authorization", credential)
-                            .build();
-                }
+        return httpRequest(method, urlString, extraHeaders, username, password, data,
+                followRedirects, null);
+    }
 
-                @Override
-                public Request authenticateProxy(Proxy proxy, Response response)
-                        throws IOException {
-                    return null;
-                }
-            });
-        }
+    /**
+     * Does a HTTP or HTTPS request
+     *
+     * @param method          the method that should be used ("GET" or "POST"), defaults to "GET"
+     *                        (optional)
+     * @param urlString       the complete url string to do the request with
+     * @param extraHeaders    extra headers that should be added to the request (optional)
+     * @param username        the username for HTTP Basic Auth (optional)
+     * @param password        the password for HTTP Basic Auth (optional)
+     * @param data            the body data included in POST requests (optional)
+     * @param followRedirects whether or not to follow redirects (also defines what is being
+     *                        returned)
+     * @param statsTag        the tag under which this request should be counted in the {@link
+     *                        RequestStats} (optional)
+     * @return a HttpURLConnection
+     */
+    public static Response httpRequest(String method, String urlString,
+            Map<String, String> extraHeaders, final String username, final String password,
+            String data, boolean followRedirects, String statsTag) throws IOException {
+        RequestTag tag = new RequestTag();
+        tag.mStatsTag = statsTag;
+        tag.mUsername = username;
+        tag.mPassword = password;
 
         // Create request for remote resource.
-        Request.Builder builder = new Request.Builder().url(urlString);
+        Request.Builder builder = new Request.Builder().url(urlString).tag(tag);
 
         // Add headers if available
         if (extraHeaders != null) {
@@ -98,7 +232,51 @@ public class NetworkUtils {
 
         // Build and execute the request and retrieve the response.
         Request request = builder.build();
-        return client.newCall(request).execute();
+        OkHttpClient client = followRedirects ? sClient : sNoRedirectsClient;
+        RequestCounters counters = getRequestCounters(tag);
+        counters.mInFlightRequests.incrementAndGet();
+        try {
+            return client.newCall(request).execute();
+        } finally {
+            counters.mInFlightRequests.decrementAndGet();
+            counters.mFinishedRequests.incrementAndGet();
+        }
+    }
+
+    private static RequestCounters getRequestCounters(Object requestTag) {
+        String statsTag = null;
+        if (requestTag instanceof RequestTag) {
+            statsTag = ((RequestTag) requestTag).mStatsTag;
+        }
+        if (statsTag == null) {
+            statsTag = DEFAULT_STATS_TAG;
+        }
+        RequestCounters counters = sRequestCounters.get(statsTag);
+        if (counters == null) {
+            counters = new RequestCounters();
+            RequestCounters existingCounters = sRequestCounters.putIfAbsent(statsTag, counters);
+            if (existingCounters != null) {
+                counters = existingCounters;
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * @return the {@link RequestStats} of all requests that have been done with the given stats
+     * tag. In-flight requests are being counted until their response headers have been received.
+     */
+    public static RequestStats getRequestStats(String statsTag) {
+        RequestTag tag = new RequestTag();
+        tag.mStatsTag = statsTag;
+        RequestCounters counters = getRequestCounters(tag);
+        RequestStats stats = new RequestStats();
+        stats.mTag = tag.mStatsTag != null ? tag.mStatsTag : DEFAULT_STATS_TAG;
+        stats.mInFlightRequests = counters.mInFlightRequests.get();
+        stats.mFinishedRequests = counters.mFinishedRequests.get();
+        stats.mNewConnections = counters.mNewConnections.get();
+        stats.mReusedConnections = counters.mReusedConnections.get();
+        return stats;
     }
 
     public static boolean isNetworkAvailable() {
@@ -8,15 +8,32 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.regex.Pattern;
 
 public class VariousUtils {
 
     public static final String TAG = VariousUtils.class.getSimpleName();
 
+    private static final Pattern MULTIPLE_WHITESPACES = Pattern.compile("[\\s]{2,}");
+
     public static boolean containsIgnoreCase(String str1, String str2) {
         return str1.toLowerCase().contains(str2.toLowerCase());
     }
 
+    /**
+     * Clean up the given String, so that it can be used to compare names.
+     *
+     * @param replaceArticle wether or not the prefix "the " should be removed
+     * @return the clean String
+     */
+    public static String cleanUpString(String in, boolean replaceArticle) {
+        String out = MULTIPLE_WHITESPACES.matcher(in.toLowerCase().trim()).replaceAll(" ");
+        if (replaceArticle && out.startsWith("the ")) {
+            out = out.substring(4);
+        }
+        return out;
+    }
+
     /**
      * By default File#delete fails for non-empty directories, it works like "rm". We need something
      * a little more brutal - this does the equivalent of "rm -r"
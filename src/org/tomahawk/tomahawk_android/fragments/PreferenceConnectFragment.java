@@ -77,6 +77,11 @@ public class PreferenceConnectFragment extends TomahawkListFragment
         updateAdapter();
     }
 
+    @SuppressWarnings("unused")
+    public void onEventMainThread(PipeLine.CircuitBreakerStateChangedEvent event) {
+        updateAdapter();
+    }
+
     /**
      * Called, when this {@link org.tomahawk.tomahawk_android.fragments.PreferenceConnectFragment}'s
      * {@link android.view.View} has been created
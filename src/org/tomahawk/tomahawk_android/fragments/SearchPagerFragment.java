@@ -85,10 +85,22 @@ public class SearchPagerFragment extends PagerFragment {
     }
 
     @SuppressWarnings("unused")
-    public void onEventMainThread(PipeLine.ResultsEvent event) {
-        if (mCorrespondingQueries.contains(event.mQuery)) {
-            mTrackResultPlaylist = event.mQuery.getResultPlaylist();
-            updatePager();
+    public void onEventMainThread(ThreadManager.QueryTaskCancelledEvent event) {
+        // The resolve task of our Query has been dropped, so it has to be resolved again
+        if (event.mReason == ThreadManager.QueryTaskCancelledEvent.REASON_DROPPED
+                && PipeLine.RESOLVE_KEY.equals(event.mKey)
+                && mCorrespondingQueries.contains(event.mQuery)) {
+            PipeLine.get().resolve(event.mQuery);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventMainThread(PipeLine.BatchedResultsEvent event) {
+        for (Query query : event.mQueries) {
+            if (mCorrespondingQueries.contains(query)) {
+                mTrackResultPlaylist = query.getResultPlaylist();
+                updatePager();
+            }
         }
     }
 
@@ -159,7 +171,7 @@ public class SearchPagerFragment extends PagerFragment {
         super.onPause();
 
         for (Query query : mCorrespondingQueries) {
-            if (ThreadManager.get().stop(query)) {
+            if (ThreadManager.get().stop(query, PipeLine.RESOLVE_KEY)) {
                 mCorrespondingQueries.remove(query);
             }
         }
@@ -51,16 +51,20 @@ public abstract class SelectorFragment extends Fragment {
             = Collections.newSetFromMap(new ConcurrentHashMap<Query, Boolean>());
 
     @SuppressWarnings("unused")
-    public void onEventMainThread(PipeLine.ResultsEvent event) {
-        if (mCorrespondingQueries.contains(event.mQuery)) {
-            onPipeLineResultsReported(event.mQuery);
+    public void onEventMainThread(PipeLine.BatchedResultsEvent event) {
+        for (Query query : event.mQueries) {
+            if (mCorrespondingQueries.contains(query)) {
+                onPipeLineResultsReported(query);
+            }
         }
     }
 
     @SuppressWarnings("unused")
-    public void onEventMainThread(InfoSystem.ResultsEvent event) {
-        if (mCorrespondingRequestIds.contains(event.mInfoRequestData.getRequestId())) {
-            onInfoSystemResultsReported(event.mInfoRequestData.getRequestId());
+    public void onEventMainThread(InfoSystem.BatchedResultsEvent event) {
+        for (String requestId : event.mRequestIds) {
+            if (mCorrespondingRequestIds.contains(requestId)) {
+                onInfoSystemResultsReported(requestId);
+            }
         }
     }
 
@@ -82,7 +86,7 @@ public abstract class SelectorFragment extends Fragment {
         super.onPause();
 
         for (Query query : mCorrespondingQueries) {
-            if (ThreadManager.get().stop(query)) {
+            if (ThreadManager.get().stop(query, PipeLine.RESOLVE_KEY)) {
                 mCorrespondingQueries.remove(query);
             }
         }
@@ -74,8 +74,6 @@ public class SocialActionsFragment extends TomahawkFragment implements
                 && mRandomUsersRequestId.equals(event.mInfoRequestData.getRequestId())) {
             mSuggestedUsers = event.mInfoRequestData.getResultList(User.class);
         }
-
-        super.onEvent(event);
     }
 
     @Override
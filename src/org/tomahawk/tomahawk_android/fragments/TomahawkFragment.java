@@ -54,6 +54,8 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
+import android.widget.ListAdapter;
+import android.widget.ListView;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -202,8 +204,25 @@ public abstract class TomahawkFragment extends TomahawkListFragment
     }
 
     @SuppressWarnings("unused")
-    public void onEvent(PipeLine.ResultsEvent event) {
-        if (mCorrespondingQueries.contains(event.mQuery)) {
+    public void onEventMainThread(ThreadManager.QueryTaskCancelledEvent event) {
+        // The resolve task of a Query has been dropped, so it has to be resolved again if it is
+        // still visible
+        if (event.mReason == ThreadManager.QueryTaskCancelledEvent.REASON_DROPPED
+                && PipeLine.RESOLVE_KEY.equals(event.mKey)
+                && mCorrespondingQueries.remove(event.mQuery)) {
+            forceResolveVisibleItems(false);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventMainThread(PipeLine.BatchedResultsEvent event) {
+        Set<Query> changedQueries = new HashSet<>();
+        for (Query query : event.mQueries) {
+            if (mCorrespondingQueries.contains(query)) {
+                changedQueries.add(query);
+            }
+        }
+        if (!changedQueries.isEmpty() && !rebindRows(changedQueries)) {
             if (!mAdapterUpdateHandler.hasMessages(ADAPTER_UPDATE_MSG)) {
                 mAdapterUpdateHandler.sendEmptyMessageDelayed(ADAPTER_UPDATE_MSG,
                         ADAPTER_UPDATE_DELAY);
@@ -212,11 +231,14 @@ public abstract class TomahawkFragment extends TomahawkListFragment
     }
 
     @SuppressWarnings("unused")
-    public void onEvent(InfoSystem.ResultsEvent event) {
-        if (mCorrespondingRequestIds.contains(event.mInfoRequestData.getRequestId())) {
-            if (!mAdapterUpdateHandler.hasMessages(ADAPTER_UPDATE_MSG)) {
-                mAdapterUpdateHandler.sendEmptyMessageDelayed(ADAPTER_UPDATE_MSG,
-                        ADAPTER_UPDATE_DELAY);
+    public void onEventMainThread(InfoSystem.BatchedResultsEvent event) {
+        for (String requestId : event.mRequestIds) {
+            if (mCorrespondingRequestIds.contains(requestId)) {
+                if (!mAdapterUpdateHandler.hasMessages(ADAPTER_UPDATE_MSG)) {
+                    mAdapterUpdateHandler.sendEmptyMessageDelayed(ADAPTER_UPDATE_MSG,
+                            ADAPTER_UPDATE_DELAY);
+                }
+                break;
             }
         }
     }
@@ -402,7 +424,7 @@ public abstract class TomahawkFragment extends TomahawkListFragment
         super.onPause();
 
         for (Query query : mCorrespondingQueries) {
-            if (ThreadManager.get().stop(query)) {
+            if (ThreadManager.get().stop(query, PipeLine.RESOLVE_KEY)) {
                 mCorrespondingQueries.remove(query);
             }
         }
@@ -586,17 +608,81 @@ public abstract class TomahawkFragment extends TomahawkListFragment
         if (mTomahawkListAdapter != null) {
             start = Math.max(start, 0);
             end = Math.min(end, mTomahawkListAdapter.getCount());
+            Set<Query> visibleQueries = new HashSet<>();
             for (int i = start; i < end; i++) {
                 Object object = mTomahawkListAdapter.getItem(i);
                 if (object instanceof List) {
                     for (Object item : (List) object) {
                         resolveItem(item);
+                        addQuery(visibleQueries, item);
                     }
                 } else {
                     resolveItem(object);
+                    addQuery(visibleQueries, object);
+                }
+            }
+            // Cancel the pending resolve tasks of all queries that aren't visible anymore, so that
+            // scrolling quickly doesn't leave thousands of stale tasks behind
+            for (Query query : mCorrespondingQueries) {
+                if (!visibleQueries.contains(query)
+                        && ThreadManager.get().stop(query, PipeLine.RESOLVE_KEY)) {
+                    mCorrespondingQueries.remove(query);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebind the currently visible rows that show one of the given {@link Query}s, instead of
+     * updating the whole adapter. Rows that aren't visible will be bound correctly as soon as they
+     * are scrolled into view.
+     *
+     * @return false, if the rows couldn't be rebound in place and the whole adapter has to be
+     * updated instead
+     */
+    protected boolean rebindRows(Set<Query> queries) {
+        StickyListHeadersListView listView = getListView();
+        if (listView == null || mTomahawkListAdapter == null) {
+            return false;
+        }
+        ListView wrappedList = listView.getWrappedList();
+        ListAdapter adapter = wrappedList.getAdapter();
+        if (adapter == null) {
+            return false;
+        }
+        int firstPosition = wrappedList.getFirstVisiblePosition();
+        for (int i = 0; i < wrappedList.getChildCount(); i++) {
+            int position = firstPosition + i;
+            Set<Query> rowQueries = new HashSet<>();
+            Object item = wrappedList.getItemAtPosition(position);
+            if (item instanceof SocialAction) {
+                item = ((SocialAction) item).getTargetObject();
+            }
+            if (item instanceof List) {
+                for (Object o : (List) item) {
+                    addQuery(rowQueries, o);
+                }
+            } else {
+                addQuery(rowQueries, item);
+            }
+            rowQueries.retainAll(queries);
+            if (!rowQueries.isEmpty()) {
+                View child = wrappedList.getChildAt(i);
+                if (adapter.getView(position, child, wrappedList) != child) {
+                    // The row's view type has changed, so it can't be rebound in place
+                    return false;
                 }
             }
         }
+        return true;
+    }
+
+    private void addQuery(Set<Query> queries, Object object) {
+        if (object instanceof PlaylistEntry) {
+            queries.add(((PlaylistEntry) object).getQuery());
+        } else if (object instanceof Query) {
+            queries.add((Query) object);
+        }
     }
 
     private void resolveItem(final Object object) {
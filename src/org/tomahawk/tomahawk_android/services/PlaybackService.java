@@ -23,6 +23,7 @@ import com.squareup.picasso.Target;
 
 import org.tomahawk.aidl.IPluginService;
 import org.tomahawk.libtomahawk.authentication.AuthenticatorManager;
+import org.tomahawk.libtomahawk.collection.Cacheable;
 import org.tomahawk.libtomahawk.collection.CollectionManager;
 import org.tomahawk.libtomahawk.collection.Image;
 import org.tomahawk.libtomahawk.collection.Playlist;
@@ -32,6 +33,7 @@ import org.tomahawk.libtomahawk.database.DatabaseHelper;
 import org.tomahawk.libtomahawk.infosystem.InfoSystem;
 import org.tomahawk.libtomahawk.resolver.PipeLine;
 import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Result;
 import org.tomahawk.libtomahawk.utils.ImageUtils;
 import org.tomahawk.tomahawk_android.R;
 import org.tomahawk.tomahawk_android.TomahawkApp;
@@ -49,6 +51,7 @@ import org.tomahawk.tomahawk_android.utils.MediaButtonReceiver;
 import org.tomahawk.tomahawk_android.utils.MusicFocusable;
 import org.tomahawk.tomahawk_android.utils.RemoteControlClientCompat;
 import org.tomahawk.tomahawk_android.utils.RemoteControlHelper;
+import org.tomahawk.tomahawk_android.utils.ShuffledIndex;
 import org.tomahawk.tomahawk_android.utils.ThreadManager;
 import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 import org.tomahawk.tomahawk_android.utils.WeakReferenceHandler;
@@ -87,10 +90,9 @@ import android.widget.RemoteViews;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -198,7 +200,11 @@ public class PlaybackService extends Service implements MusicFocusable {
 
     private Playlist mQueue;
 
-    private List<Integer> mShuffledIndex = new ArrayList<>();
+    // The entries, Queries and Results that are playing, queued or coming up next. They are
+    // pinned in their caches, so that they are never evicted while we still need them.
+    private Set<Cacheable> mPinnedItems = newIdentitySet();
+
+    private ShuffledIndex mShuffledIndex;
 
     private int mQueueStartPos = -1;
 
@@ -477,8 +483,22 @@ public class PlaybackService extends Service implements MusicFocusable {
         }
     };
 
+    @SuppressWarnings("unused")
+    public void onEventMainThread(ThreadManager.QueryTaskCancelledEvent event) {
+        // The staged resolve of an upcoming entry has been dropped before it could run, so
+        // forget about it and resolve the upcoming entries again
+        if (PipeLine.STAGED_KEY.equals(event.mKey)
+                && mCorrespondingQueries.remove(event.mQuery)) {
+            resolveQueriesFromTo(mCurrentIndex, mCurrentIndex + 10);
+        }
+    }
+
     @SuppressWarnings("unused")
     public void onEventMainThread(PipeLine.ResultsEvent event) {
+        if (isPinned(event.mQuery)) {
+            // The preferred Result might have changed
+            updatePinnedItems();
+        }
         if (getCurrentQuery() != null && getCurrentQuery() == event.mQuery) {
             updateNotification();
             updateLockscreenControls();
@@ -613,6 +633,7 @@ public class PlaybackService extends Service implements MusicFocusable {
 
         pause(true);
         releaseAllPlayers();
+        unpinItems(mPinnedItems);
         if (mWakeLock.isHeld()) {
             mWakeLock.release();
         }
@@ -793,62 +814,38 @@ public class PlaybackService extends Service implements MusicFocusable {
             mShuffled = shuffled;
             if (shuffled) {
                 fillShuffledIndex();
+            } else {
+                mShuffledIndex = null;
             }
             if (getCurrentEntry() != null) {
+                // The current entry's position might have changed, so the queue has to follow it
+                if (mQueue.getIndexOfEntry(mCurrentEntry) < 0 && mQueue.size() > 0) {
+                    mQueueStartPos = getPlaylistPosition(mCurrentEntry) + 1;
+                }
+                mCurrentIndex = getPlaybackListIndex(mCurrentEntry);
                 resolveQueriesFromTo(mCurrentIndex, mCurrentIndex + 10);
             }
+            updatePinnedItems();
 
             EventBus.getDefault().post(new PlayingPlaylistChangedEvent());
         }
     }
 
     /**
-     * Shuffles the list of tracks in the current playlist and fills the shuffled index accordingly.
-     * The shuffle method ensures that the shuffled list does only contain a minimum amount of
-     * tracks by the same artist in sequence.
+     * Creates a new shuffled index for the current playlist. The shuffled positions are only drawn
+     * once they are needed, so this doesn't have to go through the whole playlist. If we're not
+     * playing from the queue, the current entry is put at the first position.
      */
     private void fillShuffledIndex() {
-        mShuffledIndex.clear();
-        Map<String, List<Integer>> artistMap = new HashMap<>();
-        List<String> artistNames = new ArrayList<>();
-        int shuffledTracksCount = 0;
-        boolean isPlayingFromQueue = mQueue.getIndexOfEntry(mCurrentEntry) >= 0;
-        int currentIndex = -1;
-        if (isPlayingFromQueue) {
-            currentIndex = mPlaylist.getIndexOfEntry(mCurrentEntry);
-        }
-        for (int i = 0; i < mPlaylist.size(); i++) {
-            if (isPlayingFromQueue || i != currentIndex) {
-                String artistName = mPlaylist.getArtistName(i);
-                if (artistMap.get(artistName) == null) {
-                    artistMap.put(artistName, new ArrayList<Integer>());
-                    artistNames.add(artistName);
-                }
-                artistMap.get(artistName).add(i);
-                shuffledTracksCount++;
-            }
-        }
-        if (!isPlayingFromQueue) {
-            mShuffledIndex.add(mCurrentIndex);
-        }
-        String lastArtistName = null;
-        while (shuffledTracksCount >= 0) {
-            // Get a random artistName out of all available ones
-            String artistName = null;
-            int tryCount = 0;
-            while (tryCount++ < 3 && (artistName == null || artistName.equals(lastArtistName))) {
-                // We try 3 times to get an artistName that is different from the one we picked
-                // previously
-                int randomPos = (int) (Math.random() * artistNames.size());
-                artistName = artistNames.get(randomPos);
-            }
-            // Now we can get the list of track indexes
-            List<Integer> indexes = artistMap.get(artistName);
-            int randomPos = (int) (Math.random() * indexes.size());
-            // Add the randomly picked track index to our shuffled index
-            mShuffledIndex.add(indexes.get(randomPos));
-            shuffledTracksCount--;
-            lastArtistName = artistName;
+        mShuffledIndex = new ShuffledIndex(mPlaylist.size(),
+                new ShuffledIndex.ArtistNameProvider() {
+                    @Override
+                    public String getArtistName(int index) {
+                        return mPlaylist.getArtistName(index);
+                    }
+                });
+        if (mQueue.getIndexOfEntry(mCurrentEntry) < 0) {
+            mShuffledIndex.getPosition(mPlaylist.getIndexOfEntry(mCurrentEntry));
         }
     }
 
@@ -1030,6 +1027,7 @@ public class PlaybackService extends Service implements MusicFocusable {
 
     private void onTrackChanged() {
         Log.d(TAG, "onTrackChanged");
+        updatePinnedItems();
         EventBus.getDefault().post(new PlayingTrackChangedEvent());
         if (getCurrentEntry() != null) {
             resolveQueriesFromTo(mCurrentIndex, mCurrentIndex - 2 + 10);
@@ -1070,6 +1068,7 @@ public class PlaybackService extends Service implements MusicFocusable {
         Log.d(TAG, "setPlaylist");
         releaseAllPlayers();
         mShuffled = false;
+        mShuffledIndex = null;
         mRepeatingMode = NOT_REPEATING;
         mPlaylist = playlist;
         setCurrentEntry(currentEntry);
@@ -1108,13 +1107,27 @@ public class PlaybackService extends Service implements MusicFocusable {
      */
     private PlaylistEntry getPlaylistEntry(int position) {
         if (mShuffled) {
-            int newPos = mShuffledIndex.get(position);
+            int newPos = mShuffledIndex.getIndex(position);
             return mPlaylist.getEntryAtPos(newPos);
         } else {
             return mPlaylist.getEntryAtPos(position);
         }
     }
 
+    /**
+     * Private helper method that makes sure that the shuffled playlist is being used if needed.
+     *
+     * @return the position of the given {@link PlaylistEntry} inside the current playlist, or -1
+     * if it couldn't be found
+     */
+    private int getPlaylistPosition(PlaylistEntry entry) {
+        int index = mPlaylist.getIndexOfEntry(entry);
+        if (mShuffled && index >= 0) {
+            return mShuffledIndex.getPosition(index);
+        }
+        return index;
+    }
+
     /**
      * @param entry The {@link PlaylistEntry} to get the index for
      * @return an int containing the index of the given {@link PlaylistEntry} inside the current
@@ -1126,7 +1139,7 @@ public class PlaybackService extends Service implements MusicFocusable {
             // Found entry in queue
             return index + mQueueStartPos;
         } else {
-            index = mPlaylist.getIndexOfEntry(entry);
+            index = getPlaylistPosition(entry);
             if (index < 0) {
                 Log.e(TAG,
                         "getPlaybackListIndex - Couldn't find given entry in mQueue or mPlaylist.");
@@ -1484,11 +1497,66 @@ public class PlaybackService extends Service implements MusicFocusable {
             }
         }
         if (!qs.isEmpty()) {
-            HashSet<Query> queries = PipeLine.get().resolve(qs);
+            HashSet<Query> queries = PipeLine.get().resolveStaged(qs);
             mCorrespondingQueries.addAll(queries);
         }
     }
 
+    /**
+     * Pin the current entry, all queued entries and the upcoming entries that are being resolved,
+     * together with their Queries and preferred Results. Everything that isn't part of them
+     * anymore is being unpinned.
+     */
+    private synchronized void updatePinnedItems() {
+        Set<Cacheable> items = newIdentitySet();
+        addPinnedItems(items, mCurrentEntry);
+        for (int i = 0; i < mQueue.size(); i++) {
+            addPinnedItems(items, mQueue.getEntryAtPos(i));
+        }
+        for (int i = mCurrentIndex + 1; i < mCurrentIndex + 10 && i < getPlaybackListSize(); i++) {
+            if (i >= 0) {
+                addPinnedItems(items, getPlaybackListEntry(i));
+            }
+        }
+        for (Cacheable item : items) {
+            if (!mPinnedItems.contains(item)) {
+                Cacheable.pin(item);
+            }
+        }
+        mPinnedItems.removeAll(items);
+        unpinItems(mPinnedItems);
+        mPinnedItems = items;
+    }
+
+    private synchronized boolean isPinned(Cacheable item) {
+        return mPinnedItems.contains(item);
+    }
+
+    private static void addPinnedItems(Set<Cacheable> items, PlaylistEntry entry) {
+        if (entry != null) {
+            items.add(entry);
+            Query query = entry.getQuery();
+            if (query != null) {
+                items.add(query);
+                Result result = query.getPreferredTrackResult();
+                if (result != null) {
+                    items.add(result);
+                }
+            }
+        }
+    }
+
+    private synchronized void unpinItems(Set<Cacheable> items) {
+        for (Cacheable item : items) {
+            Cacheable.unpin(item);
+        }
+        items.clear();
+    }
+
+    private static Set<Cacheable> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Cacheable, Boolean>());
+    }
+
     private void releaseAllPlayers() {
         VLCMediaPlayer.get().release();
         SpotifyMediaPlayer.get().release();
@@ -0,0 +1,87 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.tomahawk_android.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.greenrobot.event.EventBus;
+
+/**
+ * Gathers the keys of changed items over a short window and then posts a single event containing
+ * all of them on the main thread. This way the UI only has to react once, instead of once for
+ * every single change.
+ *
+ * @param <K> the type of the keys that identify the changed items
+ */
+public abstract class EventCoalescer<K> {
+
+    public static final long DEFAULT_WINDOW = 100;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final long mWindow;
+
+    private Set<K> mPendingKeys = new HashSet<>();
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Set<K> keys;
+            synchronized (EventCoalescer.this) {
+                keys = mPendingKeys;
+                mPendingKeys = new HashSet<>();
+            }
+            if (!keys.isEmpty()) {
+                EventBus.getDefault().post(createEvent(keys));
+            }
+        }
+    };
+
+    public EventCoalescer() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window the time in ms during which changes are being gathered, before they are posted
+     */
+    public EventCoalescer(long window) {
+        mWindow = window;
+    }
+
+    /**
+     * Add the given key to the next event. If this is the first key since the last event has been
+     * posted, the next event is being scheduled.
+     */
+    public void add(K key) {
+        synchronized (this) {
+            if (!mPendingKeys.add(key) || mPendingKeys.size() > 1) {
+                return;
+            }
+        }
+        mHandler.postDelayed(mFlushRunnable, mWindow);
+    }
+
+    /**
+     * @return the event that should be posted for the given {@link Set} of changed keys
+     */
+    protected abstract Object createEvent(Set<K> keys);
+}
@@ -0,0 +1,140 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2015, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.tomahawk_android.utils;
+
+import android.text.TextUtils;
+
+import java.util.Random;
+
+/**
+ * A random permutation of the indexes of a playlist, which is being generated lazily. Every
+ * shuffled position is only drawn when it is requested for the first time, so that turning on
+ * shuffle mode doesn't have to touch every entry of a huge playlist. Every index is contained
+ * exactly once and the inverse permutation is kept as well, so that both directions of the lookup
+ * are O(1).
+ *
+ * To avoid playing multiple tracks by the same artist in sequence, we try a few times to draw an
+ * index whose artist differs from the one at the previous position.
+ */
+public class ShuffledIndex {
+
+    private static final int MAX_ARTIST_TRIES = 3;
+
+    public interface ArtistNameProvider {
+
+        String getArtistName(int index);
+    }
+
+    private final Random mRandom = new Random();
+
+    private final ArtistNameProvider mArtistNameProvider;
+
+    // Maps every shuffled position to its index
+    private final int[] mIndexes;
+
+    // Maps every index to its shuffled position
+    private final int[] mPositions;
+
+    // The positions up to this one are final, all positions after it haven't been drawn yet
+    private int mDrawnCount;
+
+    private String mLastArtistName;
+
+    /**
+     * @param size               the number of indexes to shuffle
+     * @param artistNameProvider used to look up the artist name of an index. Only called for
+     *                           indexes that are being drawn.
+     */
+    public ShuffledIndex(int size, ArtistNameProvider artistNameProvider) {
+        mArtistNameProvider = artistNameProvider;
+        mIndexes = new int[size];
+        mPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            mIndexes[i] = i;
+            mPositions[i] = i;
+        }
+    }
+
+    public int size() {
+        return mIndexes.length;
+    }
+
+    /**
+     * @return the index at the given shuffled position or -1, if the position is out of range
+     */
+    public int getIndex(int position) {
+        if (position < 0 || position >= mIndexes.length) {
+            return -1;
+        }
+        while (mDrawnCount <= position) {
+            drawNext();
+        }
+        return mIndexes[position];
+    }
+
+    /**
+     * @return the shuffled position of the given index or -1, if the index is out of range. If the
+     * index hasn't been drawn yet, it is put at the next free position.
+     */
+    public int getPosition(int index) {
+        if (index < 0 || index >= mPositions.length) {
+            return -1;
+        }
+        int position = mPositions[index];
+        if (position >= mDrawnCount) {
+            swap(position, mDrawnCount);
+            position = mDrawnCount++;
+            mLastArtistName = null;
+        }
+        return position;
+    }
+
+    /**
+     * Draw the index for the next free position out of all indexes that haven't been drawn yet
+     */
+    private void drawNext() {
+        int remaining = mIndexes.length - mDrawnCount;
+        int candidate = mDrawnCount + mRandom.nextInt(remaining);
+        if (remaining > 1) {
+            if (mLastArtistName == null && mDrawnCount > 0) {
+                mLastArtistName =
+                        mArtistNameProvider.getArtistName(mIndexes[mDrawnCount - 1]);
+            }
+            String artistName = mArtistNameProvider.getArtistName(mIndexes[candidate]);
+            int tryCount = 1;
+            while (tryCount++ < MAX_ARTIST_TRIES && mLastArtistName != null
+                    && TextUtils.equals(artistName, mLastArtistName)) {
+                candidate = mDrawnCount + mRandom.nextInt(remaining);
+                artistName = mArtistNameProvider.getArtistName(mIndexes[candidate]);
+            }
+            mLastArtistName = artistName;
+        } else {
+            mLastArtistName = null;
+        }
+        swap(mDrawnCount++, candidate);
+    }
+
+    private void swap(int position1, int position2) {
+        int index1 = mIndexes[position1];
+        int index2 = mIndexes[position2];
+        mIndexes[position1] = index2;
+        mIndexes[position2] = index1;
+        mPositions[index2] = position1;
+        mPositions[index1] = position2;
+    }
+}
@@ -19,14 +19,20 @@ package org.tomahawk.tomahawk_android.utils;
 
 import org.tomahawk.libtomahawk.resolver.Query;
 
-import java.util.Collection;
-import java.util.HashSet;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import de.greenrobot.event.EventBus;
+
 public class ThreadManager {
 
     /*
@@ -35,6 +41,30 @@ public class ThreadManager {
      */
     private static final int NUMBER_OF_CORES = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * Lane for tasks that are mostly using the CPU
+     */
+    public static final int LANE_CPU = 0;
+
+    /**
+     * Lane for tasks that are mostly waiting for the disk/database
+     */
+    public static final int LANE_DISK = 1;
+
+    /**
+     * Lane for tasks that are mostly waiting for the network
+     */
+    public static final int LANE_NETWORK = 2;
+
+    private static final int DISK_THREAD_COUNT = 2;
+
+    // The maximum number of network requests that are being done in parallel
+    private static final int NETWORK_THREAD_COUNT = 8;
+
+    // The maximum number of queued tasks that belong to a Query. If more tasks are being queued,
+    // the oldest ones are being dropped.
+    private static final int MAX_QUEUED_QUERY_TASKS = 500;
+
     // Sets the amount of time an idle thread waits before terminating
     private static final int KEEP_ALIVE_TIME = 1;
 
@@ -47,58 +77,400 @@ public class ThreadManager {
 
     }
 
-    private final ThreadPoolExecutor mThreadPool;
+    // One thread pool per lane, so that e.g. slow network requests can't block database actions
+    private final LaneExecutor[] mLanes = new LaneExecutor[3];
+
+    private final LaneExecutor mPlaybackThreadPool;
+
+    private final Map<Integer, WaitTimeCounters> mWaitTimeCounters = new HashMap<>();
+
+    // The latest queued or running task that belongs to a Query, mapped by the Query and the
+    // task's key. A running task is being replaced once another one with the same key is queued.
+    private final Map<Query, Map<String, QueryTask>> mQueryTasks = new HashMap<>();
+
+    // All queued tasks that belong to a Query, in the order in which they have been queued
+    private final LinkedHashSet<QueryTask> mQueuedQueryTasks = new LinkedHashSet<>();
+
+    private int mRunningQueryTaskCount;
+
+    private long mDedupedQueryTaskCount;
+
+    private long mCancelledQueryTaskCount;
+
+    private long mDroppedQueryTaskCount;
+
+    /**
+     * Is being posted when a queued task that belongs to a {@link Query} won't be run, so that
+     * whoever has queued it can forget about the {@link Query} and queue it again if needed
+     */
+    public static class QueryTaskCancelledEvent {
+
+        /**
+         * Every request for the task has been withdrawn via {@link #stop(Query, String)}
+         */
+        public static final int REASON_CANCELLED = 0;
+
+        /**
+         * The task has been dropped, because too many tasks have been queued
+         */
+        public static final int REASON_DROPPED = 1;
+
+        public Query mQuery;
+
+        public String mKey;
+
+        public int mReason;
+    }
+
+    /**
+     * The current queue depth and the counters of the tasks that belong to a {@link Query}
+     */
+    public static class QueryTaskStats {
+
+        public int mQueuedTasks;
+
+        public int mRunningTasks;
+
+        public long mDedupedTasks;
+
+        public long mCancelledTasks;
+
+        public long mDroppedTasks;
+    }
+
+    /**
+     * The time tasks with a certain priority had to wait in a queue before being run. All times
+     * are in milliseconds.
+     */
+    public static class WaitTimeStats {
+
+        public int mPriority;
+
+        public long mTaskCount;
+
+        public long mAverageWaitTime;
+
+        public long mMaxWaitTime;
+    }
+
+    private static class WaitTimeCounters {
+
+        private long mTaskCount;
+
+        private long mTotalWaitTime;
+
+        private long mMaxWaitTime;
+    }
+
+    /**
+     * A {@link ThreadPoolExecutor} that records how long every {@link TomahawkRunnable} had to wait
+     * in its queue
+     */
+    private class LaneExecutor extends ThreadPoolExecutor {
+
+        public LaneExecutor(int threadCount) {
+            super(threadCount, threadCount, KEEP_ALIVE_TIME, KEEP_ALIVE_TIME_UNIT,
+                    new PriorityBlockingQueue<Runnable>());
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            super.beforeExecute(t, r);
+
+            if (r instanceof TomahawkRunnable) {
+                TomahawkRunnable runnable = (TomahawkRunnable) r;
+                onTaskStarted(runnable.getPriority(),
+                        SystemClock.elapsedRealtime() - runnable.getEnqueueTime());
+            }
+        }
+    }
+
+    /**
+     * Wraps a {@link TomahawkRunnable} that belongs to a {@link Query}, so that we know when it has
+     * been started and when it has finished
+     */
+    private class QueryTask extends TomahawkRunnable {
+
+        private final TomahawkRunnable mRunnable;
 
-    private final ThreadPoolExecutor mPlaybackThreadPool;
+        private final Query mQuery;
 
-    private final Map<Query, Collection<TomahawkRunnable>> mQueryRunnableMap;
+        private final String mKey;
+
+        private boolean mStarted;
+
+        private boolean mCancelled;
+
+        // The number of callers that have requested this task and haven't withdrawn it yet
+        private int mRequestCount = 1;
+
+        public QueryTask(TomahawkRunnable runnable, Query query, String key) {
+            super(runnable.getPriority());
+
+            mRunnable = runnable;
+            mQuery = query;
+            mKey = key;
+        }
+
+        @Override
+        public void run() {
+            if (!onQueryTaskStarted(this)) {
+                return;
+            }
+            try {
+                mRunnable.run();
+            } finally {
+                onQueryTaskFinished(this);
+            }
+        }
+    }
 
     private ThreadManager() {
-        mQueryRunnableMap = new ConcurrentHashMap<>();
-        mThreadPool = new ThreadPoolExecutor(NUMBER_OF_CORES, NUMBER_OF_CORES,
-                KEEP_ALIVE_TIME, KEEP_ALIVE_TIME_UNIT, new PriorityBlockingQueue<Runnable>());
-        mPlaybackThreadPool = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_TIME,
-                KEEP_ALIVE_TIME_UNIT, new PriorityBlockingQueue<Runnable>());
+        mLanes[LANE_CPU] = new LaneExecutor(NUMBER_OF_CORES);
+        mLanes[LANE_DISK] = new LaneExecutor(DISK_THREAD_COUNT);
+        mLanes[LANE_NETWORK] = new LaneExecutor(NETWORK_THREAD_COUNT);
+        mLanes[LANE_NETWORK].allowCoreThreadTimeOut(true);
+        mPlaybackThreadPool = new LaneExecutor(1);
     }
 
     public static ThreadManager get() {
         return Holder.instance;
     }
 
+    /**
+     * Execute the given {@link TomahawkRunnable} in the lane that fits its priority class
+     */
     public void execute(TomahawkRunnable r) {
-        mThreadPool.execute(r);
+        r.onEnqueued();
+        mLanes[getLane(r.getPriority())].execute(r);
+    }
+
+    /**
+     * @return the lane in which tasks with the given priority are being executed
+     */
+    public static int getLane(int priority) {
+        switch (priority) {
+            case TomahawkRunnable.PRIORITY_IS_DATABASEACTION:
+                return LANE_DISK;
+            case TomahawkRunnable.PRIORITY_IS_INFOSYSTEM_HIGH:
+            case TomahawkRunnable.PRIORITY_IS_INFOSYSTEM_MEDIUM:
+            case TomahawkRunnable.PRIORITY_IS_INFOSYSTEM_LOW:
+            case TomahawkRunnable.PRIORITY_IS_AUTHENTICATING:
+            case TomahawkRunnable.PRIORITY_IS_REPORTING_WITH_HEADERREQUEST:
+                return LANE_NETWORK;
+            default:
+                return LANE_CPU;
+        }
+    }
+
+    /**
+     * Set the number of threads of the given lane
+     *
+     * @param lane one of {@link #LANE_CPU}, {@link #LANE_DISK} or {@link #LANE_NETWORK}
+     */
+    public void setLaneSize(int lane, int threadCount) {
+        ThreadPoolExecutor executor = mLanes[lane];
+        if (threadCount > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threadCount);
+            executor.setCorePoolSize(threadCount);
+        } else {
+            executor.setCorePoolSize(threadCount);
+            executor.setMaximumPoolSize(threadCount);
+        }
     }
 
-    public void execute(TomahawkRunnable r, Query query) {
-        Collection<TomahawkRunnable> runnables = mQueryRunnableMap.get(query);
-        if (runnables == null) {
-            runnables = new HashSet<>();
+    /**
+     * @return the {@link WaitTimeStats} of every priority class that has been run so far
+     */
+    public List<WaitTimeStats> getWaitTimeStats() {
+        List<WaitTimeStats> statsList = new ArrayList<>();
+        synchronized (mWaitTimeCounters) {
+            for (Map.Entry<Integer, WaitTimeCounters> entry : mWaitTimeCounters.entrySet()) {
+                WaitTimeCounters counters = entry.getValue();
+                WaitTimeStats stats = new WaitTimeStats();
+                stats.mPriority = entry.getKey();
+                stats.mTaskCount = counters.mTaskCount;
+                stats.mAverageWaitTime = counters.mTotalWaitTime / counters.mTaskCount;
+                stats.mMaxWaitTime = counters.mMaxWaitTime;
+                statsList.add(stats);
+            }
         }
-        runnables.add(r);
-        mQueryRunnableMap.put(query, runnables);
-        mThreadPool.execute(r);
+        return statsList;
     }
 
-    public boolean stop(Query query) {
-        boolean success = false;
-        Collection<TomahawkRunnable> runnables = mQueryRunnableMap.remove(query);
-        if (runnables != null) {
-            for (TomahawkRunnable r : runnables) {
-                mThreadPool.remove(r);
-                success = true;
+    private void onTaskStarted(int priority, long waitTime) {
+        synchronized (mWaitTimeCounters) {
+            WaitTimeCounters counters = mWaitTimeCounters.get(priority);
+            if (counters == null) {
+                counters = new WaitTimeCounters();
+                mWaitTimeCounters.put(priority, counters);
+            }
+            counters.mTaskCount++;
+            counters.mTotalWaitTime += waitTime;
+            counters.mMaxWaitTime = Math.max(counters.mMaxWaitTime, waitTime);
+        }
+    }
+
+    /**
+     * Execute the given {@link TomahawkRunnable}, which belongs to the given {@link Query}. If a
+     * task with the same key is already queued for that {@link Query}, the given TomahawkRunnable
+     * is being dropped and the caller is being counted as another requester of the existing task
+     * instead. A task that is already running isn't being merged into, since it might not see
+     * whatever has changed since it has been started (e.g. a newly added {@link
+     * org.tomahawk.libtomahawk.resolver.Resolver}).
+     *
+     * If too many tasks are queued, the oldest ones are being dropped and a {@link
+     * QueryTaskCancelledEvent} is being posted for each of them.
+     *
+     * @param key the key that identifies the kind of task for the given {@link Query}
+     * @return whether or not the given TomahawkRunnable has been queued. False if it has been
+     * merged into an existing task.
+     */
+    public boolean execute(TomahawkRunnable r, Query query, String key) {
+        List<QueryTask> droppedTasks = new ArrayList<>();
+        boolean queued = queue(r, query, key, droppedTasks);
+        for (QueryTask task : droppedTasks) {
+            postCancelled(task, QueryTaskCancelledEvent.REASON_DROPPED);
+        }
+        return queued;
+    }
+
+    private synchronized boolean queue(TomahawkRunnable r, Query query, String key,
+            List<QueryTask> droppedTasks) {
+        Map<String, QueryTask> tasks = mQueryTasks.get(query);
+        if (tasks == null) {
+            tasks = new HashMap<>();
+            mQueryTasks.put(query, tasks);
+        } else {
+            QueryTask existingTask = tasks.get(key);
+            if (existingTask != null && !existingTask.mStarted) {
+                existingTask.mRequestCount++;
+                mDedupedQueryTaskCount++;
+                return false;
+            }
+        }
+        QueryTask task = new QueryTask(r, query, key);
+        tasks.put(key, task);
+        mQueuedQueryTasks.add(task);
+        // Drop the oldest tasks, if too many have been queued
+        Iterator<QueryTask> iterator = mQueuedQueryTasks.iterator();
+        while (mQueuedQueryTasks.size() > MAX_QUEUED_QUERY_TASKS && iterator.hasNext()) {
+            QueryTask oldestTask = iterator.next();
+            iterator.remove();
+            cancel(oldestTask);
+            droppedTasks.add(oldestTask);
+            mDroppedQueryTaskCount++;
+        }
+        mLanes[LANE_CPU].execute(task);
+        return true;
+    }
+
+    /**
+     * Withdraw a request for the queued task with the given key that belongs to the given {@link
+     * Query}. The task is only being cancelled once every caller that has requested it has
+     * withdrawn its request, so that e.g. a list that scrolls a {@link Query} out of view can't
+     * cancel the resolving that the playback depends on. Tasks that are already running are not
+     * affected.
+     *
+     * @param key the key that has been given to {@link #execute(TomahawkRunnable, Query,
+     *            String)}
+     * @return whether or not a request has been withdrawn. If so, the caller should forget about
+     * the {@link Query} and execute it again if it is still needed.
+     */
+    public boolean stop(Query query, String key) {
+        QueryTask cancelledTask = null;
+        synchronized (this) {
+            Map<String, QueryTask> tasks = mQueryTasks.get(query);
+            QueryTask task = tasks != null ? tasks.get(key) : null;
+            if (task == null || task.mStarted) {
+                return false;
+            }
+            if (--task.mRequestCount == 0) {
+                mQueuedQueryTasks.remove(task);
+                cancel(task);
+                mCancelledQueryTaskCount++;
+                cancelledTask = task;
+            }
+        }
+        if (cancelledTask != null) {
+            postCancelled(cancelledTask, QueryTaskCancelledEvent.REASON_CANCELLED);
+        }
+        return true;
+    }
+
+    /**
+     * @return the current {@link QueryTaskStats}
+     */
+    public synchronized QueryTaskStats getQueryTaskStats() {
+        QueryTaskStats stats = new QueryTaskStats();
+        stats.mQueuedTasks = mQueuedQueryTasks.size();
+        stats.mRunningTasks = mRunningQueryTaskCount;
+        stats.mDedupedTasks = mDedupedQueryTaskCount;
+        stats.mCancelledTasks = mCancelledQueryTaskCount;
+        stats.mDroppedTasks = mDroppedQueryTaskCount;
+        return stats;
+    }
+
+    private static void postCancelled(QueryTask task, int reason) {
+        QueryTaskCancelledEvent event = new QueryTaskCancelledEvent();
+        event.mQuery = task.mQuery;
+        event.mKey = task.mKey;
+        event.mReason = reason;
+        EventBus.getDefault().post(event);
+    }
+
+    private void cancel(QueryTask task) {
+        task.mCancelled = true;
+        mLanes[LANE_CPU].remove(task);
+        removeQueryTask(task);
+    }
+
+    private synchronized boolean onQueryTaskStarted(QueryTask task) {
+        if (task.mCancelled) {
+            return false;
+        }
+        task.mStarted = true;
+        mQueuedQueryTasks.remove(task);
+        mRunningQueryTaskCount++;
+        return true;
+    }
+
+    private synchronized void onQueryTaskFinished(QueryTask task) {
+        mRunningQueryTaskCount--;
+        removeQueryTask(task);
+    }
+
+    private void removeQueryTask(QueryTask task) {
+        Map<String, QueryTask> tasks = mQueryTasks.get(task.mQuery);
+        if (tasks != null && tasks.get(task.mKey) == task) {
+            tasks.remove(task.mKey);
+            if (tasks.isEmpty()) {
+                mQueryTasks.remove(task.mQuery);
             }
         }
-        return success;
     }
 
     public void executePlayback(TomahawkRunnable r) {
+        r.onEnqueued();
         mPlaybackThreadPool.execute(r);
     }
 
+    /**
+     * Execute the given {@link TomahawkRunnable}, which is doing a blocking network request, in a
+     * bounded thread pool.
+     */
+    public void executeNetwork(TomahawkRunnable r) {
+        r.onEnqueued();
+        mLanes[LANE_NETWORK].execute(r);
+    }
+
     public boolean isActive() {
-        return mThreadPool.getActiveCount() > 0
-                || mThreadPool.getQueue().size() > 0
-                || mPlaybackThreadPool.getActiveCount() > 0
+        for (ThreadPoolExecutor executor : mLanes) {
+            if (executor.getActiveCount() > 0 || executor.getQueue().size() > 0) {
+                return true;
+            }
+        }
+        return mPlaybackThreadPool.getActiveCount() > 0
                 || mPlaybackThreadPool.getQueue().size() > 0;
     }
 }
@@ -17,8 +17,11 @@
  */
 package org.tomahawk.tomahawk_android.utils;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public abstract class TomahawkRunnable implements Runnable, Comparable<TomahawkRunnable> {
 
     public static final int PRIORITY_IS_PLAYBACK = 1000;
@@ -45,18 +48,60 @@ public abstract class TomahawkRunnable implements Runnable, Comparable<TomahawkR
 
     public static final int PRIORITY_IS_REPORTING_WITH_HEADERREQUEST = 0;
 
+    /**
+     * The time in ms a task has to wait in a queue to gain one more priority point
+     */
+    public static final long AGING_INTERVAL = 100L;
+
+    private static final AtomicLong sSequenceNumber = new AtomicLong();
+
     private final int mPriority;
 
+    private long mEnqueueTime;
+
+    private long mSequenceNumber;
+
     public TomahawkRunnable(int priority) {
         mPriority = priority;
+        onEnqueued();
     }
 
     public int getPriority() {
         return mPriority;
     }
 
+    /**
+     * @return the time (in ms since boot) at which this task has been queued
+     */
+    public long getEnqueueTime() {
+        return mEnqueueTime;
+    }
+
+    /**
+     * Must be called right before this task is being put into a queue
+     */
+    void onEnqueued() {
+        mEnqueueTime = SystemClock.elapsedRealtime();
+        mSequenceNumber = sSequenceNumber.getAndIncrement();
+    }
+
+    /**
+     * Tasks with a higher priority come first. To make sure that tasks with a low priority don't
+     * starve, a task gains one priority point for every {@link #AGING_INTERVAL} it has been waiting
+     * in the queue. Comparing "priority + waitingTime / AGING_INTERVAL" is the same as comparing
+     * "priority * AGING_INTERVAL - enqueueTime", which doesn't change while the tasks are queued.
+     * Tasks with the same aged priority are being run in the order in which they have been queued.
+     */
     @Override
     public int compareTo(@NonNull TomahawkRunnable other) {
-        return other.getPriority() - mPriority;
+        long score = mPriority * AGING_INTERVAL - mEnqueueTime;
+        long otherScore = other.mPriority * AGING_INTERVAL - other.mEnqueueTime;
+        if (score != otherScore) {
+            return score > otherScore ? -1 : 1;
+        }
+        if (mSequenceNumber != other.mSequenceNumber) {
+            return mSequenceNumber < other.mSequenceNumber ? -1 : 1;
+        }
+        return 0;
     }
 }